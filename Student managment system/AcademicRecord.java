@@ -1,5 +1,6 @@
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -14,19 +15,52 @@ import java.util.Set;
 public class AcademicRecord implements Serializable {
     private static final long serialVersionUID = 1L;
     
+    // Weight distribution of the grade types that count towards a course grade
+    private static final Map<String, Double> WEIGHTS;
+    static {
+        Map<String, Double> weights = new HashMap<>();
+        weights.put("Quiz", 0.15);       // 15% for quizzes
+        weights.put("Assignment", 0.15);  // 15% for assignments
+        weights.put("Midterm", 0.30);    // 30% for midterm
+        weights.put("Final", 0.40);      // 40% for final exam
+        WEIGHTS = Collections.unmodifiableMap(weights);
+    }
+    
     private Student student;
     private List<Grade> grades;
     private Map<String, List<Grade>> semesterGrades; // Organized by semester
     private Map<Subject, List<Grade>> subjectGrades; // Organized by subject
     private Date lastUpdated;
     
+    // Grades without a subject count as one course of their own
+    private static final int NO_SUBJECT = Integer.MIN_VALUE;
+    
+    // Running GPA totals, updated by addGrade and rebuilt from the grades when missing
+    private transient Map<String, IntHashMap<CourseTotals>> courseTotals; // semester -> subject ID -> weighted scores
+    private transient Map<String, GpaTotals> semesterTotals;
+    private transient GpaTotals cumulativeTotals;
+    
     // Constructor
     public AcademicRecord(Student student) {
         this.student = student;
-        this.grades = new ArrayList<>();
+        this.grades = new AppendOnlyList<>();
         this.semesterGrades = new HashMap<>();
         this.subjectGrades = new HashMap<>();
         this.lastUpdated = new Date();
+        resetTotals();
+    }
+    
+    // Copy with the student, grades and update time only, see snapshot()
+    private AcademicRecord(AcademicRecord source) {
+        this.student = source.student;
+        this.grades = AppendOnlyList.snapshotOf(source.grades);
+        this.lastUpdated = source.lastUpdated;
+    }
+    
+    // The record as it is now, for writing a snapshot while new grades keep being added
+    // Only the student, grades and update time are kept, the copy can't calculate GPAs
+    AcademicRecord snapshot() {
+        return new AcademicRecord(this);
     }
     
     // Add a new grade
@@ -53,109 +87,47 @@ public class AcademicRecord implements Serializable {
         }
         subjectGrades.get(subject).add(grade);
         
+        // Update the running GPA totals
+        if (courseTotals != null) {
+            accumulate(grade);
+        }
+        
         // Update timestamp
         this.lastUpdated = new Date();
     }
     
     // Calculate cumulative GPA across all grades
     public double calculateCumulativeGPA() {
-        if (grades.isEmpty()) {
-            return 0.0;
-        }
-        
-        double totalPoints = 0.0;
-        int totalCourses = 0;
-        
-        // Get all unique semester-subject combinations
-        Map<String, Set<Subject>> semesterSubjects = new HashMap<>();
-        for (Grade grade : grades) {
-            String semester = grade.getSemester();
-            Subject subject = grade.getSubject();
-            
-            if (!semesterSubjects.containsKey(semester)) {
-                semesterSubjects.put(semester, new HashSet<>());
-            }
-            semesterSubjects.get(semester).add(subject);
-        }
-        
-        // Calculate overall grade for each subject in each semester
-        for (String semester : semesterSubjects.keySet()) {
-            for (Subject subject : semesterSubjects.get(semester)) {
-                Grade overallGrade = calculateOverallSubjectGrade(subject, semester);
-                if (overallGrade != null) {
-                    totalPoints += overallGrade.getGradePoints();
-                    totalCourses++;
-                }
-            }
-        }
-        
-        return totalCourses > 0 ? totalPoints / totalCourses : 0.0;
+        ensureTotals();
+        return cumulativeTotals.getGpa();
     }
     
     // Calculate GPA for a specific semester
     public double calculateSemesterGPA(String semester) {
-        List<Grade> semGrades = semesterGrades.get(semester);
-        
-        if (semGrades == null || semGrades.isEmpty()) {
-            return 0.0;
-        }
-        
-        double totalPoints = 0.0;
-        int totalCourses = 0;
-        
-        // Get all subjects for this semester
-        Set<Subject> subjects = new HashSet<>();
-        for (Grade grade : semGrades) {
-            subjects.add(grade.getSubject());
-        }
-        
-        // Calculate overall grade for each subject
-        for (Subject subject : subjects) {
-            Grade overallGrade = calculateOverallSubjectGrade(subject, semester);
-            if (overallGrade != null) {
-                totalPoints += overallGrade.getGradePoints();
-                totalCourses++;
-            }
-        }
-        
-        return totalCourses > 0 ? totalPoints / totalCourses : 0.0;
+        ensureTotals();
+        GpaTotals totals = semesterTotals.get(semester);
+        return totals != null ? totals.getGpa() : 0.0;
     }
     
     // Calculate overall grade for a subject
     public Grade calculateOverallSubjectGrade(Subject subject, String semester) {
-        List<Grade> subjectGradeList = subjectGrades.get(subject);
-        if (subjectGradeList == null || subjectGradeList.isEmpty()) {
+        ensureTotals();
+        IntHashMap<CourseTotals> semesterCourses = courseTotals.get(semester);
+        if (semesterCourses == null) {
             return null;
         }
         
-        double totalWeightedScore = 0.0;
-        double totalWeight = 0.0;
-        
-        // Weight distribution
-        Map<String, Double> weights = new HashMap<>();
-        weights.put("Quiz", 0.15);       // 15% for quizzes
-        weights.put("Assignment", 0.15);  // 15% for assignments
-        weights.put("Midterm", 0.30);    // 30% for midterm
-        weights.put("Final", 0.40);      // 40% for final exam
-        
-        // Calculate weighted average
-        for (Grade grade : subjectGradeList) {
-            if (grade.getSemester().equals(semester)) {
-                String type = grade.getGradeType();
-                if (weights.containsKey(type)) {
-                    double weight = weights.get(type);
-                    totalWeightedScore += grade.getPercentageScore() * weight;
-                    totalWeight += weight;
-                }
-            }
-        }
-        
         // If no grades found for this semester
-        if (totalWeight == 0) {
+        CourseTotals course = semesterCourses.get(subjectKey(subject));
+        if (course == null || course.totalWeight == 0) {
             return null;
         }
         
-        // Create an overall grade object
+        return createOverallGrade(subject, semester, course);
+    }
+    
+    // Create an overall grade object from the weighted scores of a course
+    private Grade createOverallGrade(Subject subject, String semester, CourseTotals course) {
         Grade overallGrade = new Grade();
         overallGrade.setStudent(student);
         overallGrade.setSubject(subject);
@@ -163,13 +135,74 @@ public class AcademicRecord implements Serializable {
         overallGrade.setSemester(semester);
         
         // Calculate final score
-        double finalPercentage = totalWeightedScore / totalWeight;
+        double finalPercentage = course.totalWeightedScore / course.totalWeight;
         overallGrade.setScore(finalPercentage);
         overallGrade.setMaxScore(100);
         
         return overallGrade;
     }
     
+    // Add a grade to the weighted scores of its course and move the course's
+    // grade points from the old overall grade to the new one
+    private void accumulate(Grade grade) {
+        Double weight = WEIGHTS.get(grade.getGradeType());
+        if (weight == null) {
+            return; // Grade types without a weight don't count towards the GPA
+        }
+        
+        String semester = grade.getSemester();
+        Subject subject = grade.getSubject();
+        
+        IntHashMap<CourseTotals> semesterCourses = courseTotals.get(semester);
+        if (semesterCourses == null) {
+            semesterCourses = new IntHashMap<>();
+            courseTotals.put(semester, semesterCourses);
+        }
+        CourseTotals course = semesterCourses.get(subjectKey(subject));
+        if (course == null) {
+            course = new CourseTotals();
+            semesterCourses.put(subjectKey(subject), course);
+        }
+        GpaTotals semesterGpa = semesterTotals.get(semester);
+        if (semesterGpa == null) {
+            semesterGpa = new GpaTotals();
+            semesterTotals.put(semester, semesterGpa);
+        }
+        
+        if (course.totalWeight > 0) {
+            semesterGpa.remove(course.gradePoints);
+            cumulativeTotals.remove(course.gradePoints);
+        }
+        
+        course.totalWeightedScore += grade.getPercentageScore() * weight;
+        course.totalWeight += weight;
+        course.gradePoints = (int) createOverallGrade(subject, semester, course).getGradePoints();
+        
+        semesterGpa.add(course.gradePoints);
+        cumulativeTotals.add(course.gradePoints);
+    }
+    
+    // Subjects are equal when their IDs are, so the ID is used as the key
+    private static int subjectKey(Subject subject) {
+        return subject != null ? subject.getSubjectId() : NO_SUBJECT;
+    }
+    
+    private void resetTotals() {
+        courseTotals = new HashMap<>();
+        semesterTotals = new HashMap<>();
+        cumulativeTotals = new GpaTotals();
+    }
+    
+    // The totals are not stored, rebuild them after loading or after the grades were replaced
+    private void ensureTotals() {
+        if (courseTotals == null) {
+            resetTotals();
+            for (Grade grade : grades) {
+                accumulate(grade);
+            }
+        }
+    }
+    
     // Generate transcript
     public String generateTranscript() {
         StringBuilder transcript = new StringBuilder();
@@ -207,7 +240,7 @@ public class AcademicRecord implements Serializable {
             transcript.append("\n");
         }
         
-        transcript.append("Last Updated: ").append(new java.text.SimpleDateFormat("dd/MM/yyyy HH:mm:ss").format(lastUpdated));
+        transcript.append("Last Updated: ").append(Dates.formatTime(lastUpdated));
         return transcript.toString();
     }
     
@@ -226,6 +259,7 @@ public class AcademicRecord implements Serializable {
     
     public void setGrades(List<Grade> grades) {
         this.grades = grades;
+        this.courseTotals = null;
     }
     
     public Map<String, List<Grade>> getSemesterGrades() {
@@ -234,6 +268,7 @@ public class AcademicRecord implements Serializable {
     
     public void setSemesterGrades(Map<String, List<Grade>> semesterGrades) {
         this.semesterGrades = semesterGrades;
+        this.courseTotals = null;
     }
     
     public Map<Subject, List<Grade>> getSubjectGrades() {
@@ -242,6 +277,7 @@ public class AcademicRecord implements Serializable {
     
     public void setSubjectGrades(Map<Subject, List<Grade>> subjectGrades) {
         this.subjectGrades = subjectGrades;
+        this.courseTotals = null;
     }
     
     public Date getLastUpdated() {
@@ -251,4 +287,35 @@ public class AcademicRecord implements Serializable {
     public void setLastUpdated(Date lastUpdated) {
         this.lastUpdated = lastUpdated;
     }
+    
+    /**
+     * Weighted score of one subject in one semester and the grade points it currently earns.
+     */
+    private static class CourseTotals {
+        double totalWeightedScore;
+        double totalWeight;
+        int gradePoints;
+    }
+    
+    /**
+     * Sum of the grade points of a set of courses.
+     */
+    private static class GpaTotals {
+        int totalPoints;
+        int totalCourses;
+        
+        void add(int points) {
+            totalPoints += points;
+            totalCourses++;
+        }
+        
+        void remove(int points) {
+            totalPoints -= points;
+            totalCourses--;
+        }
+        
+        double getGpa() {
+            return totalCourses > 0 ? (double) totalPoints / totalCourses : 0.0;
+        }
+    }
 }
@@ -0,0 +1,110 @@
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * List for records that are only ever added, such as attendance and payments.
+ * Elements are stored in fixed-size segments that are never copied or moved,
+ * so snapshot() can hand out a read-only view of the list as it is now without
+ * copying anything. The view stays the same while new records are added, and
+ * can be read by another thread once the snapshot was taken under the lock
+ * that guards the adds.
+ */
+public class AppendOnlyList<T> extends AbstractList<T> implements RandomAccess, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    private static final int SEGMENT_MASK = SEGMENT_SIZE - 1;
+
+    private Object[][] segments = new Object[4][];
+    private int size;
+
+    // Constructor
+    public AppendOnlyList() {
+    }
+
+    public AppendOnlyList(Collection<? extends T> elements) {
+        addAll(elements);
+    }
+
+    @Override
+    public boolean add(T element) {
+        int segment = size >>> SEGMENT_BITS;
+        if (segment == segments.length) {
+            // Only the table of segments grows, the segments themselves stay where they are
+            Object[][] larger = new Object[segments.length * 2][];
+            System.arraycopy(segments, 0, larger, 0, segments.length);
+            segments = larger;
+        }
+        if (segments[segment] == null) {
+            segments[segment] = new Object[SEGMENT_SIZE];
+        }
+
+        segments[segment][size & SEGMENT_MASK] = element;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return element(segments, index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Read-only view of the elements added so far
+    public List<T> snapshot() {
+        return new Snapshot<>(segments, size);
+    }
+
+    // Read-only view of any list as it is now, copying it unless it is an AppendOnlyList
+    public static <T> List<T> snapshotOf(List<T> list) {
+        if (list instanceof AppendOnlyList) {
+            return ((AppendOnlyList<T>) list).snapshot();
+        }
+        return Collections.unmodifiableList(new ArrayList<>(list));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T element(Object[][] segments, int index) {
+        return (T) segments[index >>> SEGMENT_BITS][index & SEGMENT_MASK];
+    }
+
+    /**
+     * The first size elements of an AppendOnlyList at the time the view was taken.
+     */
+    private static final class Snapshot<T> extends AbstractList<T> implements RandomAccess {
+        private final Object[][] segments;
+        private final int size;
+
+        Snapshot(Object[][] segments, int size) {
+            this.segments = segments;
+            this.size = size;
+        }
+
+        @Override
+        public T get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return element(segments, index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
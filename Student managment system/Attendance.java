@@ -1,5 +1,7 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -10,15 +12,24 @@ public class Attendance implements Serializable {
     
     private Student student;
     private Subject subject;
-    private Date date;
+    private long time; // See Dates, the day is worked out from it
     private boolean isPresent;
     private String remarks;
     
+    // Fields in files saved by older versions, which kept the date as a Date object
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("student", Student.class),
+        new ObjectStreamField("subject", Subject.class),
+        new ObjectStreamField("date", Date.class),
+        new ObjectStreamField("isPresent", boolean.class),
+        new ObjectStreamField("remarks", String.class)
+    };
+    
     // Constructor
     public Attendance(Student student, Subject subject, Date date, boolean isPresent, String remarks) {
         this.student = student;
         this.subject = subject;
-        this.date = date;
+        setDate(date);
         this.isPresent = isPresent;
         this.remarks = remarks;
     }
@@ -27,11 +38,25 @@ public class Attendance implements Serializable {
     public Attendance() {
         this.student = null;
         this.subject = null;
-        this.date = new Date();
+        setDate(new Date());
         this.isPresent = false;
         this.remarks = "";
     }
     
+    // Copy of the fields, see snapshot()
+    private Attendance(Attendance source) {
+        this.student = source.student;
+        this.subject = source.subject;
+        this.time = source.time;
+        this.isPresent = source.isPresent;
+        this.remarks = source.remarks;
+    }
+    
+    // The record as it is now, for writing a snapshot while it can still be corrected
+    Attendance snapshot() {
+        return new Attendance(this);
+    }
+    
     // Getters and setters
     public Student getStudent() {
         return student;
@@ -50,11 +75,16 @@ public class Attendance implements Serializable {
     }
     
     public Date getDate() {
-        return date;
+        return Dates.toDate(time);
     }
     
     public void setDate(Date date) {
-        this.date = date;
+        this.time = Dates.toMillis(date);
+    }
+    
+    // Day of the date, Dates.NO_DAY when not set
+    public int getEpochDay() {
+        return Dates.toEpochDay(time);
     }
     
     public boolean isPresent() {
@@ -75,9 +105,17 @@ public class Attendance implements Serializable {
     
     // Get formatted date
     public String getFormattedDate() {
-        if (date == null) return "Not set";
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-        return sdf.format(date);
+        return Dates.formatDay(getEpochDay());
+    }
+    
+    // Older versions saved the date as a Date object
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        student = (Student) fields.get("student", null);
+        subject = (Subject) fields.get("subject", null);
+        setDate((Date) fields.get("date", null));
+        isPresent = fields.get("isPresent", false);
+        remarks = (String) fields.get("remarks", null);
     }
     
     @Override
@@ -0,0 +1,109 @@
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Secondary indexes over the attendance records.
+ * Records are grouped by student, by subject, by day and by (student, subject, day),
+ * so a lookup only touches the records it returns instead of the whole list.
+ * Each group keeps its records in the order they were marked.
+ */
+public class AttendanceIndex {
+    private final IntHashMap<List<Attendance>> byStudent = new IntHashMap<>();
+    private final IntHashMap<List<Attendance>> bySubject = new IntHashMap<>();
+    private final IntHashMap<List<Attendance>> byDay = new IntHashMap<>();
+    private final Map<Key, List<Attendance>> byKey = new HashMap<>();
+
+    // Add a newly marked record to every index
+    public void add(Attendance attendance) {
+        Student student = attendance.getStudent();
+        Subject subject = attendance.getSubject();
+        int epochDay = attendance.getEpochDay();
+
+        if (student != null) {
+            bucket(byStudent, student.getId()).add(attendance);
+        }
+        if (subject != null) {
+            bucket(bySubject, subject.getSubjectId()).add(attendance);
+        }
+        if (epochDay != Dates.NO_DAY) {
+            bucket(byDay, epochDay).add(attendance);
+        }
+        if (student != null && subject != null && epochDay != Dates.NO_DAY) {
+            bucket(byKey, new Key(student.getId(), subject.getSubjectId(), epochDay)).add(attendance);
+        }
+    }
+
+    // Find the record of a student for a subject on the day of the given date
+    // If the student was marked more than once that day, the latest record is returned
+    public Attendance find(int studentId, int subjectId, Date date) {
+        List<Attendance> records = byKey.get(new Key(studentId, subjectId, Dates.toEpochDay(date)));
+        return records == null ? null : records.get(records.size() - 1);
+    }
+
+    public List<Attendance> getByStudent(int studentId) {
+        return copy(byStudent.get(studentId));
+    }
+
+    public List<Attendance> getBySubject(int subjectId) {
+        return copy(bySubject.get(subjectId));
+    }
+
+    // Records marked on the day of the given date
+    public List<Attendance> getByDate(Date date) {
+        return copy(byDay.get(Dates.toEpochDay(date)));
+    }
+
+    private static List<Attendance> bucket(IntHashMap<List<Attendance>> index, int key) {
+        List<Attendance> records = index.get(key);
+        if (records == null) {
+            records = new ArrayList<>();
+            index.put(key, records);
+        }
+        return records;
+    }
+
+    private static <K> List<Attendance> bucket(Map<K, List<Attendance>> index, K key) {
+        List<Attendance> records = index.get(key);
+        if (records == null) {
+            records = new ArrayList<>();
+            index.put(key, records);
+        }
+        return records;
+    }
+
+    private static List<Attendance> copy(List<Attendance> records) {
+        return records == null ? new ArrayList<>() : new ArrayList<>(records);
+    }
+
+    /**
+     * Composite key of the (student, subject, day) index.
+     */
+    private static final class Key {
+        private final int studentId;
+        private final int subjectId;
+        private final int epochDay;
+
+        Key(int studentId, int subjectId, int epochDay) {
+            this.studentId = studentId;
+            this.subjectId = subjectId;
+            this.epochDay = epochDay;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return studentId == key.studentId && subjectId == key.subjectId && epochDay == key.epochDay;
+        }
+
+        @Override
+        public int hashCode() {
+            return (studentId * 31 + subjectId) * 31 + epochDay;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Presence of every student for each subject and teaching day, kept as two bitsets
+ * per (subject, day) indexed by a small ordinal given to each student.
+ * One bitset tells which students were marked that day and the other which of them
+ * were present, so attendance counts come from counting bits instead of going
+ * through the records. A student marked more than once for a subject on the same
+ * day is counted once, with the status of the latest mark or update.
+ */
+public class AttendanceMatrix {
+    // Ordinals are handed out in the order students are first seen
+    private static final int NO_ORDINAL = -1;
+
+    private final IntIntHashMap ordinals = new IntIntHashMap();
+    private final IntList studentIds = new IntList();
+
+    // Days of each subject in date order
+    private final IntHashMap<TreeMap<Integer, Day>> subjects = new IntHashMap<>();
+
+    // Record the status of a student for a subject on a day, see Dates
+    public void mark(int studentId, int subjectId, int epochDay, boolean isPresent) {
+        int ordinal = ordinals.get(studentId, NO_ORDINAL);
+        if (ordinal == NO_ORDINAL) {
+            ordinal = studentIds.size();
+            ordinals.put(studentId, ordinal);
+            studentIds.add(studentId);
+        }
+
+        TreeMap<Integer, Day> days = subjects.get(subjectId);
+        if (days == null) {
+            days = new TreeMap<>();
+            subjects.put(subjectId, days);
+        }
+        Day day = days.get(epochDay);
+        if (day == null) {
+            day = new Day();
+            days.put(epochDay, day);
+        }
+
+        day.marked.set(ordinal);
+        day.present.set(ordinal, isPresent);
+    }
+
+    // Days on which attendance was marked for the subject, earliest first
+    public List<Date> getDays(int subjectId) {
+        List<Date> result = new ArrayList<>();
+        TreeMap<Integer, Day> days = subjects.get(subjectId);
+        if (days != null) {
+            for (int epochDay : days.keySet()) {
+                result.add(Dates.startOfDay(epochDay));
+            }
+        }
+        return result;
+    }
+
+    // Number of students marked for the subject on the day of the given date
+    public int countMarked(int subjectId, Date date) {
+        Day day = day(subjectId, date);
+        return day == null ? 0 : day.marked.cardinality();
+    }
+
+    public int countPresent(int subjectId, Date date) {
+        Day day = day(subjectId, date);
+        return day == null ? 0 : day.present.cardinality();
+    }
+
+    // Number of days the student was marked for the subject
+    public int countMarked(int studentId, int subjectId) {
+        return count(studentId, subjectId, false);
+    }
+
+    public int countPresent(int studentId, int subjectId) {
+        return count(studentId, subjectId, true);
+    }
+
+    // Ids of the students marked absent for the subject on the day of the given date
+    public IntList getAbsentStudentIds(int subjectId, Date date) {
+        IntList result = new IntList();
+        Day day = day(subjectId, date);
+        if (day == null) {
+            return result;
+        }
+
+        BitSet absent = (BitSet) day.marked.clone();
+        absent.andNot(day.present);
+        for (int ordinal = absent.nextSetBit(0); ordinal >= 0; ordinal = absent.nextSetBit(ordinal + 1)) {
+            result.add(studentIds.get(ordinal));
+        }
+        return result;
+    }
+
+    private int count(int studentId, int subjectId, boolean presentOnly) {
+        int ordinal = ordinals.get(studentId, NO_ORDINAL);
+        TreeMap<Integer, Day> days = subjects.get(subjectId);
+        if (ordinal == NO_ORDINAL || days == null) {
+            return 0;
+        }
+
+        int count = 0;
+        for (Day day : days.values()) {
+            if ((presentOnly ? day.present : day.marked).get(ordinal)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Day day(int subjectId, Date date) {
+        TreeMap<Integer, Day> days = subjects.get(subjectId);
+        return days == null ? null : days.get(Dates.toEpochDay(date));
+    }
+
+    /**
+     * Students marked and students present for one subject on one day.
+     */
+    private static final class Day {
+        private final BitSet marked = new BitSet();
+        private final BitSet present = new BitSet();
+    }
+}
@@ -18,7 +18,7 @@ public class Course implements Serializable {
     public Course(int courseId, String name, String department, int creditHours) {
         this.courseId = courseId;
         this.name = name;
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.intern(department);
         this.creditHours = creditHours;
         this.subjects = new ArrayList<>();
     }
@@ -32,6 +32,20 @@ public class Course implements Serializable {
         this.subjects = new ArrayList<>();
     }
     
+    // Copy of the fields and the subject list, see snapshot()
+    private Course(Course source) {
+        this.courseId = source.courseId;
+        this.name = source.name;
+        this.subjects = new ArrayList<>(source.subjects);
+        this.department = source.department;
+        this.creditHours = source.creditHours;
+    }
+    
+    // The course as it is now, for writing a snapshot while subjects keep being assigned
+    Course snapshot() {
+        return new Course(this);
+    }
+    
     // Getters and setters
     public int getCourseId() {
         return courseId;
@@ -68,7 +82,7 @@ public class Course implements Serializable {
     }
     
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.intern(department);
     }
     
     public int getCreditHours() {
@@ -0,0 +1,348 @@
+import java.io.File;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates a synthetic dataset for load and scale testing.
+ * The same seed and settings always produce the same data, so results of
+ * benchmarks and soak tests can be compared between runs.
+ *
+ * Every department has one course. In each semester a student takes the next
+ * block of subjects of their course, attends them on every teaching day,
+ * gets a Quiz, Assignment, Midterm and Final grade for each of them and pays
+ * that semester's fees.
+ *
+ * Usage: java DatasetGenerator [students=N] [semesters=M] [days=D] [seed=S] [overwrite=true]
+ * The data is written to student_system.ser in the data directory (-Dsis.dataDir).
+ */
+public class DatasetGenerator {
+    private static final String[] FIRST_NAMES = {
+        "Abebe", "Sara", "Dawit", "Hana", "Yonas", "Meron", "Samuel", "Liya", "Kebede", "Ruth",
+        "James", "Emily", "Daniel", "Grace", "Michael", "Olivia", "David", "Sophia", "Joseph", "Mia",
+        "Tewodros", "Selam", "Bereket", "Mahlet", "Henok", "Bethlehem", "Nahom", "Eden", "Robel", "Tigist"
+    };
+    private static final String[] LAST_NAMES = {
+        "Tesfaye", "Bekele", "Alemu", "Girma", "Haile", "Mekonnen", "Tadesse", "Wolde", "Kassa", "Desta",
+        "Smith", "Johnson", "Brown", "Taylor", "Wilson", "Davis", "Clark", "Lewis", "Walker", "Young",
+        "Abera", "Negash", "Ayele", "Gebre", "Worku", "Lemma", "Shiferaw", "Yilma", "Asfaw", "Mulugeta"
+    };
+    private static final String[] DEPARTMENTS = {
+        "Computer Science", "Mathematics", "Physics", "Chemistry", "Biology",
+        "Economics", "History", "Literature", "Engineering", "Medicine"
+    };
+    private static final String[] CITIES = {"Addis Ababa", "Adama", "Bahir Dar", "Hawassa", "Mekelle", "Gondar"};
+    private static final String[] GRADE_TYPES = {"Quiz", "Assignment", "Midterm", "Final"};
+    private static final String[] PAYMENT_METHODS = {"Cash", "Card", "Bank Transfer"};
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final long seed;
+    private int students = 1000;
+    private int semesters = 2;
+    private int teachingDays = 20;
+    private int subjectsPerSemester = 5;
+    private int firstYear = 2024;
+
+    // Constructor
+    public DatasetGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    // Getters and setters
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getStudents() {
+        return students;
+    }
+
+    public void setStudents(int students) {
+        this.students = students;
+    }
+
+    public int getSemesters() {
+        return semesters;
+    }
+
+    public void setSemesters(int semesters) {
+        this.semesters = semesters;
+    }
+
+    public int getTeachingDays() {
+        return teachingDays;
+    }
+
+    // Number of teaching days with attendance in each semester
+    public void setTeachingDays(int teachingDays) {
+        this.teachingDays = teachingDays;
+    }
+
+    public int getSubjectsPerSemester() {
+        return subjectsPerSemester;
+    }
+
+    public void setSubjectsPerSemester(int subjectsPerSemester) {
+        this.subjectsPerSemester = subjectsPerSemester;
+    }
+
+    public int getFirstYear() {
+        return firstYear;
+    }
+
+    // Calendar year of the first (Fall) semester
+    public void setFirstYear(int firstYear) {
+        this.firstYear = firstYear;
+    }
+
+    // Generate a new system
+    public StudentInformationSystem generate() {
+        StudentInformationSystem system = new StudentInformationSystem();
+        generate(system);
+        return system;
+    }
+
+    // Add the generated records to an existing system
+    public void generate(StudentInformationSystem system) {
+        Random random = new Random(seed);
+
+        // Teachers, about one for every 25 students and at least two per department
+        List<Teacher> teachers = new ArrayList<>();
+        int teacherCount = Math.max(DEPARTMENTS.length * 2, students / 25);
+        LocalDate firstDay = LocalDate.of(firstYear, 9, 1);
+        for (int i = 0; i < teacherCount; i++) {
+            String department = DEPARTMENTS[i % DEPARTMENTS.length];
+            Teacher teacher = new Teacher(i + 1, "Dr. " + randomName(random), randomAddress(random), randomPhone(random),
+                                          toDate(firstDay.minusYears(30 + random.nextInt(30)).plusDays(random.nextInt(365))),
+                                          100 + i + 1, department,
+                                          toDate(firstDay.minusYears(random.nextInt(20)).minusDays(random.nextInt(365))),
+                                          department);
+            system.addTeacher(teacher);
+            teachers.add(teacher);
+        }
+
+        // One course per department with a block of subjects for every semester
+        List<Course> courses = new ArrayList<>();
+        int subjectId = 1;
+        for (int i = 0; i < DEPARTMENTS.length; i++) {
+            Course course = new Course(i + 1, "Bachelor of " + DEPARTMENTS[i], DEPARTMENTS[i], 120);
+            for (int j = 0; j < semesters * subjectsPerSemester; j++) {
+                Teacher teacher = teachers.get((i + j * DEPARTMENTS.length) % teachers.size());
+                Subject subject = new Subject(subjectId, DEPARTMENTS[i] + " " + (101 + j), teacher,
+                                              2 + random.nextInt(3), "Level " + (1 + j / subjectsPerSemester) + " subject");
+                teacher.addSubject(subject);
+                system.addSubject(subject);
+                course.addSubject(subject);
+                subjectId++;
+            }
+            system.addCourse(course);
+            courses.add(course);
+        }
+
+        // Students, each enrolled in the course of their department
+        List<Student> enrolled = new ArrayList<>();
+        for (int i = 0; i < students; i++) {
+            int id = i + 1;
+            Course course = courses.get(random.nextInt(courses.size()));
+            Student student = new Student(id, randomName(random), randomAddress(random), randomPhone(random),
+                                          toDate(firstDay.minusYears(18 + random.nextInt(8)).plusDays(random.nextInt(365))),
+                                          String.format("%s%06d", rollPrefix(course.getDepartment()), id),
+                                          random.nextBoolean() ? "Male" : "Female", course.getDepartment());
+            student.addCourse(course);
+            system.registerStudent(student);
+            enrolled.add(student);
+        }
+
+        // Per-student ability and attendance rate keep grades and attendance realistic
+        double[] ability = new double[students];
+        double[] attendanceRate = new double[students];
+        for (int i = 0; i < students; i++) {
+            ability[i] = 55 + random.nextGaussian() * 15;
+            attendanceRate[i] = 0.75 + random.nextDouble() * 0.25;
+        }
+
+        for (int semester = 0; semester < semesters; semester++) {
+            String semesterName = semesterName(semester);
+            List<LocalDate> days = teachingDays(semesterStart(semester), teachingDays);
+            LocalDate gradeDay = days.isEmpty() ? semesterStart(semester) : days.get(days.size() - 1);
+
+            for (int i = 0; i < students; i++) {
+                Student student = enrolled.get(i);
+                List<Subject> subjects = student.getCourses().get(0).getSubjects();
+                List<Subject> current = subjects.subList(semester * subjectsPerSemester, (semester + 1) * subjectsPerSemester);
+
+                // Daily attendance
+                for (LocalDate day : days) {
+                    Date date = toDate(day);
+                    for (Subject subject : current) {
+                        boolean present = random.nextDouble() < attendanceRate[i];
+                        system.markAttendance(new Attendance(student, subject, date, present, present ? "" : "Absent"));
+                    }
+                }
+
+                // Quiz, Assignment, Midterm and Final for every subject
+                for (Subject subject : current) {
+                    for (int type = 0; type < GRADE_TYPES.length; type++) {
+                        double maxScore = type < 2 ? 10 : 100;
+                        double percentage = Math.max(0, Math.min(100, ability[i] + random.nextGaussian() * 12));
+                        double score = Math.round(percentage * maxScore) / 100.0;
+                        Date date = toDate(gradeDay.minusDays((GRADE_TYPES.length - 1 - type) * 14L));
+                        system.addGrade(new Grade(student, subject, GRADE_TYPES[type] + " 1", GRADE_TYPES[type],
+                                                  score, maxScore, date, "", semesterName));
+                    }
+                }
+
+                // Semester fees on one receipt
+                Date paymentDate = toDate(semesterStart(semester).plusDays(random.nextInt(30)));
+                String receiptNumber = system.nextReceiptNumber();
+                String status = random.nextDouble() < 0.85 ? "Paid" : "Pending";
+                FeeReceipt receipt = new FeeReceipt(receiptNumber, student, paymentDate,
+                                                    PAYMENT_METHODS[random.nextInt(PAYMENT_METHODS.length)], "Generator", status);
+
+                List<FeePayment> payments = new ArrayList<>();
+                payments.add(new FeePayment(student, 1500 + random.nextInt(16) * 100, paymentDate,
+                                            status.equals("Paid"), "Tuition Fee", receiptNumber));
+                payments.add(new FeePayment(student, 50, paymentDate, status.equals("Paid"), "Library Fee", receiptNumber));
+                if (random.nextInt(4) == 0) {
+                    payments.add(new FeePayment(student, 400 + random.nextInt(5) * 50, paymentDate,
+                                                status.equals("Paid"), "Hostel Fee", receiptNumber));
+                }
+
+                for (FeePayment payment : payments) {
+                    receipt.addPayment(payment);
+                    system.recordFeePayment(payment);
+                }
+                system.addFeeReceipt(receipt);
+            }
+        }
+    }
+
+    // Semester 0 is Fall of the first year, then Spring, Fall and so on
+    private String semesterName(int semester) {
+        int year = firstYear + (semester + 1) / 2;
+        return (semester % 2 == 0 ? "Fall " : "Spring ") + year;
+    }
+
+    private LocalDate semesterStart(int semester) {
+        int year = firstYear + (semester + 1) / 2;
+        return semester % 2 == 0 ? LocalDate.of(year, 9, 1) : LocalDate.of(year, 2, 1);
+    }
+
+    // The first count weekdays from the start date
+    private static List<LocalDate> teachingDays(LocalDate start, int count) {
+        List<LocalDate> days = new ArrayList<>();
+        LocalDate day = start;
+        while (days.size() < count) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+            day = day.plusDays(1);
+        }
+        return days;
+    }
+
+    // Dates are at midnight, the same as dates entered as dd/MM/yyyy in the application
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZONE).toInstant());
+    }
+
+    private static String rollPrefix(String department) {
+        StringBuilder prefix = new StringBuilder();
+        for (String word : department.split(" ")) {
+            prefix.append(Character.toUpperCase(word.charAt(0)));
+        }
+        if (prefix.length() == 1) {
+            prefix.append(Character.toUpperCase(department.charAt(1)));
+        }
+        return prefix.toString();
+    }
+
+    private static String randomName(Random random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String randomAddress(Random random) {
+        return (1 + random.nextInt(999)) + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)] + " Street, "
+               + CITIES[random.nextInt(CITIES.length)];
+    }
+
+    private static String randomPhone(Random random) {
+        return String.format("09%08d", random.nextInt(100000000));
+    }
+
+    public static void main(String[] args) {
+        DatasetGenerator generator = new DatasetGenerator(42);
+        boolean overwrite = false;
+
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                System.out.println("Invalid argument: " + arg);
+                System.out.println("Usage: java DatasetGenerator [students=N] [semesters=M] [days=D] [seed=S] [overwrite=true]");
+                return;
+            }
+
+            try {
+                switch (parts[0]) {
+                    case "students":
+                        generator.setStudents(Integer.parseInt(parts[1]));
+                        break;
+                    case "semesters":
+                        generator.setSemesters(Integer.parseInt(parts[1]));
+                        break;
+                    case "days":
+                        generator.setTeachingDays(Integer.parseInt(parts[1]));
+                        break;
+                    case "seed":
+                        generator = copyWithSeed(generator, Long.parseLong(parts[1]));
+                        break;
+                    case "overwrite":
+                        overwrite = Boolean.parseBoolean(parts[1]);
+                        break;
+                    default:
+                        System.out.println("Unknown setting: " + parts[0]);
+                        return;
+                }
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid number: " + arg);
+                return;
+            }
+        }
+
+        File dataDir = new File(System.getProperty("sis.dataDir", "."));
+        if (!dataDir.isDirectory() && !dataDir.mkdirs()) {
+            System.out.println("Could not create data directory " + dataDir);
+            return;
+        }
+
+        File dataFile = new File(dataDir, "student_system.ser");
+        if (dataFile.exists() && !overwrite) {
+            System.out.println(dataFile + " already exists. Use overwrite=true to replace it.");
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        StudentInformationSystem system = generator.generate();
+        System.out.println("Generated " + generator.getStudents() + " students, "
+                           + system.getAttendances().size() + " attendance records, "
+                           + system.getGrades().size() + " grades and "
+                           + system.getFeeReceipts().size() + " receipts in "
+                           + (System.currentTimeMillis() - start) + " ms.");
+        system.saveData();
+    }
+
+    private static DatasetGenerator copyWithSeed(DatasetGenerator generator, long seed) {
+        DatasetGenerator copy = new DatasetGenerator(seed);
+        copy.setStudents(generator.getStudents());
+        copy.setSemesters(generator.getSemesters());
+        copy.setTeachingDays(generator.getTeachingDays());
+        copy.setSubjectsPerSemester(generator.getSubjectsPerSemester());
+        copy.setFirstYear(generator.getFirstYear());
+        return copy;
+    }
+}
@@ -0,0 +1,70 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+/**
+ * Conversions between dates, timestamps and days, and the date formats used for display.
+ * Records keep their dates as a primitive timestamp, and work out the day it falls on.
+ * Days are counted from 1970-01-01 in the local time zone, so two records are on
+ * the same day exactly when their days are equal. The formatters are immutable and
+ * shared by every thread, unlike SimpleDateFormat.
+ */
+public class Dates {
+    public static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Day and timestamp of a record without a date
+    public static final int NO_DAY = Integer.MIN_VALUE;
+    public static final long NO_TIME = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+
+    private Dates() {
+    }
+
+    public static long toMillis(Date date) {
+        return date == null ? NO_TIME : date.getTime();
+    }
+
+    public static Date toDate(long millis) {
+        return millis == NO_TIME ? null : new Date(millis);
+    }
+
+    // Day of a timestamp in the local time zone
+    public static int toEpochDay(long millis) {
+        if (millis == NO_TIME) {
+            return NO_DAY;
+        }
+        long offset = ZONE.getRules().getOffset(Instant.ofEpochMilli(millis)).getTotalSeconds() * 1000L;
+        return (int) Math.floorDiv(millis + offset, MILLIS_PER_DAY);
+    }
+
+    public static int toEpochDay(Date date) {
+        return toEpochDay(toMillis(date));
+    }
+
+    // Midnight at the start of the day
+    public static Date startOfDay(int epochDay) {
+        if (epochDay == NO_DAY) {
+            return null;
+        }
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant());
+    }
+
+    // dd/MM/yyyy, or "Not set" for a record without a date
+    public static String formatDay(int epochDay) {
+        return epochDay == NO_DAY ? "Not set" : DAY_FORMAT.format(LocalDate.ofEpochDay(epochDay));
+    }
+
+    public static String formatDay(Date date) {
+        return formatDay(toEpochDay(date));
+    }
+
+    // dd/MM/yyyy HH:mm:ss
+    public static String formatTime(Date date) {
+        return date == null ? "Not set" : TIME_FORMAT.format(date.toInstant().atZone(ZONE));
+    }
+}
@@ -0,0 +1,170 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Students enrolled in each course, and through the courses a subject belongs to,
+ * the students taking each subject.
+ * Each student is indexed under the courses it had when last added or updated, and
+ * each course under the subjects it had when last added or updated. Courses and
+ * subjects are keyed by id, and every group keeps its students in registration order.
+ */
+public class EnrollmentIndex {
+    private final Map<Student, Entry> entries = new IdentityHashMap<>();
+    private final IntHashMap<TreeMap<Long, Student>> byCourse = new IntHashMap<>();
+    private final IntHashMap<int[]> subjectsByCourse = new IntHashMap<>();
+    private final IntHashMap<IntHashMap<Course>> coursesBySubject = new IntHashMap<>();
+    private long nextOrder;
+
+    // Add a newly registered student
+    public void add(Student student) {
+        insert(new Entry(student, nextOrder++));
+    }
+
+    // Re-index a student after its courses changed or it was replaced by a new object,
+    // keeping its place in the results
+    public void update(Student existing, Student student) {
+        Entry entry = entries.remove(existing);
+        if (existing != student) {
+            remove(student);
+        }
+        if (entry == null) {
+            add(student);
+            return;
+        }
+
+        unindex(entry);
+        insert(new Entry(student, entry.order));
+    }
+
+    // Re-index the courses of a student that is already indexed, others are ignored
+    public void refresh(Student student) {
+        if (entries.containsKey(student)) {
+            update(student, student);
+        }
+    }
+
+    public void remove(Student student) {
+        Entry entry = entries.remove(student);
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    // Index a new or changed course under its current subjects
+    public void addCourse(Course course) {
+        removeCourse(course.getCourseId());
+
+        int[] subjectIds = subjectIds(course);
+        subjectsByCourse.put(course.getCourseId(), subjectIds);
+        for (int subjectId : subjectIds) {
+            IntHashMap<Course> courses = coursesBySubject.get(subjectId);
+            if (courses == null) {
+                courses = new IntHashMap<>();
+                coursesBySubject.put(subjectId, courses);
+            }
+            courses.put(course.getCourseId(), course);
+        }
+    }
+
+    // Stop deriving the course's students for its subjects, its enrollments are kept
+    public void removeCourse(int courseId) {
+        int[] subjectIds = subjectsByCourse.remove(courseId);
+        if (subjectIds == null) {
+            return;
+        }
+
+        for (int subjectId : subjectIds) {
+            IntHashMap<Course> courses = coursesBySubject.get(subjectId);
+            if (courses != null) {
+                courses.remove(courseId);
+                if (courses.isEmpty()) {
+                    coursesBySubject.remove(subjectId);
+                }
+            }
+        }
+    }
+
+    // Students enrolled in the course, in registration order
+    public List<Student> getByCourse(int courseId) {
+        TreeMap<Long, Student> group = byCourse.get(courseId);
+        return group == null ? new ArrayList<>() : new ArrayList<>(group.values());
+    }
+
+    // Students enrolled in any course the subject belongs to, each once, in registration order
+    public List<Student> getBySubject(int subjectId) {
+        IntHashMap<Course> courses = coursesBySubject.get(subjectId);
+        if (courses == null) {
+            return new ArrayList<>();
+        }
+
+        TreeMap<Long, Student> merged = new TreeMap<>();
+        for (int courseId : courses.keys()) {
+            TreeMap<Long, Student> group = byCourse.get(courseId);
+            if (group != null) {
+                merged.putAll(group);
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.student, entry);
+        for (int courseId : entry.courseIds) {
+            TreeMap<Long, Student> group = byCourse.get(courseId);
+            if (group == null) {
+                group = new TreeMap<>();
+                byCourse.put(courseId, group);
+            }
+            group.put(entry.order, entry.student);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        for (int courseId : entry.courseIds) {
+            TreeMap<Long, Student> group = byCourse.get(courseId);
+            if (group != null) {
+                group.remove(entry.order);
+                if (group.isEmpty()) {
+                    byCourse.remove(courseId);
+                }
+            }
+        }
+    }
+
+    private static int[] subjectIds(Course course) {
+        IntHashMap<Boolean> seen = new IntHashMap<>();
+        IntList subjectIds = new IntList();
+        for (Subject subject : course.getSubjects()) {
+            if (subject != null && seen.putIfAbsent(subject.getSubjectId(), Boolean.TRUE) == null) {
+                subjectIds.add(subject.getSubjectId());
+            }
+        }
+        return subjectIds.toArray();
+    }
+
+    /**
+     * A student with the ids of the courses it is indexed under, each once.
+     */
+    private static final class Entry {
+        private final Student student;
+        private final int[] courseIds;
+        private final long order;
+
+        Entry(Student student, long order) {
+            this.student = student;
+            this.order = order;
+
+            IntHashMap<Boolean> seen = new IntHashMap<>();
+            IntList ids = new IntList();
+            for (Course course : student.getCourses()) {
+                if (course != null && seen.putIfAbsent(course.getCourseId(), Boolean.TRUE) == null) {
+                    ids.add(course.getCourseId());
+                }
+            }
+            this.courseIds = ids.toArray();
+        }
+    }
+}
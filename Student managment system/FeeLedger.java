@@ -0,0 +1,97 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fee payments of one student with running totals of the amounts paid and
+ * outstanding, overall and by payment type.
+ * The totals are adjusted when a payment is recorded or its status changes, so
+ * balance screens read them instead of adding up the payments. Payment types are
+ * matched ignoring case, by their vocabulary codes.
+ */
+public class FeeLedger {
+    private final List<FeePayment> payments = new ArrayList<>();
+    private final Totals paid = new Totals();
+    private final Totals outstanding = new Totals();
+    private final IntHashMap<Totals> paidByType = new IntHashMap<>();
+    private final IntHashMap<Totals> outstandingByType = new IntHashMap<>();
+
+    // Add a newly recorded payment
+    public void add(FeePayment payment) {
+        payments.add(payment);
+        overall(payment.isPaid()).add(payment.getAmount());
+        byType(payment.isPaid(), payment.getPaymentTypeCode()).add(payment.getAmount());
+    }
+
+    // Move a payment between paid and outstanding after its status was changed from wasPaid
+    public void statusChanged(FeePayment payment, boolean wasPaid) {
+        if (payment.isPaid() == wasPaid) {
+            return;
+        }
+
+        overall(wasPaid).remove(payment.getAmount());
+        byType(wasPaid, payment.getPaymentTypeCode()).remove(payment.getAmount());
+        overall(payment.isPaid()).add(payment.getAmount());
+        byType(payment.isPaid(), payment.getPaymentTypeCode()).add(payment.getAmount());
+    }
+
+    // The payments in the order they were recorded
+    public List<FeePayment> getPayments() {
+        return new ArrayList<>(payments);
+    }
+
+    public boolean isEmpty() {
+        return payments.isEmpty();
+    }
+
+    public double getTotalPaid() {
+        return paid.amount;
+    }
+
+    public double getTotalOutstanding() {
+        return outstanding.amount;
+    }
+
+    public double getPaid(String paymentType) {
+        Totals totals = paidByType.get(Vocabulary.PAYMENT_TYPES.lookup(paymentType));
+        return totals == null ? 0.0 : totals.amount;
+    }
+
+    public double getOutstanding(String paymentType) {
+        Totals totals = outstandingByType.get(Vocabulary.PAYMENT_TYPES.lookup(paymentType));
+        return totals == null ? 0.0 : totals.amount;
+    }
+
+    private Totals overall(boolean isPaid) {
+        return isPaid ? paid : outstanding;
+    }
+
+    private Totals byType(boolean isPaid, int code) {
+        IntHashMap<Totals> byType = isPaid ? paidByType : outstandingByType;
+        Totals totals = byType.get(code);
+        if (totals == null) {
+            totals = new Totals();
+            byType.put(code, totals);
+        }
+        return totals;
+    }
+
+    /**
+     * Sum and number of the payments in one total.
+     * A total without payments is exactly zero, so rounding left over from
+     * adding and removing amounts never shows up as -0.00.
+     */
+    private static final class Totals {
+        private double amount;
+        private int count;
+
+        void add(double value) {
+            amount += value;
+            count++;
+        }
+
+        void remove(double value) {
+            count--;
+            amount = count == 0 ? 0.0 : amount - value;
+        }
+    }
+}
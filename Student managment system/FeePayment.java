@@ -1,5 +1,7 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -10,18 +12,28 @@ public class FeePayment implements Serializable {
     
     private Student student;
     private double amount;
-    private Date date;
+    private long time; // See Dates, the day is worked out from it
     private boolean isPaid;
-    private String paymentType;  // e.g. Tuition, Library, Hostel, etc.
+    private int paymentType;  // Id in Vocabulary.PAYMENT_TYPES, e.g. Tuition, Library, Hostel, etc.
     private String receiptNumber;
     
+    // Fields in files saved by older versions, which kept the payment type as a String
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("student", Student.class),
+        new ObjectStreamField("amount", double.class),
+        new ObjectStreamField("date", Date.class),
+        new ObjectStreamField("isPaid", boolean.class),
+        new ObjectStreamField("paymentType", String.class),
+        new ObjectStreamField("receiptNumber", String.class)
+    };
+    
     // Constructor
     public FeePayment(Student student, double amount, Date date, boolean isPaid, String paymentType, String receiptNumber) {
         this.student = student;
         this.amount = amount;
-        this.date = date;
+        setDate(date);
         this.isPaid = isPaid;
-        this.paymentType = paymentType;
+        this.paymentType = Vocabulary.PAYMENT_TYPES.id(paymentType);
         this.receiptNumber = receiptNumber;
     }
     
@@ -29,12 +41,27 @@ public class FeePayment implements Serializable {
     public FeePayment() {
         this.student = null;
         this.amount = 0.0;
-        this.date = new Date();
+        setDate(new Date());
         this.isPaid = false;
-        this.paymentType = "";
+        this.paymentType = Vocabulary.PAYMENT_TYPES.id("");
         this.receiptNumber = "";
     }
     
+    // Copy of the fields, see snapshot()
+    private FeePayment(FeePayment source) {
+        this.student = source.student;
+        this.amount = source.amount;
+        this.time = source.time;
+        this.isPaid = source.isPaid;
+        this.paymentType = source.paymentType;
+        this.receiptNumber = source.receiptNumber;
+    }
+    
+    // The payment as it is now, for writing a snapshot while its paid status can still change
+    FeePayment snapshot() {
+        return new FeePayment(this);
+    }
+    
     // Getters and setters
     public Student getStudent() {
         return student;
@@ -53,11 +80,16 @@ public class FeePayment implements Serializable {
     }
     
     public Date getDate() {
-        return date;
+        return Dates.toDate(time);
     }
     
     public void setDate(Date date) {
-        this.date = date;
+        this.time = Dates.toMillis(date);
+    }
+    
+    // Day of the date, Dates.NO_DAY when not set
+    public int getEpochDay() {
+        return Dates.toEpochDay(time);
     }
     
     public boolean isPaid() {
@@ -69,11 +101,16 @@ public class FeePayment implements Serializable {
     }
     
     public String getPaymentType() {
-        return paymentType;
+        return Vocabulary.PAYMENT_TYPES.value(paymentType);
     }
     
     public void setPaymentType(String paymentType) {
-        this.paymentType = paymentType;
+        this.paymentType = Vocabulary.PAYMENT_TYPES.id(paymentType);
+    }
+    
+    // Same for payment types that are equal ignoring case, see Vocabulary.code()
+    public int getPaymentTypeCode() {
+        return Vocabulary.PAYMENT_TYPES.codeOf(paymentType);
     }
     
     public String getReceiptNumber() {
@@ -86,9 +123,7 @@ public class FeePayment implements Serializable {
     
     // Get formatted date
     public String getFormattedDate() {
-        if (date == null) return "Not set";
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-        return sdf.format(date);
+        return Dates.formatDay(getEpochDay());
     }
     
     @Override
@@ -97,7 +132,7 @@ public class FeePayment implements Serializable {
                "\nAmount: $" + amount +
                "\nDate: " + getFormattedDate() +
                "\nStatus: " + (isPaid ? "Paid" : "Unpaid") +
-               "\nPayment Type: " + paymentType +
+               "\nPayment Type: " + getPaymentType() +
                "\nReceipt Number: " + (isPaid ? receiptNumber : "N/A");
     }
     
@@ -114,11 +149,22 @@ public class FeePayment implements Serializable {
         receipt.append("Student Name: ").append(student.getName()).append("\n");
         receipt.append("Student ID: ").append(student.getId()).append("\n");
         receipt.append("Roll Number: ").append(student.getRollNumber()).append("\n");
-        receipt.append("Payment Type: ").append(paymentType).append("\n");
+        receipt.append("Payment Type: ").append(getPaymentType()).append("\n");
         receipt.append("Amount Paid: $").append(amount).append("\n");
         receipt.append("Status: Paid").append("\n");
         receipt.append("-----------------------------------\n");
         
         return receipt.toString();
     }
+    
+    // Older versions saved the date as a Date object, and the payment type as a String
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        student = (Student) fields.get("student", null);
+        amount = fields.get("amount", 0.0);
+        setDate((Date) fields.get("date", null));
+        isPaid = fields.get("isPaid", false);
+        paymentType = Vocabulary.PAYMENT_TYPES.id((String) fields.get("paymentType", null));
+        receiptNumber = (String) fields.get("receiptNumber", null);
+    }
 }
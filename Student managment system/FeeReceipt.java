@@ -1,11 +1,12 @@
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.List;
 import java.util.ArrayList;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 
 /**
  * FeeReceipt class to generate detailed receipts for fee payments
@@ -17,27 +18,58 @@ public class FeeReceipt implements Serializable {
     private String receiptNumber;
     private Student student;
     private List<FeePayment> payments;
-    private Date issueDate;
+    private long issueTime; // See Dates, the day is worked out from it
     private double totalAmount;
     private String paymentMethod; // Cash, Check, Bank Transfer, etc.
     private String issuedBy; // User who issued the receipt
-    private String status; // Paid, Partial, Pending
+    private ReceiptStatus status; // Null for a status the system doesn't know
     private String remarks;
     
+    // Fields in files saved by older versions, which kept the status as a String
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("receiptNumber", String.class),
+        new ObjectStreamField("student", Student.class),
+        new ObjectStreamField("payments", List.class),
+        new ObjectStreamField("issueDate", Date.class),
+        new ObjectStreamField("totalAmount", double.class),
+        new ObjectStreamField("paymentMethod", String.class),
+        new ObjectStreamField("issuedBy", String.class),
+        new ObjectStreamField("status", String.class),
+        new ObjectStreamField("remarks", String.class)
+    };
+    
     // Constructor
     public FeeReceipt(String receiptNumber, Student student, Date issueDate, 
                      String paymentMethod, String issuedBy, String status) {
         this.receiptNumber = receiptNumber;
         this.student = student;
         this.payments = new ArrayList<>();
-        this.issueDate = issueDate;
+        setIssueDate(issueDate);
         this.totalAmount = 0.0;
         this.paymentMethod = paymentMethod;
         this.issuedBy = issuedBy;
-        this.status = status;
+        this.status = ReceiptStatus.of(status);
         this.remarks = "";
     }
     
+    // Copy of the fields and the payment list, see snapshot()
+    private FeeReceipt(FeeReceipt source) {
+        this.receiptNumber = source.receiptNumber;
+        this.student = source.student;
+        this.payments = new ArrayList<>(source.payments);
+        this.issueTime = source.issueTime;
+        this.totalAmount = source.totalAmount;
+        this.paymentMethod = source.paymentMethod;
+        this.issuedBy = source.issuedBy;
+        this.status = source.status;
+        this.remarks = source.remarks;
+    }
+    
+    // The receipt as it is now, for writing a snapshot while its status can still change
+    FeeReceipt snapshot() {
+        return new FeeReceipt(this);
+    }
+    
     // Add a payment to this receipt
     public void addPayment(FeePayment payment) {
         payments.add(payment);
@@ -50,7 +82,7 @@ public class FeeReceipt implements Serializable {
     // Update receipt status based on payments
     private void updateStatus() {
         if (payments.isEmpty()) {
-            status = "Pending";
+            setStatus(ReceiptStatus.PENDING);
         } else {
             boolean allPaid = true;
             for (FeePayment payment : payments) {
@@ -61,16 +93,15 @@ public class FeeReceipt implements Serializable {
             }
             
             if (allPaid) {
-                status = "Paid";
+                setStatus(ReceiptStatus.PAID);
             } else {
-                status = "Partial";
+                setStatus(ReceiptStatus.PARTIAL);
             }
         }
     }
     
     // Generate a formatted receipt text
     public String generateReceiptText() {
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         StringBuilder receiptText = new StringBuilder();
         
         receiptText.append("======================================\n");
@@ -78,7 +109,7 @@ public class FeeReceipt implements Serializable {
         receiptText.append("======================================\n\n");
         
         receiptText.append("Receipt Number: ").append(receiptNumber).append("\n");
-        receiptText.append("Date: ").append(dateFormat.format(issueDate)).append("\n\n");
+        receiptText.append("Date: ").append(Dates.formatDay(getIssueDay())).append("\n\n");
         
         receiptText.append("Student Information:\n");
         receiptText.append("Name: ").append(student.getName()).append("\n");
@@ -95,14 +126,14 @@ public class FeeReceipt implements Serializable {
             receiptText.append(payment.getPaymentType()).append(": $");
             receiptText.append(String.format("%.2f", payment.getAmount())).append(" - ");
             receiptText.append(payment.isPaid() ? "PAID" : "PENDING");
-            receiptText.append(" (").append(dateFormat.format(payment.getDate())).append(")");
+            receiptText.append(" (").append(Dates.formatDay(payment.getEpochDay())).append(")");
             receiptText.append("\n");
             i++;
         }
         
         receiptText.append("\nTotal Amount: $").append(String.format("%.2f", totalAmount)).append("\n");
         receiptText.append("Payment Method: ").append(paymentMethod).append("\n");
-        receiptText.append("Status: ").append(status).append("\n\n");
+        receiptText.append("Status: ").append(getStatus()).append("\n\n");
         
         if (!remarks.isEmpty()) {
             receiptText.append("Remarks: ").append(remarks).append("\n\n");
@@ -151,11 +182,16 @@ public class FeeReceipt implements Serializable {
     }
     
     public Date getIssueDate() {
-        return issueDate;
+        return Dates.toDate(issueTime);
     }
     
     public void setIssueDate(Date issueDate) {
-        this.issueDate = issueDate;
+        this.issueTime = Dates.toMillis(issueDate);
+    }
+    
+    // Day of the issue date, Dates.NO_DAY when not set
+    public int getIssueDay() {
+        return Dates.toEpochDay(issueTime);
     }
     
     public double getTotalAmount() {
@@ -179,13 +215,23 @@ public class FeeReceipt implements Serializable {
     }
     
     public String getStatus() {
-        return status;
+        return status != null ? status.getDisplayName() : null;
     }
     
+    // A status the system doesn't know is stored as null, see getStatusType()
     public void setStatus(String status) {
+        this.status = ReceiptStatus.of(status);
+    }
+    
+    public void setStatus(ReceiptStatus status) {
         this.status = status;
     }
     
+    // The status as a ReceiptStatus, null for a status the system doesn't know
+    public ReceiptStatus getStatusType() {
+        return status;
+    }
+    
     public String getRemarks() {
         return remarks;
     }
@@ -211,4 +257,19 @@ public class FeeReceipt implements Serializable {
             return false;
         }
     }
+    
+    // Older versions saved the issue date as a Date object, and the status as a String
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        receiptNumber = (String) fields.get("receiptNumber", null);
+        student = (Student) fields.get("student", null);
+        payments = (List<FeePayment>) fields.get("payments", null);
+        setIssueDate((Date) fields.get("issueDate", null));
+        totalAmount = fields.get("totalAmount", 0.0);
+        paymentMethod = (String) fields.get("paymentMethod", null);
+        issuedBy = (String) fields.get("issuedBy", null);
+        status = ReceiptStatus.of((String) fields.get("status", null));
+        remarks = (String) fields.get("remarks", null);
+    }
 }
@@ -0,0 +1,118 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Fee receipts sorted by issue day, and partitioned by status, for the daily,
+ * monthly and yearly reconciliations. A date range query seeks to its first day
+ * and only walks the receipts it returns. Receipts with a status the system
+ * doesn't know are kept under the null status. Each receipt
+ * is indexed under the day and status it had when last added or refreshed, and
+ * receipts issued on the same day or with the same status are kept in the order
+ * they were added.
+ */
+public class FeeReceiptIndex {
+    private final Map<FeeReceipt, Entry> entries = new IdentityHashMap<>();
+    private final TreeSet<Entry> byDay = new TreeSet<>();
+    private final Map<ReceiptStatus, TreeMap<Long, FeeReceipt>> byStatus = new HashMap<>();
+    private long nextOrder;
+
+    // Add a newly issued receipt
+    public void add(FeeReceipt receipt) {
+        insert(new Entry(receipt, nextOrder++));
+    }
+
+    // Re-index a receipt after its status or issue date changed, keeping its place in the results
+    public void refresh(FeeReceipt receipt) {
+        Entry entry = entries.get(receipt);
+        if (entry == null || (entry.day == receipt.getIssueDay() && entry.status == receipt.getStatusType())) {
+            return;
+        }
+
+        unindex(entry);
+        insert(new Entry(receipt, entry.order));
+    }
+
+    // Receipts issued from startDay through endDay, by issue day
+    public List<FeeReceipt> between(int startDay, int endDay) {
+        List<FeeReceipt> result = new ArrayList<>();
+        if (startDay > endDay) {
+            return result;
+        }
+
+        for (Entry entry : byDay.subSet(Entry.bound(startDay, Long.MIN_VALUE), true,
+                                        Entry.bound(endDay, Long.MAX_VALUE), true)) {
+            result.add(entry.receipt);
+        }
+        return result;
+    }
+
+    // Receipts with the status, or with a status the system doesn't know for null, in the order they were added
+    public List<FeeReceipt> withStatus(ReceiptStatus status) {
+        TreeMap<Long, FeeReceipt> group = byStatus.get(status);
+        return group == null ? new ArrayList<>() : new ArrayList<>(group.values());
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.receipt, entry);
+        byDay.add(entry);
+
+        TreeMap<Long, FeeReceipt> group = byStatus.get(entry.status);
+        if (group == null) {
+            group = new TreeMap<>();
+            byStatus.put(entry.status, group);
+        }
+        group.put(entry.order, entry.receipt);
+    }
+
+    private void unindex(Entry entry) {
+        byDay.remove(entry);
+
+        TreeMap<Long, FeeReceipt> group = byStatus.get(entry.status);
+        if (group != null) {
+            group.remove(entry.order);
+            if (group.isEmpty()) {
+                byStatus.remove(entry.status);
+            }
+        }
+    }
+
+    /**
+     * A receipt with the issue day and status it is indexed under.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final FeeReceipt receipt;
+        private final int day;
+        private final ReceiptStatus status;
+        private final long order;
+
+        Entry(FeeReceipt receipt, long order) {
+            this.receipt = receipt;
+            this.day = receipt.getIssueDay();
+            this.status = receipt.getStatusType();
+            this.order = order;
+        }
+
+        private Entry(int day, long order) {
+            this.receipt = null;
+            this.day = day;
+            this.status = null;
+            this.order = order;
+        }
+
+        // Search key placed before or after every receipt issued on the given day
+        static Entry bound(int day, long order) {
+            return new Entry(day, order);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byIssueDay = Integer.compare(day, other.day);
+            return byIssueDay != 0 ? byIssueDay : Long.compare(order, other.order);
+        }
+    }
+}
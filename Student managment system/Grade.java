@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.Date;
 
@@ -11,12 +14,25 @@ public class Grade implements Serializable {
     private Student student;
     private Subject subject;
     private String assignmentName;
-    private String gradeType; // Exam, Quiz, Assignment, Project, etc.
+    private int gradeType; // Id in Vocabulary.GRADE_TYPES: Exam, Quiz, Assignment, Project, etc.
     private double score;
     private double maxScore;
-    private Date date;
+    private long time; // See Dates, the day is worked out from it
     private String remarks;
-    private String semester; // Spring 2025, Fall 2024, etc.
+    private int semester; // Id in Vocabulary.SEMESTERS: Spring 2025, Fall 2024, etc.
+    
+    // Fields in files saved by older versions, which kept the grade type and semester as Strings
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("student", Student.class),
+        new ObjectStreamField("subject", Subject.class),
+        new ObjectStreamField("assignmentName", String.class),
+        new ObjectStreamField("gradeType", String.class),
+        new ObjectStreamField("score", double.class),
+        new ObjectStreamField("maxScore", double.class),
+        new ObjectStreamField("date", Date.class),
+        new ObjectStreamField("remarks", String.class),
+        new ObjectStreamField("semester", String.class)
+    };
     
     // Constructor
     public Grade(Student student, Subject subject, String assignmentName, String gradeType, 
@@ -24,12 +40,12 @@ public class Grade implements Serializable {
         this.student = student;
         this.subject = subject;
         this.assignmentName = assignmentName;
-        this.gradeType = gradeType;
+        this.gradeType = Vocabulary.GRADE_TYPES.id(gradeType);
         this.score = score;
         this.maxScore = maxScore;
-        this.date = date;
+        setDate(date);
         this.remarks = remarks;
-        this.semester = semester;
+        this.semester = Vocabulary.SEMESTERS.id(semester);
     }
     
     // Default constructor
@@ -37,12 +53,12 @@ public class Grade implements Serializable {
         this.student = null;
         this.subject = null;
         this.assignmentName = "";
-        this.gradeType = "";
+        this.gradeType = Vocabulary.GRADE_TYPES.id("");
         this.score = 0.0;
         this.maxScore = 100.0;
-        this.date = new Date();
+        setDate(new Date());
         this.remarks = "";
-        this.semester = "";
+        this.semester = Vocabulary.SEMESTERS.id("");
     }
     
     // Getters and setters
@@ -71,11 +87,11 @@ public class Grade implements Serializable {
     }
     
     public String getGradeType() {
-        return gradeType;
+        return Vocabulary.GRADE_TYPES.value(gradeType);
     }
     
     public void setGradeType(String gradeType) {
-        this.gradeType = gradeType;
+        this.gradeType = Vocabulary.GRADE_TYPES.id(gradeType);
     }
     
     public double getScore() {
@@ -95,11 +111,16 @@ public class Grade implements Serializable {
     }
     
     public Date getDate() {
-        return date;
+        return Dates.toDate(time);
     }
     
     public void setDate(Date date) {
-        this.date = date;
+        this.time = Dates.toMillis(date);
+    }
+    
+    // Day of the date, Dates.NO_DAY when not set
+    public int getEpochDay() {
+        return Dates.toEpochDay(time);
     }
     
     public String getRemarks() {
@@ -111,11 +132,11 @@ public class Grade implements Serializable {
     }
     
     public String getSemester() {
-        return semester;
+        return Vocabulary.SEMESTERS.value(semester);
     }
     
     public void setSemester(String semester) {
-        this.semester = semester;
+        this.semester = Vocabulary.SEMESTERS.id(semester);
     }
     
     // Calculate percentage score
@@ -152,11 +173,25 @@ public class Grade implements Serializable {
         return "Student: " + (student != null ? student.getName() : "Not assigned") +
                "\nSubject: " + (subject != null ? subject.getName() : "Not assigned") +
                "\nAssignment: " + assignmentName +
-               "\nType: " + gradeType +
+               "\nType: " + getGradeType() +
                "\nScore: " + score + "/" + maxScore + " (" + String.format("%.2f", getPercentageScore()) + "%)" +
                "\nLetter Grade: " + getLetterGrade() +
-               "\nDate: " + (date != null ? new java.text.SimpleDateFormat("dd/MM/yyyy").format(date) : "Not set") +
-               "\nSemester: " + semester +
+               "\nDate: " + Dates.formatDay(getEpochDay()) +
+               "\nSemester: " + getSemester() +
                "\nRemarks: " + remarks;
     }
+    
+    // Older versions saved the date as a Date object, and the grade type and semester as Strings
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        student = (Student) fields.get("student", null);
+        subject = (Subject) fields.get("subject", null);
+        assignmentName = (String) fields.get("assignmentName", null);
+        gradeType = Vocabulary.GRADE_TYPES.id((String) fields.get("gradeType", null));
+        score = fields.get("score", 0.0);
+        maxScore = fields.get("maxScore", 0.0);
+        setDate((Date) fields.get("date", null));
+        remarks = (String) fields.get("remarks", null);
+        semester = Vocabulary.SEMESTERS.id((String) fields.get("semester", null));
+    }
 }
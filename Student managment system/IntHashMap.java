@@ -0,0 +1,181 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hash map from int keys to objects, for the indexes by id.
+ * Keys and values are kept in two parallel arrays with open addressing (linear
+ * probing), so lookups don't box the key and entries need no node objects.
+ * Null values are not allowed, an empty slot is one without a value.
+ */
+public class IntHashMap<V> {
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+    private int shift; // 32 - log2(capacity), see slot()
+
+    // Constructor
+    public IntHashMap() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    // Map that holds expectedSize entries without growing
+    public IntHashMap(int expectedSize) {
+        int capacity = MINIMUM_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity *= 2;
+        }
+        allocate(capacity);
+    }
+
+    public V get(int key) {
+        for (int slot = slot(key); ; slot = next(slot)) {
+            Object value = values[slot];
+            if (value == null || keys[slot] == key) {
+                return cast(value);
+            }
+        }
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    // Returns the previous value of the key, or null
+    public V put(int key, V value) {
+        if (value == null) {
+            throw new NullPointerException("IntHashMap values can't be null");
+        }
+
+        int slot = slot(key);
+        for (; values[slot] != null; slot = next(slot)) {
+            if (keys[slot] == key) {
+                V previous = cast(values[slot]);
+                values[slot] = value;
+                return previous;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size > values.length * 3 / 4) {
+            resize(values.length * 2);
+        }
+        return null;
+    }
+
+    // Returns the current value of the key, only putting the given one if the key has none
+    public V putIfAbsent(int key, V value) {
+        V current = get(key);
+        if (current != null) {
+            return current;
+        }
+        put(key, value);
+        return null;
+    }
+
+    // Returns the removed value, or null if the key had none
+    public V remove(int key) {
+        int slot = slot(key);
+        for (; values[slot] != null; slot = next(slot)) {
+            if (keys[slot] == key) {
+                V removed = cast(values[slot]);
+                closeGap(slot);
+                size--;
+                return removed;
+            }
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    // The keys, in no particular order
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int slot = 0; slot < values.length; slot++) {
+            if (values[slot] != null) {
+                result[count++] = keys[slot];
+            }
+        }
+        return result;
+    }
+
+    // The values, in the same order as keys()
+    public List<V> values() {
+        List<V> result = new ArrayList<>(size);
+        for (Object value : values) {
+            if (value != null) {
+                result.add(cast(value));
+            }
+        }
+        return result;
+    }
+
+    // Entries after a removed one that were pushed past it move back, so no lookup stops early at the gap
+    private void closeGap(int gap) {
+        values[gap] = null;
+        for (int slot = next(gap); values[slot] != null; slot = next(slot)) {
+            int home = slot(keys[slot]);
+            // Move the entry unless its home slot lies cyclically between the gap and its slot
+            boolean reachable = gap <= slot ? (gap < home && home <= slot) : (gap < home || home <= slot);
+            if (!reachable) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                values[slot] = null;
+                gap = slot;
+            }
+        }
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slot(oldKeys[i]);
+                while (values[slot] != null) {
+                    slot = next(slot);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new Object[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    // Ids are mostly consecutive, multiplying spreads them over the whole table
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (values.length - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> V cast(Object value) {
+        return (V) value;
+    }
+}
@@ -0,0 +1,110 @@
+import java.util.Arrays;
+
+/**
+ * Hash map from int keys to int values, for small numbers handed out per id.
+ * Works like IntHashMap but keeps the values in an int array, so neither keys
+ * nor values are boxed. Entries can't be removed, only cleared all at once.
+ */
+public class IntIntHashMap {
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int size;
+    private int shift; // 32 - log2(capacity), see slot()
+
+    // Constructor
+    public IntIntHashMap() {
+        allocate(MINIMUM_CAPACITY);
+    }
+
+    // Returns the value of the key, or missing if the key has none
+    public int get(int key, int missing) {
+        for (int slot = slot(key); used[slot]; slot = next(slot)) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return missing;
+    }
+
+    public boolean containsKey(int key) {
+        for (int slot = slot(key); used[slot]; slot = next(slot)) {
+            if (keys[slot] == key) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void put(int key, int value) {
+        int slot = slot(key);
+        for (; used[slot]; slot = next(slot)) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        size++;
+        if (size > used.length * 3 / 4) {
+            resize(used.length * 2);
+        }
+    }
+
+    // Returns false and leaves the value alone if the key already has one
+    public boolean putIfAbsent(int key, int value) {
+        if (containsKey(key)) {
+            return false;
+        }
+        put(key, value);
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldUsed.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                while (used[slot]) {
+                    slot = next(slot);
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        shift = Integer.numberOfLeadingZeros(capacity) + 1;
+    }
+
+    // Ids are mostly consecutive, multiplying spreads them over the whole table
+    private int slot(int key) {
+        return (key * 0x9E3779B9) >>> shift;
+    }
+
+    private int next(int slot) {
+        return (slot + 1) & (used.length - 1);
+    }
+}
@@ -0,0 +1,45 @@
+import java.util.Arrays;
+
+/**
+ * Growable list of ints, for lists of ids and row numbers that would otherwise
+ * hold an Integer object per element.
+ */
+public class IntList {
+    private int[] elements;
+    private int size;
+
+    // Constructor
+    public IntList() {
+        this(4);
+    }
+
+    public IntList(int capacity) {
+        this.elements = new int[Math.max(capacity, 1)];
+    }
+
+    public void add(int element) {
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements, size * 2);
+        }
+        elements[size++] = element;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(elements, size);
+    }
+}
@@ -0,0 +1,51 @@
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that periodically folds the journal into a fresh snapshot.
+ * This keeps both the journal size on disk and the replay time at startup bounded.
+ */
+public class JournalCompactor {
+    private final StudentInformationSystem system;
+    private final long minJournalBytes;
+    private final ScheduledExecutorService executor;
+
+    // Constructor
+    public JournalCompactor(StudentInformationSystem system, long minJournalBytes) {
+        this.system = system;
+        this.minJournalBytes = minJournalBytes;
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Start checking the journal every intervalSeconds
+    public void start(long intervalSeconds) {
+        executor.scheduleWithFixedDelay(this::compactIfNeeded, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Stop the background task, waiting for a compaction in progress to finish
+    public void stop() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Compact only once the journal has grown past the threshold
+    private void compactIfNeeded() {
+        try {
+            if (system.getJournalSize() >= minJournalBytes) {
+                system.checkpoint();
+            }
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the next run will try again
+            System.err.println("Journal compaction failed: " + e.getMessage());
+        }
+    }
+}
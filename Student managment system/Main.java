@@ -99,6 +99,7 @@ public class Main {
             }
         }
         
+        system.shutdown();
         scanner.close();
     }
     
@@ -227,6 +228,10 @@ public class Main {
         
         System.out.print("Enter roll number: ");
         String rollNumber = scanner.nextLine();
+        if (system.findStudentByRollNumber(rollNumber) != null) {
+            System.out.println("A student with roll number " + rollNumber + " already exists.");
+            return;
+        }
         
         System.out.print("Enter gender (Male/Female): ");
         String gender = scanner.nextLine();
@@ -237,7 +242,10 @@ public class Main {
         // Create and register the new student
         Student student = new Student(nextId, name, address, contactNumber, dateOfBirth,
                                     rollNumber, gender, department);
-        system.registerStudent(student);
+        if (!system.registerStudent(student)) {
+            System.out.println("A student with roll number " + rollNumber + " already exists.");
+            return;
+        }
         
         System.out.println("Student added successfully!");
     }
@@ -353,34 +361,46 @@ public class Main {
             switch (choice) {
                 case 1:
                     System.out.print("Enter new name: ");
-                    student.setName(scanner.nextLine());
+                    String name = scanner.nextLine();
+                    system.edit(() -> student.setName(name));
                     break;
                 case 2:
                     System.out.print("Enter new address: ");
-                    student.setAddress(scanner.nextLine());
+                    String address = scanner.nextLine();
+                    system.edit(() -> student.setAddress(address));
                     break;
                 case 3:
                     System.out.print("Enter new contact number: ");
-                    student.setContactNumber(scanner.nextLine());
+                    String contactNumber = scanner.nextLine();
+                    system.edit(() -> student.setContactNumber(contactNumber));
                     break;
                 case 4:
-                    student.setDateOfBirth(getDateInput("Enter new date of birth"));
+                    Date dateOfBirth = getDateInput("Enter new date of birth");
+                    system.edit(() -> student.setDateOfBirth(dateOfBirth));
                     break;
                 case 5:
                     System.out.print("Enter new roll number: ");
-                    student.setRollNumber(scanner.nextLine());
+                    String rollNumber = scanner.nextLine();
+                    Student holder = system.findStudentByRollNumber(rollNumber);
+                    if (holder != null && holder != student) {
+                        System.out.println("Roll number " + rollNumber + " is already used by " + holder.getName() + ".");
+                        break;
+                    }
+                    system.edit(() -> student.setRollNumber(rollNumber));
                     break;
                 case 6:
                     System.out.print("Enter new gender (Male/Female): ");
-                    student.setGender(scanner.nextLine());
+                    String gender = scanner.nextLine();
+                    system.edit(() -> student.setGender(gender));
                     break;
                 case 7:
                     System.out.print("Enter new department: ");
-                    student.setDepartment(scanner.nextLine());
+                    String department = scanner.nextLine();
+                    system.edit(() -> student.setDepartment(department));
                     break;
                 case 8:
                     double gpa = getDoubleInput("Enter new GPA: ");
-                    student.setGpa(gpa);
+                    system.edit(() -> student.setGpa(gpa));
                     break;
                 case 9:
                     done = true;
@@ -462,11 +482,13 @@ public class Main {
         // Count by gender
         int maleCount = 0;
         int femaleCount = 0;
+        int male = Vocabulary.GENDERS.lookup("male");
+        int female = Vocabulary.GENDERS.lookup("female");
         
         for (Student student : system.getStudents()) {
-            if (student.getGender().equalsIgnoreCase("male")) {
+            if (student.getGenderCode() == male) {
                 maleCount++;
-            } else if (student.getGender().equalsIgnoreCase("female")) {
+            } else if (student.getGenderCode() == female) {
                 femaleCount++;
             }
         }
@@ -766,9 +788,6 @@ public class Main {
                 
                 System.out.println("\n----- Payment History for " + student.getName() + " -----");
                 
-                double totalPaid = 0;
-                double totalOutstanding = 0;
-                
                 for (FeePayment payment : payments) {
                     System.out.println("Date: " + payment.getFormattedDate());
                     System.out.println("Amount: $" + payment.getAmount());
@@ -776,15 +795,13 @@ public class Main {
                     System.out.println("Payment Type: " + payment.getPaymentType());
                     if (payment.isPaid()) {
                         System.out.println("Receipt Number: " + payment.getReceiptNumber());
-                        totalPaid += payment.getAmount();
-                    } else {
-                        totalOutstanding += payment.getAmount();
                     }
                     System.out.println("---------------------------");
                 }
                 
-                System.out.println("Total Paid: $" + totalPaid);
-                System.out.println("Total Outstanding: $" + totalOutstanding);
+                FeeLedger ledger = system.getFeeLedger(student);
+                System.out.println("Total Paid: $" + ledger.getTotalPaid());
+                System.out.println("Total Outstanding: $" + ledger.getTotalOutstanding());
                 break;
                 
             default:
@@ -821,30 +838,16 @@ public class Main {
                 
                 System.out.println("\n----- Attendance for " + student.getName() + " -----");
                 
-                // Group attendance by subject
-                Map<Subject, List<Attendance>> attendanceBySubject = new HashMap<>();
-                
+                // Subjects the student has attendance for, in the order they were first marked
+                Set<Subject> attendedSubjects = new LinkedHashSet<>();
                 for (Attendance attendance : studentAttendance) {
-                    Subject subject = attendance.getSubject();
-                    if (!attendanceBySubject.containsKey(subject)) {
-                        attendanceBySubject.put(subject, new ArrayList<>());
-                    }
-                    attendanceBySubject.get(subject).add(attendance);
+                    attendedSubjects.add(attendance.getSubject());
                 }
                 
                 // Display attendance percentage by subject
-                for (Map.Entry<Subject, List<Attendance>> entry : attendanceBySubject.entrySet()) {
-                    Subject subject = entry.getKey();
-                    List<Attendance> records = entry.getValue();
-                    
-                    int totalClasses = records.size();
-                    int presentClasses = 0;
-                    
-                    for (Attendance record : records) {
-                        if (record.isPresent()) {
-                            presentClasses++;
-                        }
-                    }
+                for (Subject subject : attendedSubjects) {
+                    int totalClasses = system.countMarkedAttendance(student, subject);
+                    int presentClasses = system.countPresentAttendance(student, subject);
                     
                     double percentage = (double) presentClasses / totalClasses * 100;
                     
@@ -863,43 +866,23 @@ public class Main {
                     return;
                 }
                 
-                List<Attendance> subjectAttendance = system.getAttendanceBySubject(subject);
+                List<Date> attendanceDays = system.getAttendanceDays(subject);
                 
-                if (subjectAttendance.isEmpty()) {
+                if (attendanceDays.isEmpty()) {
                     System.out.println("No attendance records for this subject.");
                     return;
                 }
                 
                 System.out.println("\n----- Attendance for " + subject.getName() + " -----");
                 
-                // Group attendance by date
-                Map<String, List<Attendance>> attendanceByDate = new HashMap<>();
-                
-                for (Attendance attendance : subjectAttendance) {
-                    String date = attendance.getFormattedDate();
-                    if (!attendanceByDate.containsKey(date)) {
-                        attendanceByDate.put(date, new ArrayList<>());
-                    }
-                    attendanceByDate.get(date).add(attendance);
-                }
-                
                 // Display attendance by date
-                for (Map.Entry<String, List<Attendance>> entry : attendanceByDate.entrySet()) {
-                    String date = entry.getKey();
-                    List<Attendance> records = entry.getValue();
-                    
-                    int totalStudents = records.size();
-                    int presentStudents = 0;
-                    
-                    for (Attendance record : records) {
-                        if (record.isPresent()) {
-                            presentStudents++;
-                        }
-                    }
+                for (Date day : attendanceDays) {
+                    int totalStudents = system.countMarkedAttendance(subject, day);
+                    int presentStudents = system.countPresentAttendance(subject, day);
                     
                     double percentage = (double) presentStudents / totalStudents * 100;
                     
-                    System.out.println("Date: " + date);
+                    System.out.println("Date: " + dateFormat.format(day));
                     System.out.println("Attendance: " + presentStudents + "/" + totalStudents + " (" + String.format("%.2f", percentage) + "%)");
                     System.out.println("---------------------------");
                 }
@@ -907,44 +890,38 @@ public class Main {
                 
             case 3:
                 Date date = getDateInput("Enter date for attendance report");
-                List<Attendance> dateAttendance = system.getAttendanceByDate(date);
                 
-                if (dateAttendance.isEmpty()) {
+                // Subjects with attendance marked on that day
+                List<Subject> subjectsForDate = new ArrayList<>();
+                for (Subject subj : system.getSubjects()) {
+                    if (system.countMarkedAttendance(subj, date) > 0) {
+                        subjectsForDate.add(subj);
+                    }
+                }
+                
+                if (subjectsForDate.isEmpty()) {
                     System.out.println("No attendance records for this date.");
                     return;
                 }
                 
                 System.out.println("\n----- Attendance for " + dateFormat.format(date) + " -----");
                 
-                // Group attendance by subject
-                Map<Subject, List<Attendance>> attendanceBySubjectForDate = new HashMap<>();
-                
-                for (Attendance attendance : dateAttendance) {
-                    Subject subj = attendance.getSubject();
-                    if (!attendanceBySubjectForDate.containsKey(subj)) {
-                        attendanceBySubjectForDate.put(subj, new ArrayList<>());
-                    }
-                    attendanceBySubjectForDate.get(subj).add(attendance);
-                }
-                
                 // Display attendance by subject for the date
-                for (Map.Entry<Subject, List<Attendance>> entry : attendanceBySubjectForDate.entrySet()) {
-                    Subject subj = entry.getKey();
-                    List<Attendance> records = entry.getValue();
-                    
-                    int totalStudents = records.size();
-                    int presentStudents = 0;
-                    
-                    for (Attendance record : records) {
-                        if (record.isPresent()) {
-                            presentStudents++;
-                        }
-                    }
+                for (Subject subj : subjectsForDate) {
+                    int totalStudents = system.countMarkedAttendance(subj, date);
+                    int presentStudents = system.countPresentAttendance(subj, date);
                     
                     double percentage = (double) presentStudents / totalStudents * 100;
                     
                     System.out.println("Subject: " + subj.getName());
                     System.out.println("Attendance: " + presentStudents + "/" + totalStudents + " (" + String.format("%.2f", percentage) + "%)");
+                    
+                    List<Student> absentStudents = system.getAbsentStudents(subj, date);
+                    if (!absentStudents.isEmpty()) {
+                        System.out.println("Absent: " + absentStudents.stream()
+                            .map(absent -> absent.getName() + " (" + absent.getRollNumber() + ")")
+                            .collect(Collectors.joining(", ")));
+                    }
                     System.out.println("---------------------------");
                 }
                 break;
@@ -1108,26 +1085,26 @@ public class Main {
         System.out.print("Enter Name [" + teacher.getName() + "]: ");
         String name = scanner.nextLine();
         if (!name.isEmpty()) {
-            teacher.setName(name);
+            system.edit(() -> teacher.setName(name));
         }
         
         System.out.print("Enter Address [" + teacher.getAddress() + "]: ");
         String address = scanner.nextLine();
         if (!address.isEmpty()) {
-            teacher.setAddress(address);
+            system.edit(() -> teacher.setAddress(address));
         }
         
         System.out.print("Enter Contact Number [" + teacher.getContactNumber() + "]: ");
         String contactNumber = scanner.nextLine();
         if (!contactNumber.isEmpty()) {
-            teacher.setContactNumber(contactNumber);
+            system.edit(() -> teacher.setContactNumber(contactNumber));
         }
         
         // Update Teacher specific information
         System.out.print("Enter Specialization [" + teacher.getSpecialization() + "]: ");
         String specialization = scanner.nextLine();
         if (!specialization.isEmpty()) {
-            teacher.setSpecialization(specialization);
+            system.edit(() -> teacher.setSpecialization(specialization));
         }
         
         // Update in system
@@ -1202,7 +1179,9 @@ public class Main {
             System.out.println("7. Delete Subject");
             System.out.println("8. Display All Courses");
             System.out.println("9. Display All Subjects");
-            System.out.println("10. Back to Main Menu");
+            System.out.println("10. Enroll Student in Course");
+            System.out.println("11. Withdraw Student from Course");
+            System.out.println("12. Back to Main Menu");
             
             int choice = getIntInput("Enter your choice: ");
             
@@ -1235,6 +1214,12 @@ public class Main {
                     displayAllSubjects();
                     break;
                 case 10:
+                    enrollStudentInCourse();
+                    break;
+                case 11:
+                    withdrawStudentFromCourse();
+                    break;
+                case 12:
                     back = true;
                     break;
                 default:
@@ -1359,7 +1344,7 @@ public class Main {
         Subject selectedSubject = subjects.get(subjectIndex);
         
         // Add subject to course
-        selectedCourse.addSubject(selectedSubject);
+        system.edit(() -> selectedCourse.addSubject(selectedSubject));
         System.out.println("Subject '" + selectedSubject.getName() + "' assigned to course '" + selectedCourse.getName() + "'.");
         
         // Save data
@@ -1367,6 +1352,52 @@ public class Main {
         system.saveData();
     }
     
+    private static void enrollStudentInCourse() {
+        System.out.println("\n===== Enroll Student in Course =====");
+        
+        Student student = system.findStudentById(getIntInput("Enter student ID: "));
+        if (student == null) {
+            System.out.println("Student not found.");
+            return;
+        }
+        
+        Course course = system.findCourseById(getIntInput("Enter Course ID: "));
+        if (course == null) {
+            System.out.println("Course not found.");
+            return;
+        }
+        
+        if (system.enrollStudent(student, course)) {
+            System.out.println(student.getName() + " enrolled in '" + course.getName() + "'.");
+            system.saveData();
+        } else {
+            System.out.println(student.getName() + " is already enrolled in '" + course.getName() + "'.");
+        }
+    }
+    
+    private static void withdrawStudentFromCourse() {
+        System.out.println("\n===== Withdraw Student from Course =====");
+        
+        Student student = system.findStudentById(getIntInput("Enter student ID: "));
+        if (student == null) {
+            System.out.println("Student not found.");
+            return;
+        }
+        
+        Course course = system.findCourseById(getIntInput("Enter Course ID: "));
+        if (course == null) {
+            System.out.println("Course not found.");
+            return;
+        }
+        
+        if (system.withdrawStudent(student, course)) {
+            System.out.println(student.getName() + " withdrawn from '" + course.getName() + "'.");
+            system.saveData();
+        } else {
+            System.out.println(student.getName() + " is not enrolled in '" + course.getName() + "'.");
+        }
+    }
+    
     private static void updateCourse() {
         System.out.println("\n===== Update Course =====");
         
@@ -1389,13 +1420,13 @@ public class Main {
         System.out.print("Enter Name [" + course.getName() + "]: ");
         String name = scanner.nextLine();
         if (!name.isEmpty()) {
-            course.setName(name);
+            system.edit(() -> course.setName(name));
         }
         
         System.out.print("Enter Department [" + course.getDepartment() + "]: ");
         String department = scanner.nextLine();
         if (!department.isEmpty()) {
-            course.setDepartment(department);
+            system.edit(() -> course.setDepartment(department));
         }
         
         System.out.print("Enter Credit Hours [" + course.getCreditHours() + "]: ");
@@ -1403,7 +1434,7 @@ public class Main {
         if (!creditHoursStr.isEmpty()) {
             try {
                 int creditHours = Integer.parseInt(creditHoursStr);
-                course.setCreditHours(creditHours);
+                system.edit(() -> course.setCreditHours(creditHours));
             } catch (NumberFormatException e) {
                 System.out.println("Invalid credit hours format. Credit hours not updated.");
             }
@@ -1440,13 +1471,13 @@ public class Main {
         System.out.print("Enter Name [" + subject.getName() + "]: ");
         String name = scanner.nextLine();
         if (!name.isEmpty()) {
-            subject.setName(name);
+            system.edit(() -> subject.setName(name));
         }
         
         System.out.print("Enter Description [" + subject.getDescription() + "]: ");
         String description = scanner.nextLine();
         if (!description.isEmpty()) {
-            subject.setDescription(description);
+            system.edit(() -> subject.setDescription(description));
         }
         
         System.out.print("Enter Credit Hours [" + subject.getCreditHours() + "]: ");
@@ -1454,7 +1485,7 @@ public class Main {
         if (!creditHoursStr.isEmpty()) {
             try {
                 int creditHours = Integer.parseInt(creditHoursStr);
-                subject.setCreditHours(creditHours);
+                system.edit(() -> subject.setCreditHours(creditHours));
             } catch (NumberFormatException e) {
                 System.out.println("Invalid credit hours format. Credit hours not updated.");
             }
@@ -1482,10 +1513,10 @@ public class Main {
                 
                 int teacherIndex = getIntInput("Select teacher number: ");
                 if (teacherIndex == 0) {
-                    subject.setTeacher(null);
+                    system.edit(() -> subject.setTeacher(null));
                     System.out.println("Teacher assignment removed.");
                 } else if (teacherIndex > 0 && teacherIndex <= teachers.size()) {
-                    subject.setTeacher(teachers.get(teacherIndex - 1));
+                    system.edit(() -> subject.setTeacher(teachers.get(teacherIndex - 1)));
                     System.out.println("Teacher updated to: " + teachers.get(teacherIndex - 1).getName());
                 } else {
                     System.out.println("Invalid selection. Teacher not updated.");
@@ -1607,6 +1638,8 @@ public class Main {
                             subject.getTeacher() != null ? " (Teacher: " + subject.getTeacher().getName() + ")" : "");
                     }
                 }
+                
+                System.out.println("\nStudents enrolled: " + system.getStudentsByCourse(course).size());
             } else {
                 System.out.println("Course with ID " + courseId + " not found.");
             }
@@ -1691,8 +1724,14 @@ public class Main {
         // Get the date for attendance
         Date attendanceDate = getDateInput("Enter attendance date (dd/MM/yyyy): ");
         
-        // Get the list of students
-        List<Student> students = system.getStudents();
+        // Get the students enrolled in a course with this subject, or every student if nobody is
+        List<Student> students = system.getStudentsBySubject(selectedSubject);
+        if (students.isEmpty()) {
+            System.out.println("No students are enrolled in a course with this subject, listing all students.");
+            students = system.getStudents();
+        } else {
+            students.removeIf(s -> !system.getCurrentUser().canAccessStudent(s));
+        }
         if (students.isEmpty()) {
             System.out.println("No students registered in the system.");
             return;
@@ -1950,17 +1989,7 @@ public class Main {
         }
         
         // Find the attendance record
-        List<Attendance> attendanceRecords = system.getAttendances();
-        Attendance targetRecord = null;
-        
-        for (Attendance record : attendanceRecords) {
-            if (record.getStudent().getId() == student.getId() && 
-                record.getSubject().getSubjectId() == selectedSubject.getSubjectId() &&
-                record.getDate().equals(attendanceDate)) {
-                targetRecord = record;
-                break;
-            }
-        }
+        Attendance targetRecord = system.findAttendance(student, selectedSubject, attendanceDate);
         
         if (targetRecord == null) {
             System.out.println("No attendance record found for the selected criteria.");
@@ -1990,22 +2019,23 @@ public class Main {
             System.out.print("Update attendance status? (Y/N): ");
             String updateStatus = scanner.nextLine();
             
+            boolean isPresent = targetRecord.isPresent();
             if (updateStatus.equalsIgnoreCase("Y")) {
                 System.out.print("Is student present? (Y/N): ");
                 String presenceInput = scanner.nextLine();
-                boolean isPresent = presenceInput.equalsIgnoreCase("Y");
-                targetRecord.setPresent(isPresent);
+                isPresent = presenceInput.equalsIgnoreCase("Y");
             }
             
             System.out.print("Update remarks? (Y/N): ");
             String updateRemarks = scanner.nextLine();
             
+            String remarks = targetRecord.getRemarks();
             if (updateRemarks.equalsIgnoreCase("Y")) {
                 System.out.print("Enter new remarks: ");
-                String newRemarks = scanner.nextLine();
-                targetRecord.setRemarks(newRemarks);
+                remarks = scanner.nextLine();
             }
             
+            system.updateAttendance(targetRecord, isPresent, remarks);
             System.out.println("Attendance record updated successfully!");
         }
         
@@ -2113,7 +2143,7 @@ public class Main {
         }
         
         // Generate receipt number
-        String receiptNumber = "REC-" + System.currentTimeMillis();
+        String receiptNumber = system.nextReceiptNumber();
         
         // Create payment record
         FeePayment payment = new FeePayment(student, amount, date, true, paymentType, receiptNumber);
@@ -2131,8 +2161,8 @@ public class Main {
         System.out.println("Date: " + dateFormat.format(date));
         System.out.println("Receipt Number: " + receiptNumber);
         
-        // Save changes
-        system.saveData();
+        // Save changes and wait until the payment is on disk
+        system.saveData(true);
     }
     
     private static void updatePaymentStatus() {
@@ -2177,7 +2207,7 @@ public class Main {
             FeePayment payment = unpaidPayments.get(i);
             System.out.printf("%-5d %-20s $%-10.2f %-12s %-30s\n", 
                             (i + 1),
-                            dateFormat.format(payment.getDate()),
+                            payment.getFormattedDate(),
                             payment.getAmount(),
                             payment.getPaymentType(),
                             payment.getReceiptNumber());
@@ -2196,16 +2226,12 @@ public class Main {
         System.out.print("Is the payment now complete? (y/n): ");
         String statusInput = scanner.nextLine();
         boolean isPaid = statusInput.equalsIgnoreCase("y");
-        payment.setPaid(isPaid);
         
-        // Update the receipt status
-        FeeReceipt receipt = system.getFeeReceiptByNumber(payment.getReceiptNumber());
-        if (receipt != null) {
-            receipt.setStatus(isPaid ? "Paid" : "Pending");
-        }
+        // Update the payment and its receipt status
+        system.updateFeePaymentStatus(payment, isPaid);
         
         System.out.println("\nPayment status updated successfully.");
-        system.saveData();
+        system.saveData(true);
     }
     
     private static void generateReceipt() {
@@ -2273,7 +2299,7 @@ public class Main {
         String paymentMethod = scanner.nextLine();
         
         // Generate receipt number
-        String receiptNumber = "REC-" + System.currentTimeMillis();
+        String receiptNumber = system.nextReceiptNumber();
         
         // Create receipt
         FeeReceipt receipt = new FeeReceipt(receiptNumber, student, date, paymentMethod, "System", "Paid");
@@ -2282,9 +2308,9 @@ public class Main {
         FeePayment payment = new FeePayment(student, amount, date, true, paymentType, receiptNumber);
         receipt.addPayment(payment);
         
-        // Save receipt and payment
-        system.addFeeReceipt(receipt);
+        // Save payment and receipt
         system.recordFeePayment(payment);
+        system.addFeeReceipt(receipt);
         
         // Print receipt
         System.out.println("\n===== Fee Receipt =====");
@@ -2304,8 +2330,8 @@ public class Main {
             System.out.println("\nFailed to generate receipt file.");
         }
         
-        // Save changes
-        system.saveData();
+        // Save changes and wait until the receipt is on disk
+        system.saveData(true);
     }
     
     private static void viewOutstandingFees() {
@@ -2330,40 +2356,22 @@ public class Main {
         }
         Student student = students.get(studentIndex);
         
-        // Get all payments for this student
-        List<FeePayment> payments = system.getFeePaymentsByStudent(student);
-        if (payments.isEmpty()) {
+        // The student's ledger keeps the totals by payment type
+        FeeLedger ledger = system.getFeeLedger(student);
+        if (ledger.isEmpty()) {
             System.out.println("No fee records found for this student.");
             return;
         }
         
-        // Calculate totals
-        double totalPaid = 0.0;
-        double totalTuition = 0.0;
-        double totalLibrary = 0.0;
-        double totalHostel = 0.0;
+        double totalPaid = ledger.getTotalPaid();
+        double totalTuition = ledger.getPaid("Tuition Fee");
+        double totalLibrary = ledger.getPaid("Library Fee");
+        double totalHostel = ledger.getPaid("Hostel Fee");
         
-        for (FeePayment payment : payments) {
-            if (payment.isPaid()) {
-                totalPaid += payment.getAmount();
-                switch (payment.getPaymentType()) {
-                    case "Tuition Fee":
-                        totalTuition += payment.getAmount();
-                        break;
-                    case "Library Fee":
-                        totalLibrary += payment.getAmount();
-                        break;
-                    case "Hostel Fee":
-                        totalHostel += payment.getAmount();
-                        break;
-                }
-            }
-        }
-        
-        // Calculate outstanding amounts
-        double tuitionOutstanding = totalTuition - totalPaid;
-        double libraryOutstanding = totalLibrary - totalPaid;
-        double hostelOutstanding = totalHostel - totalPaid;
+        // Outstanding amounts are the unpaid payments of each type
+        double tuitionOutstanding = ledger.getOutstanding("Tuition Fee");
+        double libraryOutstanding = ledger.getOutstanding("Library Fee");
+        double hostelOutstanding = ledger.getOutstanding("Hostel Fee");
         
         // Display report
         System.out.println("\n===== Fee Report for " + student.getName() + " =====");
@@ -2377,8 +2385,7 @@ public class Main {
         System.out.printf("Tuition: $%.2f\n", tuitionOutstanding);
         System.out.printf("Library: $%.2f\n", libraryOutstanding);
         System.out.printf("Hostel: $%.2f\n", hostelOutstanding);
-        System.out.printf("Total Outstanding: $%.2f\n", 
-            tuitionOutstanding + libraryOutstanding + hostelOutstanding);
+        System.out.printf("Total Outstanding: $%.2f\n", ledger.getTotalOutstanding());
         
         // Save changes
         system.saveData();
@@ -2492,12 +2499,7 @@ public class Main {
         Grade grade = new Grade(student, subject, assignmentName, gradeType, score, maxScore, new Date(), remarks, semester);
         
         // Add grade to student's record
-        AcademicRecord record = system.getAcademicRecords().get(student.getId());
-        if (record == null) {
-            record = new AcademicRecord(student);
-            system.getAcademicRecords().put(student.getId(), record);
-        }
-        record.addGrade(grade);
+        system.addGrade(grade);
         System.out.println("Grade added successfully!");
         
         // Display grade details
@@ -2535,12 +2537,7 @@ public class Main {
                                    score, maxScore, new Date(), remarks, semester);
 
         // Add to academic record
-        AcademicRecord record = system.getAcademicRecords().get(student.getId());
-        if (record == null) {
-            record = new AcademicRecord(student);
-            system.getAcademicRecords().put(student.getId(), record);
-        }
-        record.addGrade(finalGrade);
+        system.addGrade(finalGrade);
 
         System.out.println("Final exam grade added successfully!");
         System.out.println("Percentage Score: " + String.format("%.2f%%", finalGrade.getPercentageScore()));
@@ -2651,6 +2648,10 @@ public class Main {
         
         System.out.print("Enter username: ");
         String username = scanner.nextLine();
+        if (system.findUserByUsername(username) != null) {
+            System.out.println("Username " + username + " is already taken.");
+            return;
+        }
         
         System.out.print("Enter password: ");
         String password = scanner.nextLine();
@@ -2733,15 +2734,18 @@ public class Main {
         }
         
         User newUser = new User(username, password, fullName, role, department, associatedId);
-        system.addUser(newUser);
+        if (!system.addUser(newUser)) {
+            System.out.println("Username " + username + " is already taken.");
+            return;
+        }
         
         System.out.println("User created successfully!");
         System.out.println("Username: " + username);
         System.out.println("Full Name: " + fullName);
         System.out.println("Role: " + role);
         
-        // Save changes
-        system.saveData();
+        // Save changes and wait until the new account is on disk
+        system.saveData(true);
     }
     
     private static void changePassword() {
@@ -2761,7 +2765,7 @@ public class Main {
         // Verify current password
         System.out.print("Enter your current password: ");
         String currentPassword = scanner.nextLine();
-        if (!user.getPassword().equals(currentPassword)) {
+        if (!system.verifyPassword(user, currentPassword)) {
             System.out.println("Incorrect current password.");
             return;
         }
@@ -2771,12 +2775,12 @@ public class Main {
         String newPassword = scanner.nextLine();
         
         // Update password
-        user.setPassword(newPassword);
+        system.changePassword(user, newPassword);
         
         System.out.println("Password changed successfully!");
         
-        // Save changes
-        system.saveData();
+        // Save changes and wait until the new password is on disk
+        system.saveData(true);
     }
     
     private static void viewAllUsers() {
@@ -0,0 +1,427 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Attendance records kept as fixed-width rows in a memory-mapped file instead
+ * of objects on the heap. Attendance objects are only created for the records a
+ * lookup returns, and opening the store reads the rows in place instead of
+ * decoding them from the snapshot.
+ *
+ * Rows file:    [int magic][int version][int row count][int reserved] then rows of
+ *               [int student id][int subject id][long date millis][int flags][int check]
+ * Remarks file: [int magic][int used bytes] then entries of [int length][utf-8 bytes]
+ *
+ * The flags hold the present bit and a reference to the remarks: 0 is an empty
+ * remark, 1 is null, and n is the entry at offset n - 2 in the remarks file.
+ * The check covers the fields that never change, so a row whose append was cut
+ * short by a crash is recognised and dropped when the store is opened. The flags
+ * are a single aligned int, so updating them can't leave a row half written.
+ *
+ * The lists of row numbers by student, subject and day stay on the heap and are
+ * rebuilt from the rows when the store is opened. They take one int per row in
+ * each list, against the 24 bytes of the row and the record objects that are
+ * no longer kept.
+ */
+public class MappedAttendanceStore {
+    private static final int ROWS_MAGIC = 0x53495341;    // "SISA"
+    private static final int REMARKS_MAGIC = 0x53495352; // "SISR"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 16;
+    private static final int ROW_SIZE = 24;
+    private static final int REMARKS_HEADER_SIZE = 8;
+    private static final int INITIAL_ROWS = 64 * 1024;
+    private static final int INITIAL_REMARKS_BYTES = 64 * 1024;
+
+    private static final int PRESENT = 1;
+    private static final int EMPTY_REMARKS = 0;
+    private static final int NULL_REMARKS = 1;
+    private static final int MAX_REMARKS_REF = (1 << 30) - 1; // The reference shares the flags with the present bit
+
+    // Remarks are mostly a handful of values such as "Absent", these are written once and reused
+    private static final int REMARKS_CACHE_SIZE = 1024;
+
+    private final StudentInformationSystem system;
+    private final RandomAccessFile rowsFile;
+    private final RandomAccessFile remarksFile;
+    private MappedByteBuffer rows;
+    private MappedByteBuffer remarks;
+    private int rowCount;
+    private int remarksUsed;
+
+    // Row numbers by student, subject and day, in the order the records were marked
+    private final IntHashMap<IntList> byStudent = new IntHashMap<>();
+    private final IntHashMap<IntList> bySubject = new IntHashMap<>();
+    private final IntHashMap<IntList> byDay = new IntHashMap<>();
+
+    private final Map<String, Integer> remarkRefs = lruMap();
+    private final Map<Integer, String> remarkValues = lruMap();
+
+    // Open the store, creating the files if they don't exist yet
+    // Students and subjects of the rows are looked up in the system when records are returned
+    public MappedAttendanceStore(File rowsPath, File remarksPath, StudentInformationSystem system) throws IOException {
+        this.system = system;
+        this.rowsFile = new RandomAccessFile(rowsPath, "rw");
+        this.remarksFile = new RandomAccessFile(remarksPath, "rw");
+
+        try {
+            boolean newRows = rowsFile.length() == 0;
+            boolean newRemarks = remarksFile.length() == 0;
+            rows = map(rowsFile, Math.max(rowsFile.length(), HEADER_SIZE + (long) INITIAL_ROWS * ROW_SIZE));
+            remarks = map(remarksFile, Math.max(remarksFile.length(), REMARKS_HEADER_SIZE + INITIAL_REMARKS_BYTES));
+
+            if (newRows) {
+                rows.putInt(0, ROWS_MAGIC);
+                rows.putInt(4, VERSION);
+                rows.putInt(8, 0);
+            }
+            if (newRemarks) {
+                remarks.putInt(0, REMARKS_MAGIC);
+                remarks.putInt(4, 0);
+            }
+
+            if (rows.getInt(0) != ROWS_MAGIC || remarks.getInt(0) != REMARKS_MAGIC) {
+                throw new IOException("Not an attendance store");
+            }
+            if (rows.getInt(4) > VERSION) {
+                throw new IOException("Attendance store version " + rows.getInt(4) + " is newer than supported version " + VERSION);
+            }
+
+            remarksUsed = remarks.getInt(4);
+            readRows();
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Index the rows, stopping at the first one that was not completely written
+    private void readRows() {
+        int count = rows.getInt(8);
+        int capacity = (rows.capacity() - HEADER_SIZE) / ROW_SIZE;
+        for (int row = 0; row < count && row < capacity; row++) {
+            int base = rowOffset(row);
+            int studentId = rows.getInt(base);
+            int subjectId = rows.getInt(base + 4);
+            long millis = rows.getLong(base + 8);
+            if (rows.getInt(base + 20) != check(studentId, subjectId, millis)) {
+                break;
+            }
+            index(row, studentId, subjectId, millis);
+            rowCount = row + 1;
+        }
+        rows.putInt(8, rowCount);
+    }
+
+    // Append a record
+    public synchronized void add(Attendance attendance) {
+        if (rowCount == (rows.capacity() - HEADER_SIZE) / ROW_SIZE) {
+            rows = grow(rowsFile, rows);
+        }
+
+        int studentId = attendance.getStudent() != null ? attendance.getStudent().getId() : 0;
+        int subjectId = attendance.getSubject() != null ? attendance.getSubject().getSubjectId() : 0;
+        long millis = Dates.toMillis(attendance.getDate());
+        int flags = flags(attendance.isPresent(), attendance.getRemarks());
+
+        int row = rowCount;
+        writeRow(row, studentId, subjectId, millis, flags);
+        // The row is complete before it is counted
+        rowCount++;
+        rows.putInt(8, rowCount);
+        index(row, studentId, subjectId, millis);
+    }
+
+    // Change the record find returns for the student, subject and day
+    public synchronized boolean update(Student student, Subject subject, Date date, boolean isPresent, String remarks) {
+        int row = findRow(student.getId(), subject.getSubjectId(), date);
+        if (row < 0) {
+            return false;
+        }
+
+        int base = rowOffset(row);
+        writeRow(row, rows.getInt(base), rows.getInt(base + 4), rows.getLong(base + 8), flags(isPresent, remarks));
+        return true;
+    }
+
+    // Find the record of a student for a subject on the day of the given date
+    public synchronized Attendance find(Student student, Subject subject, Date date) {
+        int row = findRow(student.getId(), subject.getSubjectId(), date);
+        return row < 0 ? null : read(row, student, subject);
+    }
+
+    public synchronized List<Attendance> getByStudent(Student student) {
+        return read(byStudent.get(student.getId()), student, null);
+    }
+
+    public synchronized List<Attendance> getBySubject(Subject subject) {
+        return read(bySubject.get(subject.getSubjectId()), null, subject);
+    }
+
+    // Records marked on the day of the given date
+    public synchronized List<Attendance> getByDate(Date date) {
+        return read(byDay.get(Dates.toEpochDay(date)), null, null);
+    }
+
+    public synchronized int size() {
+        return rowCount;
+    }
+
+    // Read-only list of every record, each one read from the file when it is accessed
+    // Records of students or subjects that no longer exist have a null student or subject
+    public List<Attendance> asList() {
+        return new AbstractList<Attendance>() {
+            @Override
+            public Attendance get(int index) {
+                synchronized (MappedAttendanceStore.this) {
+                    if (index < 0 || index >= rowCount) {
+                        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + rowCount);
+                    }
+                    return read(index, null, null);
+                }
+            }
+
+            @Override
+            public int size() {
+                return MappedAttendanceStore.this.size();
+            }
+        };
+    }
+
+    // Mark every row in the matrix straight from the file, skipping the ones of students or subjects that no longer exist
+    public synchronized void markAll(AttendanceMatrix matrix) {
+        for (int row = 0; row < rowCount; row++) {
+            int base = rowOffset(row);
+            int studentId = rows.getInt(base);
+            int subjectId = rows.getInt(base + 4);
+            long millis = rows.getLong(base + 8);
+            if (millis != Dates.NO_TIME && system.lookupStudent(studentId) != null
+                    && system.findSubjectById(subjectId) != null) {
+                matrix.mark(studentId, subjectId, Dates.toEpochDay(millis), (rows.getInt(base + 16) & PRESENT) != 0);
+            }
+        }
+    }
+
+    // Remove every record, used when the records are moved into the store again
+    public synchronized void clear() {
+        rowCount = 0;
+        rows.putInt(8, 0);
+        remarksUsed = 0;
+        remarks.putInt(4, 0);
+        byStudent.clear();
+        bySubject.clear();
+        byDay.clear();
+        remarkRefs.clear();
+        remarkValues.clear();
+    }
+
+    // Write the changes made so far to disk
+    public synchronized void force() {
+        remarks.force();
+        rows.force();
+    }
+
+    public synchronized void close() {
+        try {
+            if (rows != null) {
+                force();
+            }
+            rowsFile.close();
+            remarksFile.close();
+        } catch (IOException e) {
+            System.err.println("Closing the attendance store failed: " + e.getMessage());
+        }
+    }
+
+    // Latest row of the student for the subject on the day of the given date
+    private int findRow(int studentId, int subjectId, Date date) {
+        IntList candidates = byStudent.get(studentId);
+        if (candidates == null) {
+            return -1;
+        }
+
+        int epochDay = Dates.toEpochDay(date);
+        for (int i = candidates.size() - 1; i >= 0; i--) {
+            int base = rowOffset(candidates.get(i));
+            if (rows.getInt(base + 4) == subjectId && Dates.toEpochDay(rows.getLong(base + 8)) == epochDay) {
+                return candidates.get(i);
+            }
+        }
+        return -1;
+    }
+
+    // Create the records of the given rows, skipping the ones of students or subjects that no longer exist
+    private List<Attendance> read(IntList selected, Student student, Subject subject) {
+        List<Attendance> result = new ArrayList<>();
+        if (selected == null) {
+            return result;
+        }
+
+        for (int i = 0; i < selected.size(); i++) {
+            Attendance attendance = read(selected.get(i), student, subject);
+            if (attendance.getStudent() != null && attendance.getSubject() != null) {
+                result.add(attendance);
+            }
+        }
+        return result;
+    }
+
+    private Attendance read(int row, Student student, Subject subject) {
+        int base = rowOffset(row);
+        if (student == null) {
+            student = system.lookupStudent(rows.getInt(base));
+        }
+        if (subject == null) {
+            subject = system.findSubjectById(rows.getInt(base + 4));
+        }
+        long millis = rows.getLong(base + 8);
+        int flags = rows.getInt(base + 16);
+
+        return new Attendance(student, subject, Dates.toDate(millis),
+                              (flags & PRESENT) != 0, readRemarks(flags >>> 1));
+    }
+
+    private void writeRow(int row, int studentId, int subjectId, long millis, int flags) {
+        int base = rowOffset(row);
+        rows.putInt(base, studentId);
+        rows.putInt(base + 4, subjectId);
+        rows.putLong(base + 8, millis);
+        rows.putInt(base + 16, flags);
+        rows.putInt(base + 20, check(studentId, subjectId, millis));
+    }
+
+    private void index(int row, int studentId, int subjectId, long millis) {
+        rowsOf(byStudent, studentId).add(row);
+        rowsOf(bySubject, subjectId).add(row);
+        if (millis != Dates.NO_TIME) {
+            rowsOf(byDay, Dates.toEpochDay(millis)).add(row);
+        }
+    }
+
+    private int flags(boolean isPresent, String remark) {
+        return (writeRemarks(remark) << 1) | (isPresent ? PRESENT : 0);
+    }
+
+    private int writeRemarks(String remark) {
+        if (remark == null) {
+            return NULL_REMARKS;
+        }
+        if (remark.isEmpty()) {
+            return EMPTY_REMARKS;
+        }
+
+        Integer cached = remarkRefs.get(remark);
+        if (cached != null) {
+            return cached;
+        }
+
+        byte[] bytes = remark.getBytes(StandardCharsets.UTF_8);
+        if ((long) remarksUsed + 4 + bytes.length + 2 > MAX_REMARKS_REF) {
+            throw new IllegalStateException("The attendance remarks file is full");
+        }
+        while (REMARKS_HEADER_SIZE + remarksUsed + 4 + bytes.length > remarks.capacity()) {
+            remarks = grow(remarksFile, remarks);
+        }
+
+        int offset = remarksUsed;
+        remarks.putInt(REMARKS_HEADER_SIZE + offset, bytes.length);
+        for (int i = 0; i < bytes.length; i++) {
+            remarks.put(REMARKS_HEADER_SIZE + offset + 4 + i, bytes[i]);
+        }
+        remarksUsed += 4 + bytes.length;
+        remarks.putInt(4, remarksUsed);
+
+        int ref = offset + 2;
+        remarkRefs.put(remark, ref);
+        remarkValues.put(ref, remark);
+        return ref;
+    }
+
+    private String readRemarks(int ref) {
+        if (ref == EMPTY_REMARKS) {
+            return "";
+        }
+        if (ref == NULL_REMARKS) {
+            return null;
+        }
+
+        String cached = remarkValues.get(ref);
+        if (cached != null) {
+            return cached;
+        }
+
+        int offset = ref - 2;
+        int length = offset + 4 <= remarksUsed ? remarks.getInt(REMARKS_HEADER_SIZE + offset) : -1;
+        if (length < 0 || offset + 4 + length > remarksUsed) {
+            return ""; // Lost in a crash together with the end of the remarks file
+        }
+
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = remarks.get(REMARKS_HEADER_SIZE + offset + 4 + i);
+        }
+        String remark = new String(bytes, StandardCharsets.UTF_8);
+        remarkValues.put(ref, remark);
+        return remark;
+    }
+
+    private static int rowOffset(int row) {
+        return HEADER_SIZE + row * ROW_SIZE;
+    }
+
+    // A row of zeros, or one only partly written, does not match its check
+    private static int check(int studentId, int subjectId, long millis) {
+        int hash = 0x2545F491;
+        hash = (hash ^ studentId) * 0x9E3779B1;
+        hash = (hash ^ subjectId) * 0x9E3779B1;
+        hash = (hash ^ (int) millis) * 0x9E3779B1;
+        hash = (hash ^ (int) (millis >>> 32)) * 0x9E3779B1;
+        return hash ^ (hash >>> 16);
+    }
+
+    private static MappedByteBuffer map(RandomAccessFile file, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Attendance store is full");
+        }
+        return file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+    }
+
+    // Map the file again at twice the size, the file grows with the mapping
+    private static MappedByteBuffer grow(RandomAccessFile file, MappedByteBuffer buffer) {
+        try {
+            return map(file, (long) buffer.capacity() * 2);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not grow the attendance store: " + e.getMessage(), e);
+        }
+    }
+
+    private static IntList rowsOf(IntHashMap<IntList> index, int key) {
+        IntList result = index.get(key);
+        if (result == null) {
+            result = new IntList();
+            index.put(key, result);
+        }
+        return result;
+    }
+
+    private static <K, V> Map<K, V> lruMap() {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > REMARKS_CACHE_SIZE;
+            }
+        };
+    }
+}
@@ -0,0 +1,810 @@
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the changes made to the StudentInformationSystem.
+ * Each mutation is written as a small record and forced to disk, so the cost
+ * of saving is proportional to the change instead of the whole dataset.
+ * On startup the journal is replayed on top of the last saved snapshot.
+ *
+ * Record layout: [int length][int crc32][long sequence][byte type][fields...]
+ * The snapshot remembers the last sequence number it contains, so records
+ * that were already folded into it are skipped during replay.
+ */
+public class MutationJournal {
+    // Record types
+    private static final byte REGISTER_STUDENT = 1;
+    private static final byte UPDATE_STUDENT = 2;
+    private static final byte DELETE_STUDENT = 3;
+    private static final byte ADD_TEACHER = 4;
+    private static final byte UPDATE_TEACHER = 5;
+    private static final byte DELETE_TEACHER = 6;
+    private static final byte ADD_COURSE = 7;
+    private static final byte UPDATE_COURSE = 8;
+    private static final byte DELETE_COURSE = 9;
+    private static final byte ADD_SUBJECT = 10;
+    private static final byte UPDATE_SUBJECT = 11;
+    private static final byte DELETE_SUBJECT = 12;
+    private static final byte MARK_ATTENDANCE = 13;
+    private static final byte UPDATE_ATTENDANCE = 14;
+    private static final byte RECORD_FEE_PAYMENT = 15;
+    private static final byte UPDATE_FEE_PAYMENT_STATUS = 16;
+    private static final byte ADD_FEE_RECEIPT = 17;
+    private static final byte ADD_USER = 18;
+    private static final byte CHANGE_PASSWORD = 19;
+    private static final byte ADD_GRADE = 20;
+    private static final byte ENROLL_STUDENT = 21;
+    private static final byte WITHDRAW_STUDENT = 22;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int NO_STUDENT = -1; // Student id written for a missing student
+    private static final int NO_SUBJECT = -1; // Subject id written for a missing subject
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteArrayOutputStream buffer;
+    private final DataOutputStream out;
+    private long sequence; // Sequence number of the last record written
+    private boolean failed; // A record could not be written, later ones are dropped
+    private Runnable failureHandler;
+
+    // Opens the journal for appending, discarding anything after the last complete record
+    public MutationJournal(File file, long validLength, long lastSequence) throws IOException {
+        this.file = file;
+        this.sequence = lastSequence;
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.channel.truncate(validLength);
+        this.channel.position(validLength);
+        this.buffer = new ByteArrayOutputStream(256);
+        this.out = new DataOutputStream(buffer);
+    }
+
+    // Called once, from the thread whose record could not be written
+    public synchronized void setFailureHandler(Runnable failureHandler) {
+        this.failureHandler = failureHandler;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public synchronized long getSequence() {
+        return sequence;
+    }
+
+    // Size of the journal on disk in bytes
+    public synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    // Discard all records, called once their effect is contained in a snapshot
+    public synchronized void reset() throws IOException {
+        channel.truncate(0);
+        channel.position(0);
+        channel.force(true);
+    }
+
+    public synchronized void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+    }
+
+    // Methods for logging mutations
+    public synchronized void logRegisterStudent(Student student) {
+        begin(REGISTER_STUDENT);
+        writeStudent(student);
+        commit();
+    }
+
+    public synchronized void logUpdateStudent(Student student) {
+        begin(UPDATE_STUDENT);
+        writeStudent(student);
+        commit();
+    }
+
+    public synchronized void logDeleteStudent(Student student) {
+        begin(DELETE_STUDENT);
+        writeInt(student.getId());
+        commit();
+    }
+
+    public synchronized void logAddTeacher(Teacher teacher) {
+        begin(ADD_TEACHER);
+        writeTeacher(teacher);
+        commit();
+    }
+
+    public synchronized void logUpdateTeacher(Teacher teacher) {
+        begin(UPDATE_TEACHER);
+        writeTeacher(teacher);
+        commit();
+    }
+
+    public synchronized void logDeleteTeacher(Teacher teacher) {
+        begin(DELETE_TEACHER);
+        writeInt(teacher.getId());
+        commit();
+    }
+
+    public synchronized void logAddCourse(Course course) {
+        begin(ADD_COURSE);
+        writeCourse(course);
+        commit();
+    }
+
+    public synchronized void logUpdateCourse(Course course) {
+        begin(UPDATE_COURSE);
+        writeCourse(course);
+        commit();
+    }
+
+    public synchronized void logDeleteCourse(Course course) {
+        begin(DELETE_COURSE);
+        writeInt(course.getCourseId());
+        commit();
+    }
+
+    public synchronized void logAddSubject(Subject subject) {
+        begin(ADD_SUBJECT);
+        writeSubject(subject);
+        commit();
+    }
+
+    public synchronized void logUpdateSubject(Subject subject) {
+        begin(UPDATE_SUBJECT);
+        writeSubject(subject);
+        commit();
+    }
+
+    public synchronized void logDeleteSubject(Subject subject) {
+        begin(DELETE_SUBJECT);
+        writeInt(subject.getSubjectId());
+        commit();
+    }
+
+    public synchronized void logMarkAttendance(Attendance attendance) {
+        begin(MARK_ATTENDANCE);
+        writeStudentId(attendance.getStudent());
+        writeSubjectId(attendance.getSubject());
+        writeDate(attendance.getDate());
+        writeBoolean(attendance.isPresent());
+        writeString(attendance.getRemarks());
+        commit();
+    }
+
+    public synchronized void logUpdateAttendance(Attendance attendance) {
+        begin(UPDATE_ATTENDANCE);
+        writeStudentId(attendance.getStudent());
+        writeSubjectId(attendance.getSubject());
+        writeDate(attendance.getDate());
+        writeBoolean(attendance.isPresent());
+        writeString(attendance.getRemarks());
+        commit();
+    }
+
+    public synchronized void logRecordFeePayment(FeePayment payment) {
+        begin(RECORD_FEE_PAYMENT);
+        writeFeePayment(payment);
+        commit();
+    }
+
+    public synchronized void logUpdateFeePaymentStatus(int paymentIndex, boolean isPaid) {
+        begin(UPDATE_FEE_PAYMENT_STATUS);
+        writeInt(paymentIndex);
+        writeBoolean(isPaid);
+        commit();
+    }
+
+    // Payments already recorded in the system are referenced by their position in its payment list,
+    // paymentPositions holds it for each payment of the receipt, -1 for those written inline
+    public synchronized void logAddFeeReceipt(FeeReceipt receipt, int[] paymentPositions) {
+        begin(ADD_FEE_RECEIPT);
+        writeString(receipt.getReceiptNumber());
+        writeStudentId(receipt.getStudent());
+        writeDate(receipt.getIssueDate());
+        writeString(receipt.getPaymentMethod());
+        writeString(receipt.getIssuedBy());
+        writeString(receipt.getStatus());
+        writeString(receipt.getRemarks());
+        writeInt(receipt.getPayments().size());
+        for (int i = 0; i < paymentPositions.length; i++) {
+            writeInt(paymentPositions[i]);
+            if (paymentPositions[i] < 0) {
+                writeFeePayment(receipt.getPayments().get(i));
+            }
+        }
+        commit();
+    }
+
+    // Passwords are written in their stored, hashed form
+    public synchronized void logAddUser(User user) {
+        begin(ADD_USER);
+        writeString(user.getUsername());
+        writeString(user.getPassword());
+        writeString(user.getFullName());
+        writeString(user.getRole());
+        writeString(user.getDepartment());
+        writeBoolean(user.getAssociatedId() != null);
+        if (user.getAssociatedId() != null) {
+            writeInt(user.getAssociatedId());
+        }
+        commit();
+    }
+
+    public synchronized void logChangePassword(User user) {
+        begin(CHANGE_PASSWORD);
+        writeString(user.getUsername());
+        writeString(user.getPassword());
+        commit();
+    }
+
+    public synchronized void logAddGrade(Grade grade) {
+        begin(ADD_GRADE);
+        writeStudentId(grade.getStudent());
+        writeSubjectId(grade.getSubject());
+        writeString(grade.getAssignmentName());
+        writeString(grade.getGradeType());
+        writeDouble(grade.getScore());
+        writeDouble(grade.getMaxScore());
+        writeDate(grade.getDate());
+        writeString(grade.getRemarks());
+        writeString(grade.getSemester());
+        commit();
+    }
+
+    public synchronized void logEnrollStudent(Student student, Course course) {
+        begin(ENROLL_STUDENT);
+        writeInt(student.getId());
+        writeInt(course.getCourseId());
+        commit();
+    }
+
+    public synchronized void logWithdrawStudent(Student student, Course course) {
+        begin(WITHDRAW_STUDENT);
+        writeInt(student.getId());
+        writeInt(course.getCourseId());
+        commit();
+    }
+
+    // Start a new record in the buffer, leaving room for the header and sequence number
+    private void begin(byte type) {
+        buffer.reset();
+        writeInt(0);
+        writeInt(0);
+        try {
+            out.writeLong(0);
+            out.writeByte(type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Fill in the header and force the record to disk
+    // A record that can't be written is cut off again and the failure handler is told,
+    // records after it are not written because replay would apply them without it
+    private void commit() {
+        if (failed) {
+            return;
+        }
+        
+        byte[] record = buffer.toByteArray();
+        int payloadLength = record.length - HEADER_SIZE;
+
+        ByteBuffer bytes = ByteBuffer.wrap(record);
+        bytes.putLong(HEADER_SIZE, ++sequence);
+
+        CRC32 crc = new CRC32();
+        crc.update(record, HEADER_SIZE, payloadLength);
+
+        bytes.putInt(0, payloadLength);
+        bytes.putInt(4, (int) crc.getValue());
+
+        long start = -1;
+        try {
+            start = channel.position();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            System.err.println("Error writing to journal: " + e.getMessage());
+            failed = true;
+            if (start >= 0) {
+                try {
+                    channel.truncate(start);
+                } catch (IOException t) {
+                    // Replay stops at the damaged record anyway
+                }
+            }
+            if (failureHandler != null) {
+                failureHandler.run();
+            }
+        }
+    }
+
+    // Helpers for writing fields (the buffer is in memory, so IOException cannot happen)
+    private void writeInt(int value) {
+        try {
+            out.writeInt(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeDouble(double value) {
+        try {
+            out.writeDouble(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeBoolean(boolean value) {
+        try {
+            out.writeBoolean(value);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeString(String value) {
+        try {
+            out.writeBoolean(value != null);
+            if (value != null) {
+                out.writeUTF(value);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeDate(Date date) {
+        try {
+            out.writeLong(date != null ? date.getTime() : Long.MIN_VALUE);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void writeStudent(Student student) {
+        writeInt(student.getId());
+        writeString(student.getName());
+        writeString(student.getAddress());
+        writeString(student.getContactNumber());
+        writeDate(student.getDateOfBirth());
+        writeString(student.getRollNumber());
+        writeString(student.getGender());
+        writeString(student.getDepartment());
+        writeDouble(student.getGpa());
+    }
+
+    private void writeTeacher(Teacher teacher) {
+        writeInt(teacher.getId());
+        writeString(teacher.getName());
+        writeString(teacher.getAddress());
+        writeString(teacher.getContactNumber());
+        writeDate(teacher.getDateOfBirth());
+        writeInt(teacher.getTeacherId());
+        writeString(teacher.getSpecialization());
+        writeDate(teacher.getJoinDate());
+        writeString(teacher.getDepartment());
+    }
+
+    private void writeCourse(Course course) {
+        writeInt(course.getCourseId());
+        writeString(course.getName());
+        writeString(course.getDepartment());
+        writeInt(course.getCreditHours());
+        writeInt(course.getSubjects().size());
+        for (Subject subject : course.getSubjects()) {
+            writeInt(subject.getSubjectId());
+        }
+    }
+
+    private void writeSubject(Subject subject) {
+        writeInt(subject.getSubjectId());
+        writeString(subject.getName());
+        writeBoolean(subject.getTeacher() != null);
+        if (subject.getTeacher() != null) {
+            writeInt(subject.getTeacher().getId());
+        }
+        writeInt(subject.getCreditHours());
+        writeString(subject.getDescription());
+    }
+
+    private void writeFeePayment(FeePayment payment) {
+        writeStudentId(payment.getStudent());
+        writeDouble(payment.getAmount());
+        writeDate(payment.getDate());
+        writeBoolean(payment.isPaid());
+        writeString(payment.getPaymentType());
+        writeString(payment.getReceiptNumber());
+    }
+
+    // Records may have no student or subject, replay finds none for NO_STUDENT and NO_SUBJECT
+    private void writeStudentId(Student student) {
+        writeInt(student != null ? student.getId() : NO_STUDENT);
+    }
+
+    private void writeSubjectId(Subject subject) {
+        writeInt(subject != null ? subject.getSubjectId() : NO_SUBJECT);
+    }
+
+    /**
+     * Replays the journal into the given system.
+     * Records already contained in the loaded snapshot are skipped, and replay
+     * stops at the first incomplete or corrupt record, which is what a crash
+     * during an append leaves behind.
+     * @return the length of the valid prefix of the journal in bytes
+     */
+    public static long replay(File file, StudentInformationSystem system) throws IOException {
+        long validLength = 0;
+        int applied = 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int payloadLength;
+                int checksum;
+                try {
+                    payloadLength = in.readInt();
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payloadLength <= 0 || payloadLength > file.length()) {
+                    break;
+                }
+
+                byte[] payload = new byte[payloadLength];
+                try {
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+
+                CRC32 crc = new CRC32();
+                crc.update(payload, 0, payloadLength);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                long recordSequence = record.readLong();
+                if (recordSequence > system.getLastJournalSequence() + 1) {
+                    // The snapshot is older than the one this journal continues from, which happens when
+                    // a damaged snapshot was replaced by a previous generation. Applying the rest would
+                    // change the wrong records, so stop here.
+                    System.out.println("The journal continues from a newer snapshot than the one loaded, "
+                                       + "changes from record " + recordSequence + " on were not applied.");
+                    break;
+                }
+                if (recordSequence > system.getLastJournalSequence()) {
+                    apply(record, system);
+                    system.setLastJournalSequence(recordSequence);
+                    applied++;
+                }
+                validLength += HEADER_SIZE + payloadLength;
+            }
+        }
+
+        if (applied > 0) {
+            System.out.println("Recovered " + applied + " change(s) from the journal.");
+        }
+        return validLength;
+    }
+
+    // Apply a single record to the system
+    private static void apply(DataInputStream in, StudentInformationSystem system) throws IOException {
+        byte type = in.readByte();
+
+        switch (type) {
+            case REGISTER_STUDENT:
+                system.registerStudent(readStudent(in, new Student()));
+                break;
+
+            case UPDATE_STUDENT: {
+                Student student = system.lookupStudent(peekId(in));
+                if (student != null) {
+                    system.updateStudent(readStudent(in, student));
+                }
+                break;
+            }
+
+            case DELETE_STUDENT: {
+                Student student = system.lookupStudent(in.readInt());
+                if (student != null) {
+                    system.deleteStudent(student);
+                }
+                break;
+            }
+
+            case ADD_TEACHER:
+                system.addTeacher(readTeacher(in, new Teacher()));
+                break;
+
+            case UPDATE_TEACHER: {
+                Teacher teacher = system.findTeacherById(peekId(in));
+                if (teacher != null) {
+                    system.updateTeacher(readTeacher(in, teacher));
+                }
+                break;
+            }
+
+            case DELETE_TEACHER: {
+                Teacher teacher = system.findTeacherById(in.readInt());
+                if (teacher != null) {
+                    system.deleteTeacher(teacher);
+                }
+                break;
+            }
+
+            case ADD_COURSE:
+                system.addCourse(readCourse(in, new Course(), system));
+                break;
+
+            case UPDATE_COURSE: {
+                Course course = system.findCourseById(peekId(in));
+                if (course != null) {
+                    system.updateCourse(readCourse(in, course, system));
+                }
+                break;
+            }
+
+            case DELETE_COURSE: {
+                Course course = system.findCourseById(in.readInt());
+                if (course != null) {
+                    system.deleteCourse(course);
+                }
+                break;
+            }
+
+            case ADD_SUBJECT:
+                system.addSubject(readSubject(in, null, system));
+                break;
+
+            case UPDATE_SUBJECT: {
+                Subject subject = system.findSubjectById(peekId(in));
+                if (subject != null) {
+                    system.updateSubject(readSubject(in, subject, system));
+                }
+                break;
+            }
+
+            case DELETE_SUBJECT: {
+                Subject subject = system.findSubjectById(in.readInt());
+                if (subject != null) {
+                    system.deleteSubject(subject);
+                }
+                break;
+            }
+
+            case MARK_ATTENDANCE: {
+                Student student = system.lookupStudent(in.readInt());
+                Subject subject = system.findSubjectById(in.readInt());
+                Date date = readDate(in);
+                boolean isPresent = in.readBoolean();
+                String remarks = readString(in);
+                // Attendance can only be looked up by its student and subject, without them it is dropped
+                if (student != null && subject != null) {
+                    system.markAttendance(new Attendance(student, subject, date, isPresent, remarks));
+                }
+                break;
+            }
+
+            case UPDATE_ATTENDANCE: {
+                Student student = system.lookupStudent(in.readInt());
+                Subject subject = system.findSubjectById(in.readInt());
+                Date date = readDate(in);
+                boolean isPresent = in.readBoolean();
+                String remarks = readString(in);
+                Attendance attendance = student != null && subject != null ? system.findAttendance(student, subject, date) : null;
+                if (attendance != null) {
+                    system.updateAttendance(attendance, isPresent, remarks);
+                }
+                break;
+            }
+
+            case RECORD_FEE_PAYMENT:
+                system.recordFeePayment(readFeePayment(in, system));
+                break;
+
+            case UPDATE_FEE_PAYMENT_STATUS: {
+                int index = in.readInt();
+                boolean isPaid = in.readBoolean();
+                List<FeePayment> payments = system.getFeePayments();
+                if (index >= 0 && index < payments.size()) {
+                    system.updateFeePaymentStatus(payments.get(index), isPaid);
+                }
+                break;
+            }
+
+            case ADD_FEE_RECEIPT: {
+                String receiptNumber = readString(in);
+                Student student = system.lookupStudent(in.readInt());
+                Date issueDate = readDate(in);
+                String paymentMethod = readString(in);
+                String issuedBy = readString(in);
+                String status = readString(in);
+                String remarks = readString(in);
+
+                FeeReceipt receipt = new FeeReceipt(receiptNumber, student, issueDate, paymentMethod, issuedBy, status);
+                int paymentCount = in.readInt();
+                for (int i = 0; i < paymentCount; i++) {
+                    int index = in.readInt();
+                    receipt.addPayment(index >= 0 ? system.getFeePayments().get(index) : readFeePayment(in, system));
+                }
+                // Restore the stored status and remarks after addPayment recalculated them
+                receipt.setStatus(status);
+                receipt.setRemarks(remarks);
+                system.addFeeReceipt(receipt);
+                break;
+            }
+
+            case ADD_USER: {
+                String username = readString(in);
+                String password = readString(in);
+                String fullName = readString(in);
+                String role = readString(in);
+                String department = readString(in);
+                Integer associatedId = in.readBoolean() ? in.readInt() : null;
+                system.restoreUser(new User(username, password, fullName, role, department, associatedId));
+                break;
+            }
+
+            case CHANGE_PASSWORD: {
+                User user = system.findUserByUsername(readString(in));
+                String password = readString(in);
+                if (user != null) {
+                    system.restorePassword(user, password);
+                }
+                break;
+            }
+
+            case ADD_GRADE: {
+                Student student = system.lookupStudent(in.readInt());
+                Subject subject = system.findSubjectById(in.readInt());
+                String assignmentName = readString(in);
+                String gradeType = readString(in);
+                double score = in.readDouble();
+                double maxScore = in.readDouble();
+                Date date = readDate(in);
+                String remarks = readString(in);
+                String semester = readString(in);
+                if (student != null && subject != null) {
+                    system.addGrade(new Grade(student, subject, assignmentName, gradeType,
+                                              score, maxScore, date, remarks, semester));
+                }
+                break;
+            }
+
+            case ENROLL_STUDENT: {
+                Student student = system.lookupStudent(in.readInt());
+                Course course = system.findCourseById(in.readInt());
+                if (student != null && course != null) {
+                    system.enrollStudent(student, course);
+                }
+                break;
+            }
+
+            case WITHDRAW_STUDENT: {
+                Student student = system.lookupStudent(in.readInt());
+                Course course = system.findCourseById(in.readInt());
+                if (student != null && course != null) {
+                    system.withdrawStudent(student, course);
+                }
+                break;
+            }
+
+            default:
+                throw new IOException("Unknown journal record type: " + type);
+        }
+    }
+
+    // Read the leading id of a record without consuming it
+    private static int peekId(DataInputStream in) throws IOException {
+        in.mark(4);
+        int id = in.readInt();
+        in.reset();
+        return id;
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Date readDate(DataInputStream in) throws IOException {
+        long time = in.readLong();
+        return time == Long.MIN_VALUE ? null : new Date(time);
+    }
+
+    private static Student readStudent(DataInputStream in, Student student) throws IOException {
+        student.setId(in.readInt());
+        student.setName(readString(in));
+        student.setAddress(readString(in));
+        student.setContactNumber(readString(in));
+        student.setDateOfBirth(readDate(in));
+        student.setRollNumber(readString(in));
+        student.setGender(readString(in));
+        student.setDepartment(readString(in));
+        student.setGpa(in.readDouble());
+        return student;
+    }
+
+    private static Teacher readTeacher(DataInputStream in, Teacher teacher) throws IOException {
+        teacher.setId(in.readInt());
+        teacher.setName(readString(in));
+        teacher.setAddress(readString(in));
+        teacher.setContactNumber(readString(in));
+        teacher.setDateOfBirth(readDate(in));
+        teacher.setTeacherId(in.readInt());
+        teacher.setSpecialization(readString(in));
+        teacher.setJoinDate(readDate(in));
+        teacher.setDepartment(readString(in));
+        return teacher;
+    }
+
+    private static Course readCourse(DataInputStream in, Course course, StudentInformationSystem system) throws IOException {
+        course.setCourseId(in.readInt());
+        course.setName(readString(in));
+        course.setDepartment(readString(in));
+        course.setCreditHours(in.readInt());
+
+        course.getSubjects().clear();
+        int subjectCount = in.readInt();
+        for (int i = 0; i < subjectCount; i++) {
+            Subject subject = system.findSubjectById(in.readInt());
+            if (subject != null) {
+                course.addSubject(subject);
+            }
+        }
+        return course;
+    }
+
+    // A new subject is created like the menu creates it, which doesn't add it to the teacher's subjects.
+    // An existing one is only given to the teacher if the record changed its teacher, as setTeacher does
+    private static Subject readSubject(DataInputStream in, Subject subject, StudentInformationSystem system) throws IOException {
+        int subjectId = in.readInt();
+        String name = readString(in);
+        Teacher teacher = in.readBoolean() ? system.findTeacherById(in.readInt()) : null;
+        int creditHours = in.readInt();
+        String description = readString(in);
+        if (subject == null) {
+            return new Subject(subjectId, name, teacher, creditHours, description);
+        }
+
+        subject.setSubjectId(subjectId);
+        subject.setName(name);
+        if (subject.getTeacher() != teacher) {
+            subject.setTeacher(teacher);
+        }
+        subject.setCreditHours(creditHours);
+        subject.setDescription(description);
+        return subject;
+    }
+
+    private static FeePayment readFeePayment(DataInputStream in, StudentInformationSystem system) throws IOException {
+        Student student = system.lookupStudent(in.readInt());
+        double amount = in.readDouble();
+        Date date = readDate(in);
+        boolean isPaid = in.readBoolean();
+        String paymentType = readString(in);
+        String receiptNumber = readString(in);
+        return new FeePayment(student, amount, date, isPaid, paymentType, receiptNumber);
+    }
+}
@@ -0,0 +1,97 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted password hashing with PBKDF2-HMAC-SHA256.
+ * Hashes are stored as "pbkdf2-sha256$iterations$salt$hash" so the work factor
+ * can be raised later without invalidating existing passwords.
+ * The work factor for new hashes is set with -Dsis.password.iterations.
+ */
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2-sha256";
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int DEFAULT_ITERATIONS = 120000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    // Number of PBKDF2 iterations used for new hashes
+    public static int getIterations() {
+        return Integer.getInteger("sis.password.iterations", DEFAULT_ITERATIONS);
+    }
+
+    // Hash a password with a new random salt
+    public static String hash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        int iterations = getIterations();
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + "$" + iterations + "$" + encoder.encodeToString(salt) + "$"
+               + encoder.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    // Check a password against a stored hash, comparing in constant time
+    public static boolean verify(String password, String storedPassword) {
+        if (password == null || storedPassword == null) {
+            return false;
+        }
+
+        if (!isHashed(storedPassword)) {
+            // Plaintext password from an old data file that has not been upgraded yet
+            return MessageDigest.isEqual(password.getBytes(StandardCharsets.UTF_8),
+                                         storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = storedPassword.split("\\$");
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.getDecoder().decode(parts[2]);
+            byte[] expected = Base64.getDecoder().decode(parts[3]);
+            return MessageDigest.isEqual(pbkdf2(password, salt, iterations), expected);
+        } catch (IllegalArgumentException e) {
+            return false; // Damaged hash
+        }
+    }
+
+    // Spend the same time as a real verification, for usernames that don't exist
+    public static void verifyDummy(String password) {
+        pbkdf2(password == null ? "" : password, new byte[SALT_BYTES], getIterations());
+    }
+
+    // Whether a stored password is a hash written by this class
+    public static boolean isHashed(String storedPassword) {
+        return storedPassword != null && storedPassword.startsWith(PREFIX + "$")
+               && storedPassword.split("\\$").length == 4;
+    }
+
+    // Whether a stored password should be hashed again with the current work factor
+    public static boolean needsRehash(String storedPassword) {
+        if (!isHashed(storedPassword)) {
+            return true;
+        }
+
+        try {
+            return Integer.parseInt(storedPassword.split("\\$")[1]) != getIterations();
+        } catch (NumberFormatException e) {
+            return true;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+}
@@ -1,5 +1,4 @@
 import java.io.Serializable;
-import java.text.SimpleDateFormat;
 import java.util.Date;
 
 /**
@@ -34,6 +33,15 @@ public abstract class Person implements Serializable {
         this.dateOfBirth = new Date();
     }
     
+    // Copy of the common attributes, for the snapshot copies of subclasses
+    protected Person(Person source) {
+        this.id = source.id;
+        this.name = source.name;
+        this.address = source.address;
+        this.contactNumber = source.contactNumber;
+        this.dateOfBirth = source.dateOfBirth;
+    }
+    
     // Getters and setters
     public int getId() {
         return id;
@@ -77,9 +85,7 @@ public abstract class Person implements Serializable {
     
     // Format date for display
     public String getFormattedDateOfBirth() {
-        if (dateOfBirth == null) return "Not set";
-        SimpleDateFormat sdf = new SimpleDateFormat("dd/MM/yyyy");
-        return sdf.format(dateOfBirth);
+        return Dates.formatDay(dateOfBirth);
     }
     
     // Abstract method to display person details
@@ -0,0 +1,31 @@
+/**
+ * Payment status of a fee receipt, see FeeReceipt.getStatus().
+ */
+public enum ReceiptStatus {
+    PAID("Paid"),
+    PARTIAL("Partial"),
+    PENDING("Pending");
+
+    private final String displayName;
+
+    ReceiptStatus(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // The status with the given name ignoring case, null if there is none
+    public static ReceiptStatus of(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (ReceiptStatus status : values()) {
+            if (status.displayName.equalsIgnoreCase(name)) {
+                return status;
+            }
+        }
+        return null;
+    }
+}
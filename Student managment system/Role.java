@@ -0,0 +1,34 @@
+/**
+ * Roles a user account can have, see User.getRole().
+ */
+public enum Role {
+    ADMINISTRATOR("Administrator"),
+    TEACHER("Teacher"),
+    FINANCIAL_OFFICER("Financial Officer"),
+    REGISTRAR("Registrar"),
+    STUDENT("Student"),
+    USER("User");
+
+    private final String displayName;
+
+    Role(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    // The role with the given name ignoring case, null if there is none
+    public static Role of(String name) {
+        if (name == null) {
+            return null;
+        }
+        for (Role role : values()) {
+            if (role.displayName.equalsIgnoreCase(name)) {
+                return role;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,872 @@
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot format for the StudentInformationSystem.
+ * Replaces default Java serialization with a compact, versioned layout:
+ * fixed-width numbers, dates stored as epoch milliseconds, every distinct string
+ * stored once in a string table, and references between entities stored as
+ * table indexes instead of nested objects.
+ *
+ * Layout:
+ *   header     [int magic][int version], the magic is "SISC" from version 3 on
+ *   strings    [int count]([int length][utf-8 bytes])*
+ *   tables     teachers, subjects, courses, students, attendance,
+ *              fee payments, fee receipts, grades
+ *   links      teacher subjects, student fee payments, student attendance
+ *   records    academic records, users, system state
+ *   trailer    [int crc32 of everything before it]
+ *
+ * Files written before version 3 start with "SISB" and have no trailer. Whether
+ * the trailer is checked depends on the magic and the version together, so a
+ * damaged version field alone can't make a checksummed file look unchecked.
+ * Those older files are decoded without verification, so every length is checked
+ * against the bytes left, and damage is reported as a StreamCorruptedException.
+ *
+ * Each table starts with [int count][int registered]; the first "registered"
+ * entries are the ones held in the system's lists, the rest are objects that
+ * are only referenced (for example a deleted student that still has attendance).
+ */
+public class SnapshotCodec {
+    private static final int MAGIC = 0x53495342; // "SISB", snapshots without a checksum
+    private static final int CHECKED_MAGIC = 0x53495343; // "SISC", snapshots with a trailing checksum
+    private static final int VERSION = 3; // Version 1 stored dates as epoch days, version 2 had no checksum
+    private static final int CHECKSUM_VERSION = 3; // First version with a trailing checksum
+
+    private static final int NULL_REF = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int NULL_EPOCH_DAY = Integer.MIN_VALUE;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    // Check whether a file starts with the binary snapshot header
+    public static boolean isBinarySnapshot(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            int magic = in.readInt();
+            return magic == MAGIC || magic == CHECKED_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    // Write the whole system to the stream
+    // Nothing may change the system meanwhile, see capture() for writing it while it changes
+    public static void write(StudentInformationSystem system, OutputStream output) throws IOException {
+        capture(system).write(output);
+    }
+
+    // Copy the master data of the system and freeze its record lists, to be encoded by write() later.
+    // This is much quicker than encoding, so the caller only holds the lock guarding the system's
+    // changes while this runs. The system keeps changing while the snapshot is encoded, and has
+    // to call preserve() before changing a record, see StudentInformationSystem.snapshotView()
+    static Writer capture(StudentInformationSystem system) {
+        Writer writer = new Writer();
+        writer.capture(system);
+        return writer;
+    }
+
+    // Read a system previously written with write()
+    public static StudentInformationSystem read(InputStream input) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        byte[] chunk = new byte[64 * 1024];
+        int count;
+        while ((count = input.read(chunk)) > 0) {
+            bytes.write(chunk, 0, count);
+        }
+
+        try {
+            return new Reader(verifyChecksum(bytes.toByteArray())).read();
+        } catch (RuntimeException e) {
+            // Snapshots without a checksum aren't verified before decoding, so damage can fail anywhere in it
+            StreamCorruptedException corrupted = new StreamCorruptedException("Snapshot is truncated or damaged");
+            corrupted.initCause(e);
+            throw corrupted;
+        }
+    }
+
+    // Check the trailing checksum and return the data without it
+    // A snapshot cut short or damaged on disk is rejected before any of it is decoded
+    // Only a file with the old magic and an old version is read without a checksum
+    private static ByteBuffer verifyChecksum(byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if (data.length >= 8 && buffer.getInt(0) == MAGIC && buffer.getInt(4) < CHECKSUM_VERSION) {
+            return buffer;
+        }
+
+        int length = data.length - 4;
+        if (length < 8) {
+            throw new IOException("Snapshot is truncated or damaged");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, length);
+        if ((int) crc.getValue() != buffer.getInt(length)) {
+            throw new IOException("Snapshot checksum does not match");
+        }
+
+        buffer.limit(length);
+        return buffer;
+    }
+
+    // Dates are stored as milliseconds since 1970-01-01 so payment and grade times are kept
+    static long toMillis(Date date) {
+        return date == null ? NULL_DATE : date.getTime();
+    }
+
+    static Date fromMillis(long millis) {
+        return millis == NULL_DATE ? null : new Date(millis);
+    }
+
+    // Version 1 snapshots stored days since 1970-01-01 in the local time zone
+    static Date fromEpochDay(int epochDay) {
+        if (epochDay == NULL_EPOCH_DAY) return null;
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(ZONE).toInstant());
+    }
+
+    /**
+     * Ordered set of objects identified by reference, giving each one a table index.
+     * Master data is copied as it is added, and the copies are what gets written.
+     * A copy still points to the original objects, which are the ones given indexes.
+     * Records are not copied, a table without a copier writes the items themselves.
+     */
+    private static class Table<T> {
+        final List<T> items = new ArrayList<>();
+        final List<T> copies;
+        final IdentityHashMap<T, Integer> indexes = new IdentityHashMap<>();
+        final UnaryOperator<T> copier;
+        int registered;
+        int visited; // Items whose references have already been collected
+
+        Table(UnaryOperator<T> copier) {
+            this.copier = copier;
+            this.copies = copier != null ? new ArrayList<>() : items;
+        }
+
+        // Add an item held in the system's list
+        void addRegistered(T item) {
+            add(item);
+            indexes.putIfAbsent(item, items.size() - 1);
+            registered++;
+        }
+
+        // Add a referenced item if it is not in the table yet
+        void reference(T item) {
+            if (item != null && !indexes.containsKey(item)) {
+                add(item);
+                indexes.put(item, items.size() - 1);
+            }
+        }
+
+        private void add(T item) {
+            items.add(item);
+            if (copier != null) {
+                copies.add(copier.apply(item));
+            }
+        }
+
+        int indexOf(T item) {
+            if (item == null) return NULL_REF;
+            return indexes.get(item);
+        }
+    }
+
+    /**
+     * Encodes a system as it was when capture() ran. The master data is copied
+     * then, and the record lists are kept as AppendOnlyList views, so capturing
+     * doesn't copy any record. Records only change through the system's update
+     * methods, which call preserve() first, so the encoder writes the copy of a
+     * record changed after the capture instead of the record itself.
+     * Strings are interned while the body is written to memory, then the header,
+     * string table and body are written out in that order.
+     * The body is built in a plain ByteBuffer rather than a DataOutputStream,
+     * which would make several synchronized calls for every number written.
+     */
+    static class Writer {
+        private final Table<Teacher> teachers = new Table<>(Teacher::snapshot);
+        private final Table<Subject> subjects = new Table<>(Subject::snapshot);
+        private final Table<Course> courses = new Table<>(Course::snapshot);
+        private final Table<Student> students = new Table<>(Student::snapshot);
+        private final Table<Attendance> attendances = new Table<>(null);
+        private final Table<FeePayment> feePayments = new Table<>(null);
+        private final Table<FeeReceipt> feeReceipts = new Table<>(null);
+        private final Table<Grade> grades = new Table<>(null);
+        private final IntHashMap<AcademicRecord> academicRecords = new IntHashMap<>();
+        private final List<User> users = new ArrayList<>();
+        private long lastJournalSequence;
+
+        // The record lists as they were at the capture
+        private List<Attendance> attendanceView;
+        private List<FeePayment> feePaymentView;
+        private List<FeeReceipt> feeReceiptView;
+        private List<Grade> gradeView;
+
+        // Records changed since the capture, as they were before the change
+        // Records are read holding this lock, so a change is either fully preserved or not begun
+        private final Map<Object, Object> preserved = new IdentityHashMap<>();
+
+        private final Map<String, Integer> stringIds = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        private ByteBuffer out = ByteBuffer.allocate(64 * 1024);
+
+        // Copy the master data and keep views of the record lists, nothing may change the system meanwhile
+        private void capture(StudentInformationSystem system) {
+            for (Teacher teacher : system.getTeachers()) teachers.addRegistered(teacher);
+            for (Subject subject : system.getSubjects()) subjects.addRegistered(subject);
+            for (Course course : system.getCourses()) courses.addRegistered(course);
+            for (Student student : system.getAllStudents()) students.addRegistered(student);
+            attendanceView = AppendOnlyList.snapshotOf(system.getAttendancesInSnapshot());
+            feePaymentView = AppendOnlyList.snapshotOf(system.getFeePayments());
+            feeReceiptView = AppendOnlyList.snapshotOf(system.getFeeReceipts());
+            gradeView = AppendOnlyList.snapshotOf(system.getGrades());
+            for (int studentId : system.getAcademicRecords().keys()) {
+                academicRecords.put(studentId, system.getAcademicRecords().get(studentId).snapshot());
+            }
+            for (User user : system.getUsers()) {
+                users.add(user.snapshot());
+            }
+            lastJournalSequence = system.getLastJournalSequence();
+        }
+
+        // Keep the record as it is before a change, called by the system holding its lock
+        void preserve(Attendance attendance) {
+            preserve(attendance, Attendance::snapshot);
+        }
+
+        void preserve(FeePayment payment) {
+            preserve(payment, FeePayment::snapshot);
+        }
+
+        void preserve(FeeReceipt receipt) {
+            preserve(receipt, FeeReceipt::snapshot);
+        }
+
+        private <T> void preserve(T record, UnaryOperator<T> copier) {
+            synchronized (preserved) {
+                if (!preserved.containsKey(record)) {
+                    preserved.put(record, copier.apply(record));
+                }
+            }
+        }
+
+        // The record as it was at the capture, call holding the preserved lock
+        @SuppressWarnings("unchecked")
+        private <T> T asCaptured(T record) {
+            Object copy = preserved.get(record);
+            return copy != null ? (T) copy : record;
+        }
+
+        // Encode the copies and views, the system itself is no longer read
+        void write(OutputStream output) throws IOException {
+            collect();
+            writeTeachers();
+            writeSubjects();
+            writeCourses();
+            writeStudents();
+            writeAttendances();
+            writeFeePayments();
+            writeFeeReceipts();
+            writeGrades();
+            writeLinks();
+            writeAcademicRecords();
+            writeUsers();
+            writeLong(lastJournalSequence);
+            ByteBuffer body = out;
+
+            out = ByteBuffer.allocate(64 * 1024);
+            writeInt(CHECKED_MAGIC);
+            writeInt(VERSION);
+            writeInt(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeInt(bytes.length);
+                ensureCapacity(bytes.length);
+                out.put(bytes);
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(out.array(), 0, out.position());
+            crc.update(body.array(), 0, body.position());
+
+            output.write(out.array(), 0, out.position());
+            output.write(body.array(), 0, body.position());
+            output.write(ByteBuffer.allocate(4).putInt((int) crc.getValue()).array());
+            output.flush();
+        }
+
+        // Build the record tables, including objects that are only reachable through references
+        // References are followed through the copies, so they match what is written.
+        // The references of a record never change once it is in the system's lists
+        private void collect() {
+            for (Attendance attendance : attendanceView) attendances.addRegistered(attendance);
+            for (FeePayment payment : feePaymentView) feePayments.addRegistered(payment);
+            for (FeeReceipt receipt : feeReceiptView) feeReceipts.addRegistered(receipt);
+            for (Grade grade : gradeView) grades.addRegistered(grade);
+            for (AcademicRecord record : academicRecords.values()) {
+                students.reference(record.getStudent());
+                for (Grade grade : record.getGrades()) grades.reference(grade);
+            }
+
+            // Keep following references until no table grows any more
+            boolean grew = true;
+            while (grew) {
+                grew = false;
+                for (; teachers.visited < teachers.items.size(); teachers.visited++, grew = true) {
+                    for (Subject subject : teachers.copies.get(teachers.visited).getSubjects()) subjects.reference(subject);
+                }
+                for (; subjects.visited < subjects.items.size(); subjects.visited++, grew = true) {
+                    teachers.reference(subjects.copies.get(subjects.visited).getTeacher());
+                }
+                for (; courses.visited < courses.items.size(); courses.visited++, grew = true) {
+                    for (Subject subject : courses.copies.get(courses.visited).getSubjects()) subjects.reference(subject);
+                }
+                for (; students.visited < students.items.size(); students.visited++, grew = true) {
+                    Student student = students.copies.get(students.visited);
+                    for (Course course : student.getCourses()) courses.reference(course);
+                    for (FeePayment payment : student.getFeePayments()) feePayments.reference(payment);
+                    for (Attendance attendance : student.getAttendanceRecords()) attendances.reference(attendance);
+                }
+                for (; attendances.visited < attendances.items.size(); attendances.visited++, grew = true) {
+                    Attendance attendance = attendances.copies.get(attendances.visited);
+                    students.reference(attendance.getStudent());
+                    subjects.reference(attendance.getSubject());
+                }
+                for (; feePayments.visited < feePayments.items.size(); feePayments.visited++, grew = true) {
+                    students.reference(feePayments.copies.get(feePayments.visited).getStudent());
+                }
+                for (; feeReceipts.visited < feeReceipts.items.size(); feeReceipts.visited++, grew = true) {
+                    FeeReceipt receipt = feeReceipts.copies.get(feeReceipts.visited);
+                    students.reference(receipt.getStudent());
+                    for (FeePayment payment : receipt.getPayments()) feePayments.reference(payment);
+                }
+                for (; grades.visited < grades.items.size(); grades.visited++, grew = true) {
+                    Grade grade = grades.copies.get(grades.visited);
+                    students.reference(grade.getStudent());
+                    subjects.reference(grade.getSubject());
+                }
+            }
+        }
+
+        private void writeTableHeader(Table<?> table) {
+            writeInt(table.items.size());
+            writeInt(table.registered);
+        }
+
+        private void writeTeachers() {
+            writeTableHeader(teachers);
+            for (Teacher teacher : teachers.copies) {
+                writePerson(teacher);
+                writeInt(teacher.getTeacherId());
+                writeString(teacher.getSpecialization());
+                writeLong(toMillis(teacher.getJoinDate()));
+                writeString(teacher.getDepartment());
+            }
+        }
+
+        private void writeSubjects() {
+            writeTableHeader(subjects);
+            for (Subject subject : subjects.copies) {
+                writeInt(subject.getSubjectId());
+                writeString(subject.getName());
+                writeInt(teachers.indexOf(subject.getTeacher()));
+                writeInt(subject.getCreditHours());
+                writeString(subject.getDescription());
+            }
+        }
+
+        private void writeCourses() {
+            writeTableHeader(courses);
+            for (Course course : courses.copies) {
+                writeInt(course.getCourseId());
+                writeString(course.getName());
+                writeString(course.getDepartment());
+                writeInt(course.getCreditHours());
+                writeInt(course.getSubjects().size());
+                for (Subject subject : course.getSubjects()) {
+                    writeInt(subjects.indexOf(subject));
+                }
+            }
+        }
+
+        private void writeStudents() {
+            writeTableHeader(students);
+            for (Student student : students.copies) {
+                writePerson(student);
+                writeString(student.getRollNumber());
+                writeString(student.getGender());
+                writeString(student.getDepartment());
+                writeDouble(student.getGpa());
+                writeInt(student.getCourses().size());
+                for (Course course : student.getCourses()) {
+                    writeInt(courses.indexOf(course));
+                }
+            }
+        }
+
+        private void writeAttendances() {
+            writeTableHeader(attendances);
+            for (Attendance record : attendances.items) {
+                synchronized (preserved) {
+                    Attendance attendance = asCaptured(record);
+                    writeInt(students.indexOf(attendance.getStudent()));
+                    writeInt(subjects.indexOf(attendance.getSubject()));
+                    writeLong(toMillis(attendance.getDate()));
+                    writeBoolean(attendance.isPresent());
+                    writeString(attendance.getRemarks());
+                }
+            }
+        }
+
+        private void writeFeePayments() {
+            writeTableHeader(feePayments);
+            for (FeePayment record : feePayments.items) {
+                synchronized (preserved) {
+                    FeePayment payment = asCaptured(record);
+                    writeInt(students.indexOf(payment.getStudent()));
+                    writeDouble(payment.getAmount());
+                    writeLong(toMillis(payment.getDate()));
+                    writeBoolean(payment.isPaid());
+                    writeString(payment.getPaymentType());
+                    writeString(payment.getReceiptNumber());
+                }
+            }
+        }
+
+        private void writeFeeReceipts() {
+            writeTableHeader(feeReceipts);
+            for (FeeReceipt record : feeReceipts.items) {
+                synchronized (preserved) {
+                    FeeReceipt receipt = asCaptured(record);
+                    writeString(receipt.getReceiptNumber());
+                    writeInt(students.indexOf(receipt.getStudent()));
+                    writeLong(toMillis(receipt.getIssueDate()));
+                    writeString(receipt.getPaymentMethod());
+                    writeString(receipt.getIssuedBy());
+                    writeString(receipt.getStatus());
+                    writeString(receipt.getRemarks());
+                    writeInt(receipt.getPayments().size());
+                    for (FeePayment payment : receipt.getPayments()) {
+                        writeInt(feePayments.indexOf(payment));
+                    }
+                }
+            }
+        }
+
+        private void writeGrades() {
+            writeTableHeader(grades);
+            for (Grade grade : grades.items) {
+                writeInt(students.indexOf(grade.getStudent()));
+                writeInt(subjects.indexOf(grade.getSubject()));
+                writeString(grade.getAssignmentName());
+                writeString(grade.getGradeType());
+                writeDouble(grade.getScore());
+                writeDouble(grade.getMaxScore());
+                writeLong(toMillis(grade.getDate()));
+                writeString(grade.getRemarks());
+                writeString(grade.getSemester());
+            }
+        }
+
+        // Lists that point back from teachers and students to the tables written above
+        private void writeLinks() {
+            for (Teacher teacher : teachers.copies) {
+                writeInt(teacher.getSubjects().size());
+                for (Subject subject : teacher.getSubjects()) {
+                    writeInt(subjects.indexOf(subject));
+                }
+            }
+            for (Student student : students.copies) {
+                writeInt(student.getFeePayments().size());
+                for (FeePayment payment : student.getFeePayments()) {
+                    writeInt(feePayments.indexOf(payment));
+                }
+                writeInt(student.getAttendanceRecords().size());
+                for (Attendance attendance : student.getAttendanceRecords()) {
+                    writeInt(attendances.indexOf(attendance));
+                }
+            }
+        }
+
+        private void writeAcademicRecords() {
+            IntHashMap<AcademicRecord> records = academicRecords;
+            writeInt(records.size());
+            for (int studentId : records.keys()) {
+                AcademicRecord record = records.get(studentId);
+                writeInt(studentId);
+                writeInt(students.indexOf(record.getStudent()));
+                writeLong(record.getLastUpdated() != null ? record.getLastUpdated().getTime() : Long.MIN_VALUE);
+                writeInt(record.getGrades().size());
+                for (Grade grade : record.getGrades()) {
+                    writeInt(grades.indexOf(grade));
+                }
+            }
+        }
+
+        private void writeUsers() {
+            writeInt(users.size());
+            for (User user : users) {
+                writeString(user.getUsername());
+                writeString(user.getPassword());
+                writeString(user.getFullName());
+                writeString(user.getRole());
+                writeString(user.getDepartment());
+                writeInt(user.getAssociatedId() != null ? user.getAssociatedId() : NULL_REF);
+                writeBoolean(user.getAssociatedId() != null);
+            }
+        }
+
+        private void writePerson(Person person) {
+            writeInt(person.getId());
+            writeString(person.getName());
+            writeString(person.getAddress());
+            writeString(person.getContactNumber());
+            writeLong(toMillis(person.getDateOfBirth()));
+        }
+
+        // Strings are written as an index into the string table
+        private void writeString(String value) {
+            if (value == null) {
+                writeInt(NULL_REF);
+                return;
+            }
+            Integer id = stringIds.get(value);
+            if (id == null) {
+                id = strings.size();
+                strings.add(value);
+                stringIds.put(value, id);
+            }
+            writeInt(id);
+        }
+
+        private void writeInt(int value) {
+            ensureCapacity(4);
+            out.putInt(value);
+        }
+
+        private void writeLong(long value) {
+            ensureCapacity(8);
+            out.putLong(value);
+        }
+
+        private void writeDouble(double value) {
+            ensureCapacity(8);
+            out.putDouble(value);
+        }
+
+        private void writeBoolean(boolean value) {
+            ensureCapacity(1);
+            out.put((byte) (value ? 1 : 0));
+        }
+
+        // Grow the buffer by doubling when it is full
+        private void ensureCapacity(int bytes) {
+            if (out.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+        }
+    }
+
+    /**
+     * Decodes a system, rebuilding the tables in the order they were written.
+     */
+    private static class Reader {
+        private final ByteBuffer in;
+        private int version;
+        private String[] strings;
+
+        private final List<Teacher> teachers = new ArrayList<>();
+        private final List<Subject> subjects = new ArrayList<>();
+        private final List<Course> courses = new ArrayList<>();
+        private final List<Student> students = new ArrayList<>();
+        private final List<Attendance> attendances = new ArrayList<>();
+        private final List<FeePayment> feePayments = new ArrayList<>();
+        private final List<FeeReceipt> feeReceipts = new ArrayList<>();
+        private final List<Grade> grades = new ArrayList<>();
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+        }
+
+        StudentInformationSystem read() throws IOException {
+            int magic = in.getInt();
+            if (magic != MAGIC && magic != CHECKED_MAGIC) {
+                throw new IOException("Not a student system snapshot");
+            }
+            version = in.getInt();
+            if (version > VERSION) {
+                throw new IOException("Snapshot version " + version + " is newer than supported version " + VERSION);
+            }
+
+            strings = new String[readLength(4)];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readLength(1)];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            StudentInformationSystem system = new StudentInformationSystem(false);
+
+            system.getTeachers().addAll(readTeachers());
+            system.getSubjects().addAll(readSubjects());
+            system.getCourses().addAll(readCourses());
+            system.getAllStudents().addAll(readStudents());
+            system.getAttendances().addAll(readAttendances());
+            system.getFeePayments().addAll(readFeePayments());
+            system.getFeeReceipts().addAll(readFeeReceipts());
+            system.getGrades().addAll(readGrades());
+            readLinks();
+            readAcademicRecords(system.getAcademicRecords());
+            readUsers(system.getUsers());
+            system.setLastJournalSequence(in.getLong());
+
+            return system;
+        }
+
+        private List<Teacher> readTeachers() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                String name = readString();
+                String address = readString();
+                String contactNumber = readString();
+                Date dateOfBirth = readDate();
+                int teacherId = in.getInt();
+                String specialization = readString();
+                Date joinDate = readDate();
+                String department = readString();
+                teachers.add(new Teacher(id, name, address, contactNumber, dateOfBirth,
+                                         teacherId, specialization, joinDate, department));
+            }
+            return teachers.subList(0, registered);
+        }
+
+        private List<Subject> readSubjects() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                int subjectId = in.getInt();
+                String name = readString();
+                Teacher teacher = ref(teachers, in.getInt());
+                int creditHours = in.getInt();
+                String description = readString();
+                subjects.add(new Subject(subjectId, name, teacher, creditHours, description));
+            }
+            return subjects.subList(0, registered);
+        }
+
+        private List<Course> readCourses() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                Course course = new Course(in.getInt(), readString(), readString(), in.getInt());
+                int subjectCount = readLength(4);
+                for (int j = 0; j < subjectCount; j++) {
+                    course.getSubjects().add(ref(subjects, in.getInt()));
+                }
+                courses.add(course);
+            }
+            return courses.subList(0, registered);
+        }
+
+        private List<Student> readStudents() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                int id = in.getInt();
+                String name = readString();
+                String address = readString();
+                String contactNumber = readString();
+                Date dateOfBirth = readDate();
+                String rollNumber = readString();
+                String gender = readString();
+                String department = readString();
+                Student student = new Student(id, name, address, contactNumber, dateOfBirth,
+                                              rollNumber, gender, department);
+                student.setGpa(in.getDouble());
+                int courseCount = readLength(4);
+                for (int j = 0; j < courseCount; j++) {
+                    student.getCourses().add(ref(courses, in.getInt()));
+                }
+                students.add(student);
+            }
+            return students.subList(0, registered);
+        }
+
+        private List<Attendance> readAttendances() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                Student student = ref(students, in.getInt());
+                Subject subject = ref(subjects, in.getInt());
+                Date date = readDate();
+                boolean isPresent = (in.get() != 0);
+                String remarks = readString();
+                attendances.add(new Attendance(student, subject, date, isPresent, remarks));
+            }
+            return attendances.subList(0, registered);
+        }
+
+        private List<FeePayment> readFeePayments() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                Student student = ref(students, in.getInt());
+                double amount = in.getDouble();
+                Date date = readDate();
+                boolean isPaid = (in.get() != 0);
+                String paymentType = readString();
+                String receiptNumber = readString();
+                feePayments.add(new FeePayment(student, amount, date, isPaid, paymentType, receiptNumber));
+            }
+            return feePayments.subList(0, registered);
+        }
+
+        private List<FeeReceipt> readFeeReceipts() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                String receiptNumber = readString();
+                Student student = ref(students, in.getInt());
+                Date issueDate = readDate();
+                String paymentMethod = readString();
+                String issuedBy = readString();
+                String status = readString();
+                String remarks = readString();
+
+                List<FeePayment> payments = new ArrayList<>();
+                int paymentCount = readLength(4);
+                for (int j = 0; j < paymentCount; j++) {
+                    payments.add(ref(feePayments, in.getInt()));
+                }
+
+                FeeReceipt receipt = new FeeReceipt(receiptNumber, student, issueDate, paymentMethod, issuedBy, status);
+                receipt.setPayments(payments);
+                // setPayments recalculates the status, restore the stored one
+                receipt.setStatus(status);
+                receipt.setRemarks(remarks);
+                feeReceipts.add(receipt);
+            }
+            return feeReceipts.subList(0, registered);
+        }
+
+        private List<Grade> readGrades() throws IOException {
+            int count = readLength(4);
+            int registered = readRegistered(count);
+            for (int i = 0; i < count; i++) {
+                Student student = ref(students, in.getInt());
+                Subject subject = ref(subjects, in.getInt());
+                String assignmentName = readString();
+                String gradeType = readString();
+                double score = in.getDouble();
+                double maxScore = in.getDouble();
+                Date date = readDate();
+                String remarks = readString();
+                String semester = readString();
+                grades.add(new Grade(student, subject, assignmentName, gradeType,
+                                     score, maxScore, date, remarks, semester));
+            }
+            return grades.subList(0, registered);
+        }
+
+        private void readLinks() throws IOException {
+            for (Teacher teacher : teachers) {
+                int subjectCount = readLength(4);
+                for (int i = 0; i < subjectCount; i++) {
+                    teacher.getSubjects().add(ref(subjects, in.getInt()));
+                }
+            }
+            for (Student student : students) {
+                int paymentCount = readLength(4);
+                for (int i = 0; i < paymentCount; i++) {
+                    student.getFeePayments().add(ref(feePayments, in.getInt()));
+                }
+                int attendanceCount = readLength(4);
+                for (int i = 0; i < attendanceCount; i++) {
+                    student.getAttendanceRecords().add(ref(attendances, in.getInt()));
+                }
+            }
+        }
+
+        private void readAcademicRecords(IntHashMap<AcademicRecord> records) throws IOException {
+            int count = readLength(4);
+            for (int i = 0; i < count; i++) {
+                int key = in.getInt();
+                AcademicRecord record = new AcademicRecord(ref(students, in.getInt()));
+                long lastUpdated = in.getLong();
+                int gradeCount = readLength(4);
+                for (int j = 0; j < gradeCount; j++) {
+                    record.addGrade(ref(grades, in.getInt()));
+                }
+                record.setLastUpdated(lastUpdated == Long.MIN_VALUE ? null : new Date(lastUpdated));
+                records.put(key, record);
+            }
+        }
+
+        private void readUsers(List<User> users) throws IOException {
+            int count = readLength(4);
+            for (int i = 0; i < count; i++) {
+                String username = readString();
+                String password = readString();
+                String fullName = readString();
+                String role = readString();
+                String department = readString();
+                int associatedId = in.getInt();
+                boolean hasAssociatedId = (in.get() != 0);
+                users.add(new User(username, password, fullName, role, department,
+                                   hasAssociatedId ? associatedId : null));
+            }
+        }
+
+        // Length of a table or an array, each entry taking at least the given number of bytes
+        // Lengths are checked against what is left, so damage can't make the reader allocate huge arrays
+        private int readLength(int entryBytes) throws StreamCorruptedException {
+            int length = in.getInt();
+            if (length < 0 || length > in.remaining() / entryBytes) {
+                throw new StreamCorruptedException("Snapshot has a bad length " + length + " at offset " + (in.position() - 4));
+            }
+            return length;
+        }
+
+        private int readRegistered(int count) throws StreamCorruptedException {
+            int registered = in.getInt();
+            if (registered < 0 || registered > count) {
+                throw new StreamCorruptedException("Snapshot has " + registered + " registered entries in a table of " + count);
+            }
+            return registered;
+        }
+
+        private String readString() {
+            int id = in.getInt();
+            return id == NULL_REF ? null : strings[id];
+        }
+
+        private Date readDate() {
+            return version == 1 ? fromEpochDay(in.getInt()) : fromMillis(in.getLong());
+        }
+
+        private static <T> T ref(List<T> table, int index) {
+            return index == NULL_REF ? null : table.get(index);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.IOException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background task that writes the snapshot after changes, so saving does not
+ * make the user wait for the whole system to be written.
+ * Changes made within coalesceMillis of the first unsaved change are written
+ * together in a single snapshot. flush() writes pending changes right away and
+ * waits for them, for logout, exit and saves that must be on disk before the
+ * user is told they are done.
+ * A write that fails is tried again after a delay that doubles with every failure,
+ * so unsaved changes don't have to wait for the next change to be written.
+ */
+public class SnapshotWriter {
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 60 * 1000;
+
+    private final StudentInformationSystem system;
+    private final long coalesceMillis;
+    private final Object writeLock = new Object();
+
+    private ScheduledThreadPoolExecutor executor;
+    private Thread shutdownHook;
+    private long changeCount;   // Changes marked so far
+    private long writtenCount;  // Changes contained in the last snapshot written
+    private boolean writeScheduled;
+    private long retryMillis;   // Delay before the next try after a failed write, 0 after a successful one
+
+    // Constructor
+    public SnapshotWriter(StudentInformationSystem system, long coalesceMillis) {
+        this.system = system;
+        this.coalesceMillis = coalesceMillis;
+    }
+
+    // Record that the system changed and schedule a write if none is pending
+    public synchronized void markDirty() {
+        changeCount++;
+        if (!writeScheduled) {
+            writeScheduled = true;
+            executor().schedule(this::write, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Write every change marked so far, returns false if the snapshot could not be written
+    public boolean flush() {
+        return write();
+    }
+
+    // Write pending changes and stop the background thread
+    public void stop() {
+        ScheduledThreadPoolExecutor stopped;
+        synchronized (this) {
+            stopped = executor;
+            executor = null;
+            if (shutdownHook != null) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // The JVM is already shutting down and the hook is running
+                }
+                shutdownHook = null;
+            }
+        }
+
+        flush();
+        if (stopped != null) {
+            stopped.shutdown();
+            try {
+                stopped.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // The thread is only started once something changes, so loading data to read it costs nothing
+    private ScheduledThreadPoolExecutor executor() {
+        if (executor == null) {
+            executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+                Thread thread = new Thread(runnable, "snapshot-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Writes still waiting for their window are done by stop() instead
+            executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+            // Don't lose the last changes if the application is closed without logging out
+            shutdownHook = new Thread(this::flush, "snapshot-writer-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+        return executor;
+    }
+
+    // Only one write runs at a time, and a write finding nothing new to save does nothing
+    private boolean write() {
+        synchronized (writeLock) {
+            long target;
+            synchronized (this) {
+                writeScheduled = false;
+                target = changeCount;
+                if (target == writtenCount) {
+                    return true;
+                }
+            }
+
+            try {
+                system.writeSnapshot();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Saving data failed: " + e.getMessage());
+                scheduleRetry();
+                return false;
+            }
+
+            synchronized (this) {
+                writtenCount = target;
+                retryMillis = 0;
+            }
+            return true;
+        }
+    }
+
+    // The changes stay unsaved, try again later unless the writer was stopped
+    private synchronized void scheduleRetry() {
+        retryMillis = retryMillis == 0 ? Math.max(coalesceMillis, MIN_RETRY_MILLIS)
+                                       : Math.min(retryMillis * 2, MAX_RETRY_MILLIS);
+        if (executor != null && !writeScheduled) {
+            writeScheduled = true;
+            executor.schedule(this::write, retryMillis, TimeUnit.MILLISECONDS);
+            System.err.println("Trying again in " + retryMillis / 1000 + " seconds.");
+        }
+    }
+}
@@ -1,4 +1,7 @@
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -14,17 +17,31 @@ public class Student extends Person {
     private List<Course> courses;
     private List<FeePayment> feePayments;
     private List<Attendance> attendanceRecords;
-    private String gender;  // For report generation based on gender
-    private String department;  // For department-based reporting
+    private int gender;  // Id in Vocabulary.GENDERS, for report generation based on gender
+    private int department;  // Id in Vocabulary.DEPARTMENTS, for department-based reporting
     private double gpa;  // For academic status (warning, dean's list)
     
+    // Fields in files saved by older versions, which kept the gender and department as Strings
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("rollNumber", String.class),
+        new ObjectStreamField("courses", List.class),
+        new ObjectStreamField("feePayments", List.class),
+        new ObjectStreamField("attendanceRecords", List.class),
+        new ObjectStreamField("gender", String.class),
+        new ObjectStreamField("department", String.class),
+        new ObjectStreamField("gpa", double.class)
+    };
+    
+    // Payments recorded for this student in the system, set when the student is registered
+    private transient FeeLedger feeLedger;
+    
     // Constructor
     public Student(int id, String name, String address, String contactNumber, Date dateOfBirth,
                   String rollNumber, String gender, String department) {
         super(id, name, address, contactNumber, dateOfBirth);
         this.rollNumber = rollNumber;
-        this.gender = gender;
-        this.department = department;
+        this.gender = Vocabulary.GENDERS.id(gender);
+        this.department = Vocabulary.DEPARTMENTS.id(department);
         this.courses = new ArrayList<>();
         this.feePayments = new ArrayList<>();
         this.attendanceRecords = new ArrayList<>();
@@ -35,14 +52,32 @@ public class Student extends Person {
     public Student() {
         super();
         this.rollNumber = "";
-        this.gender = "";
-        this.department = "";
+        this.gender = Vocabulary.GENDERS.id("");
+        this.department = Vocabulary.DEPARTMENTS.id("");
         this.courses = new ArrayList<>();
         this.feePayments = new ArrayList<>();
         this.attendanceRecords = new ArrayList<>();
         this.gpa = 0.0;
     }
     
+    // Copy of the fields, with the course, payment and attendance lists copied, see snapshot()
+    private Student(Student source) {
+        super(source);
+        this.rollNumber = source.rollNumber;
+        this.courses = new ArrayList<>(source.courses);
+        this.feePayments = new ArrayList<>(source.feePayments);
+        this.attendanceRecords = new ArrayList<>(source.attendanceRecords);
+        this.gender = source.gender;
+        this.department = source.department;
+        this.gpa = source.gpa;
+    }
+    
+    // The student as it is now, for writing a snapshot while it keeps being edited
+    // The copy points to the same courses and records, it has no fee ledger
+    Student snapshot() {
+        return new Student(this);
+    }
+    
     // Getters and setters
     public String getRollNumber() {
         return rollNumber;
@@ -83,19 +118,29 @@ public class Student extends Person {
     }
     
     public String getGender() {
-        return gender;
+        return Vocabulary.GENDERS.value(gender);
     }
     
     public void setGender(String gender) {
-        this.gender = gender;
+        this.gender = Vocabulary.GENDERS.id(gender);
+    }
+    
+    // Same for genders that are equal ignoring case, see Vocabulary.code()
+    public int getGenderCode() {
+        return Vocabulary.GENDERS.codeOf(gender);
     }
     
     public String getDepartment() {
-        return department;
+        return Vocabulary.DEPARTMENTS.value(department);
     }
     
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.id(department);
+    }
+    
+    // Same for departments that are equal ignoring case, see Vocabulary.code()
+    public int getDepartmentCode() {
+        return Vocabulary.DEPARTMENTS.codeOf(department);
     }
     
     public double getGpa() {
@@ -116,8 +161,16 @@ public class Student extends Person {
         return gpa >= 3.5; // Assuming 3.5 is the Dean's List threshold
     }
     
-    // Calculate total fees paid
+    void setFeeLedger(FeeLedger feeLedger) {
+        this.feeLedger = feeLedger;
+    }
+    
+    // Calculate total fees paid, read from the ledger of a registered student
     public double getTotalFeesPaid() {
+        if (feeLedger != null) {
+            return feeLedger.getTotalPaid();
+        }
+        
         double total = 0;
         for (FeePayment payment : feePayments) {
             if (payment.isPaid()) {
@@ -129,6 +182,10 @@ public class Student extends Person {
     
     // Calculate total outstanding fees
     public double getOutstandingFees() {
+        if (feeLedger != null) {
+            return feeLedger.getTotalOutstanding();
+        }
+        
         double total = 0;
         for (FeePayment payment : feePayments) {
             if (!payment.isPaid()) {
@@ -138,21 +195,17 @@ public class Student extends Person {
         return total;
     }
     
-    // Calculate attendance percentage for a subject
-    public double getAttendancePercentage(Subject subject) {
-        int totalClasses = 0;
-        int presentClasses = 0;
-        
-        for (Attendance attendance : attendanceRecords) {
-            if (attendance.getSubject().equals(subject)) {
-                totalClasses++;
-                if (attendance.isPresent()) {
-                    presentClasses++;
-                }
-            }
-        }
-        
-        return totalClasses > 0 ? ((double) presentClasses / totalClasses) * 100 : 0;
+    // Older versions saved the gender and department as Strings
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        rollNumber = (String) fields.get("rollNumber", null);
+        courses = (List<Course>) fields.get("courses", null);
+        feePayments = (List<FeePayment>) fields.get("feePayments", null);
+        attendanceRecords = (List<Attendance>) fields.get("attendanceRecords", null);
+        gender = Vocabulary.GENDERS.id((String) fields.get("gender", null));
+        department = Vocabulary.DEPARTMENTS.id((String) fields.get("department", null));
+        gpa = fields.get("gpa", 0.0);
     }
     
     @Override
@@ -164,8 +217,8 @@ public class Student extends Person {
     public String toString() {
         return super.toString() + 
                "\nRoll Number: " + rollNumber +
-               "\nGender: " + gender +
-               "\nDepartment: " + department +
+               "\nGender: " + getGender() +
+               "\nDepartment: " + getDepartment() +
                "\nGPA: " + gpa +
                "\nNumber of Courses: " + courses.size() +
                "\nOutstanding Fees: $" + getOutstandingFees();
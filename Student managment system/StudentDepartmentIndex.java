@@ -0,0 +1,128 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Students grouped by department, and within each department by gender, for the
+ * department reports. Groups are keyed by the vocabulary codes, so departments and
+ * genders are matched ignoring case the way the old scans did. Each student is
+ * indexed under the department and gender it had when last added or updated, and
+ * every group keeps its students in registration order.
+ */
+public class StudentDepartmentIndex {
+    private final Map<Student, Entry> entries = new IdentityHashMap<>();
+    private final IntHashMap<Department> departments = new IntHashMap<>();
+    private long nextOrder;
+
+    // Add a newly registered student
+    public void add(Student student) {
+        insert(new Entry(student, nextOrder++));
+    }
+
+    // Re-index a student after its department or gender changed or it was replaced by a new object,
+    // keeping its place in the results
+    public void update(Student existing, Student student) {
+        Entry entry = entries.remove(existing);
+        if (existing != student) {
+            remove(student);
+        }
+        if (entry == null) {
+            add(student);
+            return;
+        }
+
+        unindex(entry);
+        insert(new Entry(student, entry.order));
+    }
+
+    public void remove(Student student) {
+        Entry entry = entries.remove(student);
+        if (entry != null) {
+            unindex(entry);
+        }
+    }
+
+    // Students of the department with the given vocabulary code, in registration order
+    public List<Student> get(int departmentCode) {
+        Department department = departments.get(departmentCode);
+        return department == null ? new ArrayList<>() : students(department.students);
+    }
+
+    // Students of the department with the given gender, in registration order
+    public List<Student> get(int departmentCode, int genderCode) {
+        Department department = departments.get(departmentCode);
+        if (department == null) {
+            return new ArrayList<>();
+        }
+        TreeMap<Long, Student> group = department.byGender.get(genderCode);
+        return group == null ? new ArrayList<>() : students(group);
+    }
+
+    private void insert(Entry entry) {
+        entries.put(entry.student, entry);
+
+        Department department = departments.get(entry.departmentCode);
+        if (department == null) {
+            department = new Department();
+            departments.put(entry.departmentCode, department);
+        }
+        department.students.put(entry.order, entry.student);
+
+        TreeMap<Long, Student> group = department.byGender.get(entry.genderCode);
+        if (group == null) {
+            group = new TreeMap<>();
+            department.byGender.put(entry.genderCode, group);
+        }
+        group.put(entry.order, entry.student);
+    }
+
+    private void unindex(Entry entry) {
+        Department department = departments.get(entry.departmentCode);
+        if (department == null) {
+            return;
+        }
+
+        department.students.remove(entry.order);
+        TreeMap<Long, Student> group = department.byGender.get(entry.genderCode);
+        if (group != null) {
+            group.remove(entry.order);
+            if (group.isEmpty()) {
+                department.byGender.remove(entry.genderCode);
+            }
+        }
+        if (department.students.isEmpty()) {
+            departments.remove(entry.departmentCode);
+        }
+    }
+
+    private static List<Student> students(TreeMap<Long, Student> group) {
+        return new ArrayList<>(group.values());
+    }
+
+    /**
+     * A student with the department and gender codes it is indexed under.
+     */
+    private static final class Entry {
+        private final Student student;
+        private final int departmentCode;
+        private final int genderCode;
+        private final long order;
+
+        Entry(Student student, long order) {
+            this.student = student;
+            this.departmentCode = student.getDepartmentCode();
+            this.genderCode = student.getGenderCode();
+            this.order = order;
+        }
+    }
+
+    /**
+     * Students of one department, all of them and by gender code.
+     */
+    private static final class Department {
+        private final TreeMap<Long, Student> students = new TreeMap<>();
+        private final IntHashMap<TreeMap<Long, Student>> byGender = new IntHashMap<>();
+    }
+}
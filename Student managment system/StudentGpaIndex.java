@@ -0,0 +1,134 @@
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Students sorted by GPA for the academic warning, Dean's List and GPA range reports.
+ * Each student is indexed under the GPA it had when last added or updated, so the
+ * index has to be told whenever a GPA changes. A range query seeks to its lower
+ * bound and only walks the students it returns. Students with the same GPA are
+ * kept in registration order.
+ */
+public class StudentGpaIndex {
+    private final Map<Student, Entry> entries = new IdentityHashMap<>();
+    private final TreeSet<Entry> sorted = new TreeSet<>();
+    private long nextOrder;
+
+    // Add a newly registered student
+    public void add(Student student) {
+        Entry entry = new Entry(student, student.getGpa(), nextOrder++);
+        entries.put(student, entry);
+        insert(entry);
+    }
+
+    // Re-index a student after its GPA changed or it was replaced by a new object,
+    // keeping its place among students with the same GPA
+    public void update(Student existing, Student student) {
+        Entry entry = entries.remove(existing);
+        if (existing != student) {
+            remove(student);
+        }
+        if (entry == null) {
+            add(student);
+            return;
+        }
+
+        sorted.remove(entry);
+        Entry updated = new Entry(student, student.getGpa(), entry.order);
+        entries.put(student, updated);
+        insert(updated);
+    }
+
+    // Re-sort a student after addGrade changed its GPA, students that are not indexed are ignored
+    public void refresh(Student student) {
+        Entry entry = entries.get(student);
+        if (entry != null && Double.compare(entry.gpa, student.getGpa() + 0.0) != 0) {
+            update(student, student);
+        }
+    }
+
+    public void remove(Student student) {
+        Entry entry = entries.remove(student);
+        if (entry != null) {
+            sorted.remove(entry);
+        }
+    }
+
+    // Students with minGpa <= GPA <= maxGpa, lowest GPA first
+    public List<Student> between(double minGpa, double maxGpa) {
+        if (!(minGpa <= maxGpa)) {
+            return new ArrayList<>();
+        }
+        return students(sorted.subSet(Entry.bound(minGpa, Long.MIN_VALUE), true,
+                                      Entry.bound(maxGpa, Long.MAX_VALUE), true));
+    }
+
+    // Students with a GPA below maxGpa, lowest GPA first
+    public List<Student> below(double maxGpa) {
+        if (Double.isNaN(maxGpa)) {
+            return new ArrayList<>();
+        }
+        return students(sorted.headSet(Entry.bound(maxGpa, Long.MIN_VALUE), false));
+    }
+
+    // Students with a GPA of at least minGpa, highest GPA first
+    public List<Student> atLeast(double minGpa) {
+        return students(sorted.tailSet(Entry.bound(minGpa, Long.MIN_VALUE), true).descendingSet());
+    }
+
+    // The count students with the highest GPA, highest first
+    public List<Student> top(int count) {
+        List<Student> result = new ArrayList<>();
+        for (Entry entry : sorted.descendingSet()) {
+            if (result.size() >= count) {
+                break;
+            }
+            result.add(entry.student);
+        }
+        return result;
+    }
+
+    // A GPA that is not a number matches none of the queries, so it is left out of the order
+    private void insert(Entry entry) {
+        if (!Double.isNaN(entry.gpa)) {
+            sorted.add(entry);
+        }
+    }
+
+    private static List<Student> students(NavigableSet<Entry> range) {
+        List<Student> result = new ArrayList<>();
+        for (Entry entry : range) {
+            result.add(entry.student);
+        }
+        return result;
+    }
+
+    /**
+     * A student with the GPA it is indexed under.
+     */
+    private static final class Entry implements Comparable<Entry> {
+        private final Student student;
+        private final double gpa;
+        private final long order;
+
+        Entry(Student student, double gpa, long order) {
+            this.student = student;
+            this.gpa = gpa + 0.0; // -0.0 compares equal to 0.0 in the reports, so it is sorted as 0.0
+            this.order = order;
+        }
+
+        // Search key placed before or after every student with the given GPA
+        static Entry bound(double gpa, long order) {
+            return new Entry(null, gpa, order);
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byGpa = Double.compare(gpa, other.gpa);
+            return byGpa != 0 ? byGpa : Long.compare(order, other.order);
+        }
+    }
+}
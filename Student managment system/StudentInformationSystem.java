@@ -1,10 +1,17 @@
 import java.io.*;
-import java.text.SimpleDateFormat;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
 /**
@@ -23,48 +30,170 @@ public class StudentInformationSystem implements Serializable {
     private List<FeePayment> feePayments;
     private List<User> users;
     private List<Grade> grades;
-    private Map<Integer, AcademicRecord> academicRecords; // Mapped by student ID
+    private Map<Integer, AcademicRecord> academicRecords; // Only read from files written by older versions, see recordsByStudent
+    private transient IntHashMap<AcademicRecord> recordsByStudent; // Academic records mapped by student ID
     private List<FeeReceipt> feeReceipts;
     
+    // Persistence files
+    private static final String DATA_FILE = "student_system.ser";
+    private static final String LEGACY_BACKUP_FILE = "student_system.ser.bak";
+    private static final String DAMAGED_SUFFIX = ".damaged";
+    
+    // Only one snapshot file is written at a time, in any system using the same data directory
+    private static final Object SNAPSHOT_FILE_LOCK = new Object();
+    private static final String JOURNAL_FILE = "student_system.journal";
+    private static final String ATTENDANCE_FILE = "student_system.attendance";
+    private static final String ATTENDANCE_REMARKS_FILE = "student_system.attendance.remarks";
+    
+    // Journal of changes since the last snapshot, null when journal mode is off
+    private transient MutationJournal journal;
+    private transient JournalCompactor compactor;
+    private long lastJournalSequence; // Last journal record contained in this snapshot
+    
+    // Writes snapshots in the background when journal mode is off, null for synchronous saves
+    private transient SnapshotWriter snapshotWriter;
+    
+    // Snapshots being encoded from snapshotView(), null until the first one
+    private transient List<SnapshotCodec.Writer> openSnapshots;
+    
+    // Attendance kept in memory-mapped files instead of the attendances list, null when the list is used
+    private transient MappedAttendanceStore attendanceStore;
+    
+    // Indexes by primary key, rebuilt from the lists after loading
+    private transient IntHashMap<Student> studentsById;
+    private transient IntHashMap<Teacher> teachersById;
+    private transient IntHashMap<Course> coursesById;
+    private transient IntHashMap<Subject> subjectsById;
+    // Position in the list of the entity each ID is indexed under, so a replacement doesn't search the list
+    private transient IntIntHashMap studentPositions;
+    private transient IntIntHashMap teacherPositions;
+    private transient IntIntHashMap coursePositions;
+    private transient IntIntHashMap subjectPositions;
+    private transient Map<String, Student> studentsByRollNumber;
+    private transient Map<Student, String> indexedRollNumbers; // Roll number each student is indexed under
+    private transient StudentNameIndex nameIndex;
+    private transient StudentGpaIndex gpaIndex;
+    private transient StudentDepartmentIndex departmentIndex;
+    private transient EnrollmentIndex enrollmentIndex;
+    private transient IntHashMap<FeeLedger> feeLedgers; // Fee payments and running totals by student ID
+    private transient Map<FeePayment, Integer> feePaymentPositions; // First position of each payment in feePayments
+    private transient Map<String, FeeReceipt> receiptsByNumber;
+    private transient FeeReceiptIndex receiptIndex; // Receipts by issue day and by status
+    private transient long nextReceiptSequence; // Next sequence number of receipts issued by this node
+    private transient Map<String, User> usersByUsername;
+    private transient VerifiedSessionCache sessionCache;
+    private transient AttendanceIndex attendanceIndex;
+    private transient AttendanceMatrix attendanceMatrix;
+    
     // Constructor
     public StudentInformationSystem() {
+        this(true);
+    }
+    
+    // An empty system, with the default users when defaultUsers is set
+    // Snapshot readers leave them out, hashing their passwords would only slow down every load
+    StudentInformationSystem(boolean defaultUsers) {
         this.students = new ArrayList<>();
         this.teachers = new ArrayList<>();
         this.courses = new ArrayList<>();
         this.subjects = new ArrayList<>();
-        this.attendances = new ArrayList<>();
-        this.feePayments = new ArrayList<>();
+        this.attendances = new AppendOnlyList<>();
+        this.feePayments = new AppendOnlyList<>();
         this.users = new ArrayList<>();
-        this.grades = new ArrayList<>();
-        this.academicRecords = new HashMap<>();
-        this.feeReceipts = new ArrayList<>();
+        this.grades = new AppendOnlyList<>();
+        this.recordsByStudent = new IntHashMap<>();
+        this.feeReceipts = new AppendOnlyList<>();
+        rebuildIndexes();
+        if (!defaultUsers) {
+            return;
+        }
         
+        // Default users go through addUser, so they are indexed and their passwords hashed
         // Add default admin user
-        users.add(new User("admin", "admin", "Administrator", "Administrator", null, null));
+        addUser(new User("admin", "admin", "Administrator", "Administrator", null, null));
         // Add default teacher user
-        users.add(new User("teacher", "teacher", "Default Teacher", "Teacher", "Computer Science", null));
+        addUser(new User("teacher", "teacher", "Default Teacher", "Teacher", "Computer Science", null));
         // Add default financial officer user
-        users.add(new User("finance", "finance", "Financial Officer", "Financial Officer", null, null));
+        addUser(new User("finance", "finance", "Financial Officer", "Financial Officer", null, null));
         // Add default registrar user
-        users.add(new User("registrar", "registrar", "Registrar", "Registrar", null, null));
+        addUser(new User("registrar", "registrar", "Registrar", "Registrar", null, null));
     }
     
     // Methods for Student management
-    public void registerStudent(Student student) {
+    // Returns false if another student already has the same roll number
+    public synchronized boolean registerStudent(Student student) {
+        if (student.getRollNumber() != null && studentsByRollNumber.containsKey(student.getRollNumber())) {
+            return false;
+        }
+        
+        studentPositions.putIfAbsent(student.getId(), students.size());
         students.add(student);
+        studentsById.putIfAbsent(student.getId(), student);
+        indexRollNumber(student);
+        nameIndex.add(student);
+        gpaIndex.add(student);
+        departmentIndex.add(student);
+        enrollmentIndex.add(student);
+        student.setFeeLedger(feeLedger(student.getId()));
+        if (journal != null) journal.logRegisterStudent(student);
+        for (Course course : student.getCourses()) {
+            // Checked for every record, a failed write turns the journal off
+            if (journal != null) journal.logEnrollStudent(student, course);
+        }
+        return true;
+    }
+    
+    public synchronized void updateStudent(Student student) {
+        Student existing = studentsById.get(student.getId());
+        if (existing != null) {
+            // The roll number may have been changed on the object itself
+            unindexRollNumber(existing);
+            if (existing != student) {
+                students.set(studentPositions.get(student.getId(), -1), student);
+                studentsById.put(student.getId(), student);
+            }
+            indexRollNumber(student);
+            nameIndex.update(existing, student);
+            gpaIndex.update(existing, student);
+            departmentIndex.update(existing, student);
+            enrollmentIndex.update(existing, student);
+            student.setFeeLedger(feeLedger(student.getId()));
+        }
+        if (journal != null) journal.logUpdateStudent(student);
     }
     
-    public void updateStudent(Student student) {
-        for (int i = 0; i < students.size(); i++) {
-            if (students.get(i).getId() == student.getId()) {
-                students.set(i, student);
-                break;
+    public synchronized void deleteStudent(Student student) {
+        Iterator<Student> iterator = students.iterator();
+        while (iterator.hasNext()) {
+            Student s = iterator.next();
+            if (s.getId() == student.getId()) {
+                iterator.remove();
+                unindexRollNumber(s);
+                nameIndex.remove(s);
+                gpaIndex.remove(s);
+                departmentIndex.remove(s);
+                enrollmentIndex.remove(s);
             }
         }
+        studentsById.remove(student.getId());
+        // Removing shifts the students after it, the removal already went through the whole list
+        studentPositions = positions(students, Student::getId);
+        if (journal != null) journal.logDeleteStudent(student);
+    }
+    
+    // Index a student under its current roll number, unless another student already holds it
+    private void indexRollNumber(Student student) {
+        String rollNumber = student.getRollNumber();
+        if (rollNumber != null && studentsByRollNumber.putIfAbsent(rollNumber, student) == null) {
+            indexedRollNumbers.put(student, rollNumber);
+        }
     }
     
-    public void deleteStudent(Student student) {
-        students.removeIf(s -> s.getId() == student.getId());
+    private void unindexRollNumber(Student student) {
+        String rollNumber = indexedRollNumbers.remove(student);
+        if (rollNumber != null) {
+            studentsByRollNumber.remove(rollNumber);
+        }
     }
     
     private User currentUser;
@@ -78,10 +207,7 @@ public class StudentInformationSystem implements Serializable {
     }
 
     public Student findStudentById(int id) {
-        Student student = students.stream()
-            .filter(s -> s.getId() == id)
-            .findFirst()
-            .orElse(null);
+        Student student = studentsById.get(id);
 
         if (student != null && currentUser != null && !currentUser.canAccessStudent(student)) {
             return null; // User doesn't have permission to access this student
@@ -90,135 +216,278 @@ public class StudentInformationSystem implements Serializable {
         return student;
     }
     
+    // Find a student by ID without applying the current user's access rules
+    Student lookupStudent(int id) {
+        return studentsById.get(id);
+    }
+    
     public Student findStudentByRollNumber(String rollNumber) {
-        for (Student student : students) {
-            if (student.getRollNumber().equals(rollNumber)) {
-                return student;
-            }
-        }
-        return null;
+        return studentsByRollNumber.get(rollNumber);
     }
     
     public List<Student> searchStudentsByName(String name) {
-        return students.stream()
-                .filter(s -> s.getName().toLowerCase().contains(name.toLowerCase()))
+        return nameIndex.search(name).stream()
                 .filter(s -> currentUser == null || currentUser.canAccessStudent(s))
                 .collect(Collectors.toList());
     }
     
     // Methods for Teacher management
-    public void addTeacher(Teacher teacher) {
+    public synchronized void addTeacher(Teacher teacher) {
+        teacherPositions.putIfAbsent(teacher.getId(), teachers.size());
         teachers.add(teacher);
+        teachersById.putIfAbsent(teacher.getId(), teacher);
+        if (journal != null) journal.logAddTeacher(teacher);
     }
     
-    public void updateTeacher(Teacher teacher) {
-        for (int i = 0; i < teachers.size(); i++) {
-            if (teachers.get(i).getId() == teacher.getId()) {
-                teachers.set(i, teacher);
-                break;
-            }
+    public synchronized void updateTeacher(Teacher teacher) {
+        Teacher existing = teachersById.get(teacher.getId());
+        if (existing != null && existing != teacher) {
+            teachers.set(teacherPositions.get(teacher.getId(), -1), teacher);
+            teachersById.put(teacher.getId(), teacher);
         }
+        if (journal != null) journal.logUpdateTeacher(teacher);
     }
     
-    public void deleteTeacher(Teacher teacher) {
+    public synchronized void deleteTeacher(Teacher teacher) {
         teachers.removeIf(t -> t.getId() == teacher.getId());
+        teachersById.remove(teacher.getId());
+        teacherPositions = positions(teachers, Teacher::getId);
+        if (journal != null) journal.logDeleteTeacher(teacher);
     }
     
     public Teacher findTeacherById(int id) {
-        for (Teacher teacher : teachers) {
-            if (teacher.getId() == id) {
-                return teacher;
-            }
-        }
-        return null;
+        return teachersById.get(id);
     }
     
     // Methods for Course management
-    public void addCourse(Course course) {
+    public synchronized void addCourse(Course course) {
+        coursePositions.putIfAbsent(course.getCourseId(), courses.size());
         courses.add(course);
+        coursesById.putIfAbsent(course.getCourseId(), course);
+        enrollmentIndex.addCourse(course);
+        if (journal != null) journal.logAddCourse(course);
     }
     
-    public void updateCourse(Course course) {
-        for (int i = 0; i < courses.size(); i++) {
-            if (courses.get(i).getCourseId() == course.getCourseId()) {
-                courses.set(i, course);
-                break;
-            }
+    public synchronized void updateCourse(Course course) {
+        Course existing = coursesById.get(course.getCourseId());
+        if (existing != null && existing != course) {
+            courses.set(coursePositions.get(course.getCourseId(), -1), course);
+            coursesById.put(course.getCourseId(), course);
         }
+        // The subjects may have been changed on the object itself
+        enrollmentIndex.addCourse(course);
+        if (journal != null) journal.logUpdateCourse(course);
     }
     
-    public void deleteCourse(Course course) {
+    public synchronized void deleteCourse(Course course) {
         courses.removeIf(c -> c.getCourseId() == course.getCourseId());
+        coursesById.remove(course.getCourseId());
+        coursePositions = positions(courses, Course::getCourseId);
+        enrollmentIndex.removeCourse(course.getCourseId());
+        if (journal != null) journal.logDeleteCourse(course);
     }
     
     public Course findCourseById(int id) {
-        for (Course course : courses) {
-            if (course.getCourseId() == id) {
-                return course;
-            }
-        }
-        return null;
+        return coursesById.get(id);
     }
     
     // Methods for Subject management
-    public void addSubject(Subject subject) {
+    public synchronized void addSubject(Subject subject) {
+        subjectPositions.putIfAbsent(subject.getSubjectId(), subjects.size());
         subjects.add(subject);
+        subjectsById.putIfAbsent(subject.getSubjectId(), subject);
+        if (journal != null) journal.logAddSubject(subject);
     }
     
-    public void updateSubject(Subject subject) {
-        for (int i = 0; i < subjects.size(); i++) {
-            if (subjects.get(i).getSubjectId() == subject.getSubjectId()) {
-                subjects.set(i, subject);
-                break;
-            }
+    public synchronized void updateSubject(Subject subject) {
+        Subject existing = subjectsById.get(subject.getSubjectId());
+        if (existing != null && existing != subject) {
+            subjects.set(subjectPositions.get(subject.getSubjectId(), -1), subject);
+            subjectsById.put(subject.getSubjectId(), subject);
         }
+        if (journal != null) journal.logUpdateSubject(subject);
     }
     
-    public void deleteSubject(Subject subject) {
+    public synchronized void deleteSubject(Subject subject) {
         subjects.removeIf(s -> s.getSubjectId() == subject.getSubjectId());
+        subjectsById.remove(subject.getSubjectId());
+        subjectPositions = positions(subjects, Subject::getSubjectId);
+        if (journal != null) journal.logDeleteSubject(subject);
     }
     
     public Subject findSubjectById(int id) {
-        for (Subject subject : subjects) {
-            if (subject.getSubjectId() == id) {
-                return subject;
-            }
-        }
-        return null;
+        return subjectsById.get(id);
     }
     
     // Methods for Attendance management
-    public void markAttendance(Attendance attendance) {
+    // Records in the mapped store are not journaled, the store is forced to disk with each snapshot
+    public synchronized void markAttendance(Attendance attendance) {
+        addToAttendanceMatrix(attendance);
+        if (attendanceStore != null) {
+            attendanceStore.add(attendance);
+            return;
+        }
+        
         attendances.add(attendance);
+        attendanceIndex.add(attendance);
+        if (journal != null) journal.logMarkAttendance(attendance);
+    }
+    
+    // Find the attendance record of a student for a subject on a given date
+    public Attendance findAttendance(Student student, Subject subject, Date date) {
+        if (attendanceStore != null) {
+            return attendanceStore.find(student, subject, date);
+        }
+        return attendanceIndex.find(student.getId(), subject.getSubjectId(), date);
+    }
+    
+    public synchronized void updateAttendance(Attendance attendance, boolean isPresent, String remarks) {
+        preserveForSnapshots(attendance);
+        attendance.setPresent(isPresent);
+        attendance.setRemarks(remarks);
+        addToAttendanceMatrix(attendance);
+        if (attendanceStore != null) {
+            // Records from the store are copies, the row itself has to be changed as well
+            attendanceStore.update(attendance.getStudent(), attendance.getSubject(), attendance.getDate(), isPresent, remarks);
+            return;
+        }
+        if (journal != null) journal.logUpdateAttendance(attendance);
     }
     
     public List<Attendance> getAttendanceByStudent(Student student) {
-        return attendances.stream()
-                .filter(a -> a.getStudent().getId() == student.getId())
-                .collect(Collectors.toList());
+        if (attendanceStore != null) {
+            return attendanceStore.getByStudent(student);
+        }
+        return attendanceIndex.getByStudent(student.getId());
     }
     
     public List<Attendance> getAttendanceBySubject(Subject subject) {
-        return attendances.stream()
-                .filter(a -> a.getSubject().getSubjectId() == subject.getSubjectId())
-                .collect(Collectors.toList());
+        if (attendanceStore != null) {
+            return attendanceStore.getBySubject(subject);
+        }
+        return attendanceIndex.getBySubject(subject.getSubjectId());
     }
     
     public List<Attendance> getAttendanceByDate(Date date) {
-        return attendances.stream()
-                .filter(a -> a.getDate().equals(date))
-                .collect(Collectors.toList());
+        if (attendanceStore != null) {
+            return attendanceStore.getByDate(date);
+        }
+        return attendanceIndex.getByDate(date);
+    }
+    
+    // Days on which attendance was marked for the subject, earliest first
+    public List<Date> getAttendanceDays(Subject subject) {
+        return attendanceMatrix.getDays(subject.getSubjectId());
+    }
+    
+    // Number of students marked for the subject on the day of the given date
+    public int countMarkedAttendance(Subject subject, Date date) {
+        return attendanceMatrix.countMarked(subject.getSubjectId(), date);
+    }
+    
+    public int countPresentAttendance(Subject subject, Date date) {
+        return attendanceMatrix.countPresent(subject.getSubjectId(), date);
+    }
+    
+    // Number of days the student was marked for the subject
+    public int countMarkedAttendance(Student student, Subject subject) {
+        return attendanceMatrix.countMarked(student.getId(), subject.getSubjectId());
+    }
+    
+    public int countPresentAttendance(Student student, Subject subject) {
+        return attendanceMatrix.countPresent(student.getId(), subject.getSubjectId());
+    }
+    
+    public double getAttendancePercentage(Student student, Subject subject) {
+        int marked = countMarkedAttendance(student, subject);
+        return marked > 0 ? (double) countPresentAttendance(student, subject) / marked * 100 : 0;
+    }
+    
+    // Students marked absent for the subject on the day of the given date, only the ones the current user can access
+    public List<Student> getAbsentStudents(Subject subject, Date date) {
+        List<Student> result = new ArrayList<>();
+        IntList studentIds = attendanceMatrix.getAbsentStudentIds(subject.getSubjectId(), date);
+        for (int i = 0; i < studentIds.size(); i++) {
+            Student student = findStudentById(studentIds.get(i));
+            if (student != null) {
+                result.add(student);
+            }
+        }
+        return result;
+    }
+    
+    private void addToAttendanceMatrix(Attendance attendance) {
+        if (attendance.getStudent() != null && attendance.getSubject() != null && attendance.getEpochDay() != Dates.NO_DAY) {
+            attendanceMatrix.mark(attendance.getStudent().getId(), attendance.getSubject().getSubjectId(),
+                                  attendance.getEpochDay(), attendance.isPresent());
+        }
+    }
+    
+    // The mapped store marks its rows without creating a record for each one
+    private void rebuildAttendanceMatrix() {
+        attendanceMatrix = new AttendanceMatrix();
+        if (attendanceStore != null) {
+            attendanceStore.markAll(attendanceMatrix);
+            return;
+        }
+        for (Attendance attendance : attendances) {
+            addToAttendanceMatrix(attendance);
+        }
     }
     
     // Methods for Fee Payment management
-    public void recordFeePayment(FeePayment feePayment) {
+    public synchronized void recordFeePayment(FeePayment feePayment) {
+        feePaymentPositions.putIfAbsent(feePayment, feePayments.size());
         feePayments.add(feePayment);
+        if (feePayment.getStudent() != null) {
+            feeLedger(feePayment.getStudent().getId()).add(feePayment);
+        }
+        if (journal != null) journal.logRecordFeePayment(feePayment);
     }
     
-    public List<FeePayment> getFeePaymentsByStudent(Student student) {
-        return feePayments.stream()
-                .filter(f -> f.getStudent().getId() == student.getId())
-                .collect(Collectors.toList());
+    // Mark a payment as paid or unpaid and update the status of its receipt
+    public synchronized void updateFeePaymentStatus(FeePayment payment, boolean isPaid) {
+        boolean wasPaid = payment.isPaid();
+        preserveForSnapshots(payment);
+        payment.setPaid(isPaid);
+        if (payment.getStudent() != null) {
+            feeLedger(payment.getStudent().getId()).statusChanged(payment, wasPaid);
+        }
+        
+        FeeReceipt receipt = getFeeReceiptByNumber(payment.getReceiptNumber());
+        if (receipt != null) {
+            preserveForSnapshots(receipt);
+            receipt.setStatus(isPaid ? ReceiptStatus.PAID : ReceiptStatus.PENDING);
+            receiptIndex.refresh(receipt);
+        }
+        
+        if (journal != null) journal.logUpdateFeePaymentStatus(feePaymentPosition(payment), isPaid);
+    }
+    
+    // Position of a recorded payment in the payment list, -1 if it was never recorded
+    private int feePaymentPosition(FeePayment payment) {
+        Integer position = feePaymentPositions.get(payment);
+        return position != null ? position : -1;
+    }
+    
+    public synchronized List<FeePayment> getFeePaymentsByStudent(Student student) {
+        return getFeeLedger(student).getPayments();
+    }
+    
+    // Payments of a student with running totals of the amounts paid and outstanding
+    public synchronized FeeLedger getFeeLedger(Student student) {
+        FeeLedger ledger = feeLedgers.get(student.getId());
+        return ledger != null ? ledger : new FeeLedger();
+    }
+    
+    // Ledger of the student with the given ID, created on first use
+    private FeeLedger feeLedger(int studentId) {
+        FeeLedger ledger = feeLedgers.get(studentId);
+        if (ledger == null) {
+            ledger = new FeeLedger();
+            feeLedgers.put(studentId, ledger);
+        }
+        return ledger;
     }
     
     public List<FeePayment> getUnpaidFeePayments() {
@@ -228,8 +497,17 @@ public class StudentInformationSystem implements Serializable {
     }
     
     // Methods for Fee Receipt management
-    public void addFeeReceipt(FeeReceipt receipt) {
+    public synchronized void addFeeReceipt(FeeReceipt receipt) {
         feeReceipts.add(receipt);
+        indexReceiptNumber(receipt);
+        receiptIndex.add(receipt);
+        if (journal != null) {
+            int[] paymentPositions = new int[receipt.getPayments().size()];
+            for (int i = 0; i < paymentPositions.length; i++) {
+                paymentPositions[i] = feePaymentPosition(receipt.getPayments().get(i));
+            }
+            journal.logAddFeeReceipt(receipt, paymentPositions);
+        }
     }
     
     public List<FeeReceipt> getFeeReceiptsByStudent(Student student) {
@@ -239,24 +517,58 @@ public class StudentInformationSystem implements Serializable {
     }
     
     public FeeReceipt getFeeReceiptByNumber(String receiptNumber) {
-        for (FeeReceipt receipt : feeReceipts) {
-            if (receipt.getReceiptNumber().equals(receiptNumber)) {
-                return receipt;
+        return receiptsByNumber.get(receiptNumber);
+    }
+    
+    // Issue a new receipt number, REC-<node id>-<sequence>
+    // Numbers only repeat if two systems sharing receipts are given the same sis.node.id
+    public synchronized String nextReceiptNumber() {
+        String receiptNumber;
+        do {
+            receiptNumber = String.format("%s%08d", getReceiptNumberPrefix(), nextReceiptSequence++);
+        } while (receiptsByNumber.containsKey(receiptNumber));
+        return receiptNumber;
+    }
+    
+    // Index a receipt under its number, unless another receipt already holds it
+    // Numbers issued by this node move the sequence past them, so they are never issued again
+    private void indexReceiptNumber(FeeReceipt receipt) {
+        String receiptNumber = receipt.getReceiptNumber();
+        if (receiptNumber == null) {
+            return;
+        }
+        
+        receiptsByNumber.putIfAbsent(receiptNumber, receipt);
+        String prefix = getReceiptNumberPrefix();
+        if (receiptNumber.startsWith(prefix)) {
+            try {
+                long sequence = Long.parseLong(receiptNumber.substring(prefix.length()));
+                if (sequence >= nextReceiptSequence) {
+                    nextReceiptSequence = sequence + 1;
+                }
+            } catch (NumberFormatException e) {
+                // Not a number this node issued
             }
         }
-        return null;
     }
     
-    public List<FeeReceipt> getFeeReceiptsByStatus(String status) {
-        return feeReceipts.stream()
-                .filter(r -> r.getStatus().equalsIgnoreCase(status))
-                .collect(Collectors.toList());
+    // Receipts with the status ignoring case, in the order they were issued
+    public synchronized List<FeeReceipt> getFeeReceiptsByStatus(String status) {
+        ReceiptStatus type = ReceiptStatus.of(status);
+        if (type == null) {
+            return new ArrayList<>();
+        }
+        return receiptIndex.withStatus(type);
     }
     
-    public List<FeeReceipt> getFeeReceiptsByDateRange(Date startDate, Date endDate) {
-        return feeReceipts.stream()
-                .filter(r -> !r.getIssueDate().before(startDate) && !r.getIssueDate().after(endDate))
-                .collect(Collectors.toList());
+    // Receipts with the status, or with a status the system doesn't know for null
+    public synchronized List<FeeReceipt> getFeeReceiptsByStatus(ReceiptStatus status) {
+        return receiptIndex.withStatus(status);
+    }
+    
+    // Receipts issued from the day of startDate through the day of endDate, by issue day
+    public synchronized List<FeeReceipt> getFeeReceiptsByDateRange(Date startDate, Date endDate) {
+        return receiptIndex.between(Dates.toEpochDay(startDate), Dates.toEpochDay(endDate));
     }
     
     public String generateFeeReceiptReport(List<FeeReceipt> receipts) {
@@ -264,7 +576,6 @@ public class StudentInformationSystem implements Serializable {
             return "No receipts found for the specified criteria.";
         }
         
-        SimpleDateFormat dateFormat = new SimpleDateFormat("dd/MM/yyyy");
         StringBuilder report = new StringBuilder();
         
         report.append("=============================================\n");
@@ -284,22 +595,19 @@ public class StudentInformationSystem implements Serializable {
             report.append(String.format("%-15s %-20s %-12s $%-9.2f %-10s\n",
                          receipt.getReceiptNumber(),
                          receipt.getStudent().getName(),
-                         dateFormat.format(receipt.getIssueDate()),
+                         Dates.formatDay(receipt.getIssueDay()),
                          receipt.getTotalAmount(),
                          receipt.getStatus()));
             
             totalAmount += receipt.getTotalAmount();
             
-            switch (receipt.getStatus().toLowerCase()) {
-                case "paid":
-                    paidCount++;
-                    break;
-                case "partial":
-                    partialCount++;
-                    break;
-                case "pending":
-                    pendingCount++;
-                    break;
+            ReceiptStatus status = receipt.getStatusType();
+            if (status == ReceiptStatus.PAID) {
+                paidCount++;
+            } else if (status == ReceiptStatus.PARTIAL) {
+                partialCount++;
+            } else if (status == ReceiptStatus.PENDING) {
+                pendingCount++;
             }
         }
         
@@ -313,86 +621,170 @@ public class StudentInformationSystem implements Serializable {
         report.append("  Pending: ").append(pendingCount).append("\n");
         
         report.append("\n=============================================\n");
-        report.append("Report Generated: ").append(dateFormat.format(new Date())).append("\n");
+        report.append("Report Generated: ").append(Dates.formatDay(new Date())).append("\n");
         report.append("=============================================\n");
         
         return report.toString();
     }
     
     public String generateOutstandingFeesReport() {
-        List<FeeReceipt> pendingReceipts = getFeeReceiptsByStatus("Pending");
-        pendingReceipts.addAll(getFeeReceiptsByStatus("Partial"));
+        List<FeeReceipt> pendingReceipts = getFeeReceiptsByStatus(ReceiptStatus.PENDING);
+        pendingReceipts.addAll(getFeeReceiptsByStatus(ReceiptStatus.PARTIAL));
         
         return generateFeeReceiptReport(pendingReceipts);
     }
     
     // Methods for User management
-    public void addUser(User user) {
+    // The user's password is given in plaintext and stored as a salted hash
+    // Returns false if the username is already taken
+    public synchronized boolean addUser(User user) {
+        if (usersByUsername.containsKey(user.getUsername())) {
+            return false;
+        }
+        
+        user.setPassword(PasswordHasher.hash(user.getPassword()));
+        users.add(user);
+        usersByUsername.put(user.getUsername(), user);
+        if (journal != null) journal.logAddUser(user);
+        return true;
+    }
+    
+    // Add a user whose password is already stored in hashed form, used when replaying the journal
+    synchronized void restoreUser(User user) {
         users.add(user);
+        usersByUsername.putIfAbsent(user.getUsername(), user);
+    }
+    
+    public synchronized void changePassword(User user, String newPassword) {
+        restorePassword(user, PasswordHasher.hash(newPassword));
+        if (journal != null) journal.logChangePassword(user);
+    }
+    
+    // Set an already hashed password
+    synchronized void restorePassword(User user, String storedPassword) {
+        user.setPassword(storedPassword);
+        sessionCache.forget(user.getUsername());
+    }
+    
+    // Check a user's password, using the session cache for recently verified logins
+    public boolean verifyPassword(User user, String password) {
+        String storedPassword = user.getPassword();
+        if (password == null || storedPassword == null) {
+            return false;
+        }
+        
+        if (sessionCache.isVerified(user.getUsername(), storedPassword, password)) {
+            return true;
+        }
+        
+        if (!PasswordHasher.verify(password, storedPassword)) {
+            return false;
+        }
+        
+        // Bring the hash up to the configured work factor while we know the password
+        if (PasswordHasher.needsRehash(storedPassword)) {
+            changePassword(user, password);
+            storedPassword = user.getPassword();
+        }
+        
+        sessionCache.remember(user.getUsername(), storedPassword, password);
+        return true;
     }
     
     public User authenticateUser(String username, String password) {
-        for (User user : users) {
-            if (user.getUsername().equals(username) && user.getPassword().equals(password)) {
-                return user;
-            }
+        User user = usersByUsername.get(username);
+        if (user == null) {
+            // Take as long as a wrong password so the response doesn't reveal which usernames exist
+            PasswordHasher.verifyDummy(password);
+            return null;
         }
-        return null;
+        
+        return verifyPassword(user, password) ? user : null;
     }
     
     public User findUserByUsername(String username) {
+        return usersByUsername.get(username);
+    }
+    
+    // Hash plaintext passwords left by older versions, returns how many were changed
+    private synchronized int hashPlaintextPasswords() {
+        int count = 0;
         for (User user : users) {
-            if (user.getUsername().equals(username)) {
-                return user;
+            if (user.getPassword() != null && !PasswordHasher.isHashed(user.getPassword())) {
+                user.setPassword(PasswordHasher.hash(user.getPassword()));
+                count++;
             }
         }
-        return null;
+        return count;
     }
     
-    // Get list of students with warning (GPA < 2.0)
-    public List<Student> getStudentsWithWarning() {
-        return students.stream()
-                .filter(s -> s.getGpa() < 2.0)
-                .collect(Collectors.toList());
+    // Get list of students with warning (GPA < 2.0), lowest GPA first
+    public synchronized List<Student> getStudentsWithWarning() {
+        return gpaIndex.below(2.0);
     }
     
-    // Get list of students on Dean's List (GPA >= 3.5)
-    public List<Student> getStudentsOnDeansList() {
-        return students.stream()
-                .filter(s -> s.getGpa() >= 3.5)
-                .collect(Collectors.toList());
+    // Get list of students on Dean's List (GPA >= 3.5), highest GPA first
+    public synchronized List<Student> getStudentsOnDeansList() {
+        return gpaIndex.atLeast(3.5);
+    }
+    
+    // The given number of students with the highest GPA, highest first
+    public synchronized List<Student> getTopStudentsByGpa(int count) {
+        return gpaIndex.top(count);
     }
     
     // Get list of female students in a specific department
-    public List<Student> getFemaleStudentsByDepartment(String department) {
-        return students.stream()
-                .filter(s -> s.getGender().equalsIgnoreCase("female") && s.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+    // Genders and departments are compared ignoring case, by their vocabulary codes
+    public synchronized List<Student> getFemaleStudentsByDepartment(String department) {
+        return departmentIndex.get(Vocabulary.DEPARTMENTS.lookup(department), Vocabulary.GENDERS.lookup("female"));
     }
     
     // Get list of male students in a specific department
-    public List<Student> getMaleStudentsByDepartment(String department) {
-        return students.stream()
-                .filter(s -> s.getGender().equalsIgnoreCase("male") && s.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+    public synchronized List<Student> getMaleStudentsByDepartment(String department) {
+        return departmentIndex.get(Vocabulary.DEPARTMENTS.lookup(department), Vocabulary.GENDERS.lookup("male"));
     }
     
     // Get all students in a specific department
-    public List<Student> getStudentsByDepartment(String department) {
-        return students.stream()
-                .filter(s -> s.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+    public synchronized List<Student> getStudentsByDepartment(String department) {
+        return departmentIndex.get(Vocabulary.DEPARTMENTS.lookup(department));
     }
     
-    // Get all students in a specific course
-    public List<Student> getStudentsByCourse(Course course) {
-        return students.stream()
-                .filter(s -> s.getCourses().contains(course))
-                .collect(Collectors.toList());
+    // Enroll a student in a course, returns false if it was already enrolled
+    public synchronized boolean enrollStudent(Student student, Course course) {
+        if (student.getCourses().contains(course)) {
+            return false;
+        }
+        
+        student.addCourse(course);
+        enrollmentIndex.refresh(student);
+        if (journal != null) journal.logEnrollStudent(student, course);
+        return true;
+    }
+    
+    // Withdraw a student from a course, returns false if it was not enrolled
+    public synchronized boolean withdrawStudent(Student student, Course course) {
+        if (!student.getCourses().contains(course)) {
+            return false;
+        }
+        
+        student.removeCourse(course);
+        enrollmentIndex.refresh(student);
+        if (journal != null) journal.logWithdrawStudent(student, course);
+        return true;
+    }
+    
+    // Get all students in a specific course, in registration order
+    public synchronized List<Student> getStudentsByCourse(Course course) {
+        return enrollmentIndex.getByCourse(course.getCourseId());
+    }
+    
+    // Students enrolled in a course the subject belongs to, in registration order
+    public synchronized List<Student> getStudentsBySubject(Subject subject) {
+        return enrollmentIndex.getBySubject(subject.getSubjectId());
     }
     
     // Methods for Grade management
-    public void addGrade(Grade grade) {
+    public synchronized void addGrade(Grade grade) {
         grades.add(grade);
         
         // Update the student's academic record
@@ -400,12 +792,15 @@ public class StudentInformationSystem implements Serializable {
         if (student != null) {
             AcademicRecord record = getAcademicRecord(student);
             record.addGrade(grade);
-            academicRecords.put(student.getId(), record);
+            recordsByStudent.put(student.getId(), record);
             
             // Update student GPA
             double gpa = record.calculateCumulativeGPA();
             student.setGpa(gpa);
+            gpaIndex.refresh(student);
         }
+        
+        if (journal != null) journal.logAddGrade(grade);
     }
     
     public List<Grade> getGradesByStudent(Student student) {
@@ -428,10 +823,12 @@ public class StudentInformationSystem implements Serializable {
     
     // Methods for Academic Record management
     public AcademicRecord getAcademicRecord(Student student) {
-        if (!academicRecords.containsKey(student.getId())) {
-            academicRecords.put(student.getId(), new AcademicRecord(student));
+        AcademicRecord record = recordsByStudent.get(student.getId());
+        if (record == null) {
+            record = new AcademicRecord(student);
+            recordsByStudent.put(student.getId(), record);
         }
-        return academicRecords.get(student.getId());
+        return record;
     }
     
     public String generateTranscript(Student student) {
@@ -439,10 +836,9 @@ public class StudentInformationSystem implements Serializable {
         return record.generateTranscript();
     }
     
-    public List<Student> getStudentsWithGPARange(double minGPA, double maxGPA) {
-        return students.stream()
-                .filter(s -> s.getGpa() >= minGPA && s.getGpa() <= maxGPA)
-                .collect(Collectors.toList());
+    // Students with minGPA <= GPA <= maxGPA, lowest GPA first
+    public synchronized List<Student> getStudentsWithGPARange(double minGPA, double maxGPA) {
+        return gpaIndex.between(minGPA, maxGPA);
     }
     
     // Getters for all lists
@@ -454,6 +850,11 @@ public class StudentInformationSystem implements Serializable {
                 .collect(Collectors.toList());
     }
     
+    // All registered students, without applying the current user's access rules
+    List<Student> getAllStudents() {
+        return students;
+    }
+    
     public List<Teacher> getTeachers() {
         return teachers;
     }
@@ -466,7 +867,11 @@ public class StudentInformationSystem implements Serializable {
         return subjects;
     }
     
+    // With the mapped store this is a read-only list that reads each record from the store
     public List<Attendance> getAttendances() {
+        if (attendanceStore != null) {
+            return attendanceStore.asList();
+        }
         return attendances;
     }
     
@@ -482,60 +887,616 @@ public class StudentInformationSystem implements Serializable {
         return grades;
     }
     
-    public Map<Integer, AcademicRecord> getAcademicRecords() {
-        return academicRecords;
+    public IntHashMap<AcademicRecord> getAcademicRecords() {
+        return recordsByStudent;
     }
     
     public List<FeeReceipt> getFeeReceipts() {
         return feeReceipts;
     }
     
+    // Rebuild the primary key, roll number, name, GPA, department, enrollment, fee ledger, receipt number,
+    // receipt date and status, username and attendance indexes from the lists
+    // When two records share an id the first one wins, as it did with the old linear lookups
+    synchronized void rebuildIndexes() {
+        studentsById = new IntHashMap<>(students.size());
+        studentsByRollNumber = new HashMap<>();
+        indexedRollNumbers = new IdentityHashMap<>();
+        nameIndex = new StudentNameIndex();
+        gpaIndex = new StudentGpaIndex();
+        departmentIndex = new StudentDepartmentIndex();
+        enrollmentIndex = new EnrollmentIndex();
+        for (Course course : courses) {
+            enrollmentIndex.addCourse(course);
+        }
+        receiptsByNumber = new HashMap<>();
+        receiptIndex = new FeeReceiptIndex();
+        nextReceiptSequence = 1;
+        for (FeeReceipt receipt : feeReceipts) {
+            indexReceiptNumber(receipt);
+            receiptIndex.add(receipt);
+        }
+        
+        feePaymentPositions = new IdentityHashMap<>();
+        for (int i = 0; i < feePayments.size(); i++) {
+            feePaymentPositions.putIfAbsent(feePayments.get(i), i);
+        }
+        
+        feeLedgers = new IntHashMap<>(students.size());
+        for (FeePayment payment : feePayments) {
+            if (payment.getStudent() != null) {
+                feeLedger(payment.getStudent().getId()).add(payment);
+            }
+        }
+        for (Student student : students) {
+            studentsById.putIfAbsent(student.getId(), student);
+            indexRollNumber(student);
+            nameIndex.add(student);
+            gpaIndex.add(student);
+            departmentIndex.add(student);
+            enrollmentIndex.add(student);
+            student.setFeeLedger(feeLedger(student.getId()));
+        }
+        
+        teachersById = new IntHashMap<>(teachers.size());
+        for (Teacher teacher : teachers) {
+            teachersById.putIfAbsent(teacher.getId(), teacher);
+        }
+        
+        coursesById = new IntHashMap<>(courses.size());
+        for (Course course : courses) {
+            coursesById.putIfAbsent(course.getCourseId(), course);
+        }
+        
+        subjectsById = new IntHashMap<>(subjects.size());
+        for (Subject subject : subjects) {
+            subjectsById.putIfAbsent(subject.getSubjectId(), subject);
+        }
+        
+        studentPositions = positions(students, Student::getId);
+        teacherPositions = positions(teachers, Teacher::getId);
+        coursePositions = positions(courses, Course::getCourseId);
+        subjectPositions = positions(subjects, Subject::getSubjectId);
+        
+        attendanceIndex = new AttendanceIndex();
+        for (Attendance attendance : attendances) {
+            attendanceIndex.add(attendance);
+        }
+        rebuildAttendanceMatrix();
+        
+        usersByUsername = new HashMap<>();
+        for (User user : users) {
+            usersByUsername.putIfAbsent(user.getUsername(), user);
+        }
+        sessionCache = new VerifiedSessionCache(getSessionCacheSize(), getSessionTimeToLiveSeconds() * 1000);
+    }
+    
+    // Position of the first entity with each ID, the one the index by ID holds
+    private static <T> IntIntHashMap positions(List<T> list, ToIntFunction<T> id) {
+        IntIntHashMap result = new IntIntHashMap();
+        for (int i = 0; i < list.size(); i++) {
+            result.putIfAbsent(id.applyAsInt(list.get(i)), i);
+        }
+        return result;
+    }
+    
     // Save all data to files
+    // With the background writer the snapshot is written shortly afterwards, together with any other changes made meanwhile
     public void saveData() {
+        saveData(false);
+    }
+    
+    // Save all data, when durable is true only return once the changes are on disk
+    public void saveData(boolean durable) {
+        if (journal != null) {
+            // Every change has already been forced to the journal
+            System.out.println("Data saved successfully.");
+            return;
+        }
+        
+        if (snapshotWriter != null) {
+            snapshotWriter.markDirty();
+            if (!durable) {
+                // The background writer reports it if the write fails
+                System.out.println("Data will be saved in the background.");
+            } else if (snapshotWriter.flush()) {
+                System.out.println("Data saved successfully.");
+            } else {
+                System.out.println("Error saving data, it will be saved again in the background.");
+            }
+            return;
+        }
+        
         try {
-            FileOutputStream fileOut = new FileOutputStream("student_system.ser");
-            ObjectOutputStream out = new ObjectOutputStream(fileOut);
-            out.writeObject(this);
-            out.close();
-            fileOut.close();
+            writeSnapshot();
             System.out.println("Data saved successfully.");
         } catch (IOException i) {
             i.printStackTrace();
         }
     }
     
+    // Copies of the master data and views of the record lists as they are now, taken while no change
+    // is in progress. This takes far less time than encoding, so changes only wait for this and not
+    // for the whole snapshot write. Until snapshotClosed() is called, records changed by the update
+    // methods are first copied into the snapshot, see preserveForSnapshots()
+    synchronized SnapshotCodec.Writer snapshotView() {
+        SnapshotCodec.Writer snapshot = SnapshotCodec.capture(this);
+        if (openSnapshots == null) {
+            openSnapshots = new ArrayList<>();
+        }
+        openSnapshots.add(snapshot);
+        return snapshot;
+    }
+    
+    synchronized void snapshotClosed(SnapshotCodec.Writer snapshot) {
+        openSnapshots.remove(snapshot);
+    }
+    
+    // Snapshots being encoded keep the record as it was before it is changed
+    private void preserveForSnapshots(Attendance attendance) {
+        if (openSnapshots != null) {
+            for (SnapshotCodec.Writer snapshot : openSnapshots) snapshot.preserve(attendance);
+        }
+    }
+    
+    private void preserveForSnapshots(FeePayment payment) {
+        if (openSnapshots != null) {
+            for (SnapshotCodec.Writer snapshot : openSnapshots) snapshot.preserve(payment);
+        }
+    }
+    
+    private void preserveForSnapshots(FeeReceipt receipt) {
+        if (openSnapshots != null) {
+            for (SnapshotCodec.Writer snapshot : openSnapshots) snapshot.preserve(receipt);
+        }
+    }
+    
+    // Attendance written to the snapshot, the records in the mapped store are already on disk
+    List<Attendance> getAttendancesInSnapshot() {
+        return attendanceStore != null ? Collections.<Attendance>emptyList() : attendances;
+    }
+    
+    // Apply a change to registered records, such as the setter calls of the edit menus.
+    // Snapshots are copied holding the same lock, so they never see half of a change
+    public synchronized void edit(Runnable change) {
+        change.run();
+    }
+    
+    // Write the whole system to the snapshot file
+    // The snapshot is encoded from snapshotView(), so changes can continue while it is written
+    void writeSnapshot() throws IOException {
+        writeSnapshot(true);
+    }
+    
+    // Without rotating, the current snapshot file is replaced and not kept as a previous generation
+    private void writeSnapshot(boolean rotate) throws IOException {
+        if (attendanceStore != null) {
+            // Attendance is not in the snapshot, make sure it is on disk by the time the snapshot is
+            attendanceStore.force();
+        }
+        
+        SnapshotCodec.Writer snapshot = snapshotView();
+        try {
+            writeSnapshot(snapshot, rotate);
+        } finally {
+            snapshotClosed(snapshot);
+        }
+    }
+    
+    // The snapshot is written and forced to disk next to the old one and then renamed over it,
+    // so a failure part way through never leaves a damaged snapshot behind.
+    // The previous snapshots are kept as student_system.ser.1, .2, ... in case the newest is damaged later
+    private static void writeSnapshot(SnapshotCodec.Writer snapshot, boolean rotate) throws IOException {
+        synchronized (SNAPSHOT_FILE_LOCK) {
+            File snapshotFile = getDataFile(DATA_FILE);
+            File tempFile = getDataFile(DATA_FILE + ".tmp");
+            
+            try (FileOutputStream fileOut = new FileOutputStream(tempFile)) {
+                snapshot.write(fileOut);
+                fileOut.getFD().sync();
+            }
+            
+            if (rotate) {
+                rotateSnapshots();
+            }
+            Files.move(tempFile.toPath(), snapshotFile.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(snapshotFile.getAbsoluteFile().getParentFile());
+        }
+    }
+    
+    // Shift every kept snapshot one generation back, dropping the oldest
+    private static void rotateSnapshots() throws IOException {
+        int generations = getSnapshotGenerations();
+        if (generations <= 0) {
+            return;
+        }
+        
+        Files.deleteIfExists(getSnapshotFile(generations).toPath());
+        for (int generation = generations - 1; generation >= 0; generation--) {
+            File file = getSnapshotFile(generation);
+            if (file.exists()) {
+                Files.move(file.toPath(), getSnapshotFile(generation + 1).toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+        }
+    }
+    
+    // Force the renames to disk as well, so the new snapshot can't disappear after a power loss
+    private static void syncDirectory(File directory) {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException i) {
+            // Directories can't be opened on every platform (Windows), the rename is still atomic there
+        }
+    }
+    
+    // A journal record could not be written, so the journal no longer holds every change.
+    // Save them all in a snapshot right away and fall back to full saves, as when the journal
+    // can't be opened at startup
+    private synchronized void journalFailed() {
+        System.out.println("Could not write the journal, falling back to full saves.");
+        File journalFile = journal.getFile();
+        // The snapshot contains every journaled change, so replay must skip all of them
+        lastJournalSequence = journal.getSequence();
+        journal.close();
+        journal = null;
+        if (getSaveCoalesceMillis() > 0) {
+            snapshotWriter = new SnapshotWriter(this, getSaveCoalesceMillis());
+        }
+        
+        try {
+            writeSnapshot();
+            journalFile.delete();
+        } catch (IOException i) {
+            i.printStackTrace();
+            if (snapshotWriter != null) {
+                // Keeps trying in the background
+                snapshotWriter.markDirty();
+            }
+        }
+    }
+    
+    // Write a fresh snapshot and empty the journal
+    public synchronized void checkpoint() {
+        if (journal == null) {
+            return;
+        }
+        
+        try {
+            // If we crash before the reset, replay skips the records the snapshot already contains
+            lastJournalSequence = journal.getSequence();
+            writeSnapshot();
+            journal.reset();
+        } catch (IOException i) {
+            i.printStackTrace();
+        }
+    }
+    
+    // Size of the journal in bytes, 0 when journal mode is off
+    public synchronized long getJournalSize() {
+        if (journal == null) {
+            return 0;
+        }
+        
+        try {
+            return journal.size();
+        } catch (IOException i) {
+            return 0;
+        }
+    }
+    
+    long getLastJournalSequence() {
+        return lastJournalSequence;
+    }
+    
+    void setLastJournalSequence(long lastJournalSequence) {
+        this.lastJournalSequence = lastJournalSequence;
+    }
+    
+    // Called on logout/exit to write pending changes and leave the data files in a compact state
+    public void shutdown() {
+        if (snapshotWriter != null) {
+            snapshotWriter.stop();
+            snapshotWriter = null;
+        }
+        
+        if (compactor != null) {
+            compactor.stop();
+            compactor = null;
+        }
+        
+        synchronized (this) {
+            if (journal != null) {
+                checkpoint();
+                journal.close();
+                journal = null;
+            }
+            
+            if (attendanceStore != null) {
+                attendanceStore.close();
+                attendanceStore = null;
+            }
+        }
+    }
+    
+    // Data files are kept in the working directory unless -Dsis.dataDir points elsewhere
+    private static File getDataFile(String name) {
+        return new File(System.getProperty("sis.dataDir", "."), name);
+    }
+    
+    // Generation 0 is the current snapshot, generation n is the one written n saves before it
+    private static File getSnapshotFile(int generation) {
+        return getDataFile(generation == 0 ? DATA_FILE : DATA_FILE + "." + generation);
+    }
+    
+    // Number of previous snapshots kept next to the current one
+    private static int getSnapshotGenerations() {
+        return Integer.getInteger("sis.snapshot.generations", 3);
+    }
+    
+    // Journal mode is enabled with -Dsis.journal=true
+    public static boolean isJournalModeEnabled() {
+        return Boolean.getBoolean("sis.journal");
+    }
+    
+    // Attendance is kept in memory-mapped files with -Dsis.attendance.mapped=true
+    public static boolean isMappedAttendanceEnabled() {
+        return Boolean.getBoolean("sis.attendance.mapped");
+    }
+    
+    // How often the background compactor runs and how large the journal must be before it compacts
+    private static long getCompactionIntervalSeconds() {
+        return Long.getLong("sis.compaction.intervalSeconds", 300);
+    }
+    
+    private static long getCompactionMinJournalBytes() {
+        return Long.getLong("sis.compaction.minJournalBytes", 1024 * 1024);
+    }
+    
+    // Receipt numbers issued here start with the node id, set with -Dsis.node.id when several systems issue receipts
+    private static String getReceiptNumberPrefix() {
+        return "REC-" + Integer.getInteger("sis.node.id", 1) + "-";
+    }
+    
+    // How long the background writer waits for more changes before writing a snapshot, 0 saves synchronously
+    private static long getSaveCoalesceMillis() {
+        return Long.getLong("sis.save.coalesceMillis", 500);
+    }
+    
+    // How many verified logins are remembered and for how long, 0 seconds turns the cache off
+    private static int getSessionCacheSize() {
+        return Integer.getInteger("sis.session.cacheSize", 1024);
+    }
+    
+    private static long getSessionTimeToLiveSeconds() {
+        return Long.getLong("sis.session.ttlSeconds", 900);
+    }
+    
     // Load data from files
     public static StudentInformationSystem loadData() {
         StudentInformationSystem system = null;
+        boolean created = false;
         try {
-            FileInputStream fileIn = new FileInputStream("student_system.ser");
-            ObjectInputStream in = new ObjectInputStream(fileIn);
-            system = (StudentInformationSystem) in.readObject();
-            in.close();
-            fileIn.close();
+            system = readNewestSnapshot();
             // Data loaded silently
             
-            // Ensure backwards compatibility with older versions that didn't have grades or academic records
-            if (system.grades == null) {
-                system.grades = new ArrayList<>();
+            if (system == null) {
+                System.out.println("No existing data found. Creating a new system.");
+                system = new StudentInformationSystem();
+                created = true;
+            }
+        } catch (ClassNotFoundException c) {
+            System.out.println("Class not found.");
+            c.printStackTrace();
+            system = new StudentInformationSystem();
+        }
+        system.rebuildIndexes();
+        
+        // Apply any changes journaled since the snapshot was written
+        File journalFile = getDataFile(JOURNAL_FILE);
+        long validLength = 0;
+        if (journalFile.exists()) {
+            try {
+                validLength = MutationJournal.replay(journalFile, system);
+            } catch (IOException i) {
+                System.out.println("Error reading journal: " + i.getMessage());
+            }
+        }
+        
+        system.openAttendanceStore();
+        
+        // Never leave plaintext passwords from older versions on disk, and save a new system's default users
+        if (system.hashPlaintextPasswords() > 0 || created) {
+            try {
+                system.writeSnapshot();
+            } catch (IOException i) {
+                i.printStackTrace();
+            }
+        }
+        
+        if (isJournalModeEnabled()) {
+            try {
+                system.journal = new MutationJournal(journalFile, validLength, system.lastJournalSequence);
+                system.journal.setFailureHandler(system::journalFailed);
+                system.compactor = new JournalCompactor(system, getCompactionMinJournalBytes());
+                system.compactor.start(getCompactionIntervalSeconds());
+            } catch (IOException i) {
+                System.out.println("Could not open journal, falling back to full saves: " + i.getMessage());
+            }
+        } else if (journalFile.exists()) {
+            // Journal mode was turned off, fold the journal into the snapshot
+            try {
+                system.writeSnapshot();
+                journalFile.delete();
+            } catch (IOException i) {
+                i.printStackTrace();
+            }
+        }
+        
+        if (system.journal == null && getSaveCoalesceMillis() > 0) {
+            system.snapshotWriter = new SnapshotWriter(system, getSaveCoalesceMillis());
+        }
+        
+        return system;
+    }
+    
+    // Open the mapped attendance store, or move the records back into memory when it was turned off.
+    // Attendance still in the snapshot (first start with the store, or a crash before the snapshot
+    // without it was written) replaces whatever the store holds, so records are never moved twice
+    private void openAttendanceStore() {
+        File rowsFile = getDataFile(ATTENDANCE_FILE);
+        File remarksFile = getDataFile(ATTENDANCE_REMARKS_FILE);
+        
+        if (isMappedAttendanceEnabled()) {
+            try {
+                attendanceStore = new MappedAttendanceStore(rowsFile, remarksFile, this);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not open the attendance store, keeping attendance in memory: " + e.getMessage());
+                return;
             }
             
-            if (system.academicRecords == null) {
-                system.academicRecords = new HashMap<>();
+            if (attendances.isEmpty()) {
+                rebuildAttendanceMatrix();
+            } else {
+                attendanceStore.clear();
+                for (Attendance attendance : attendances) {
+                    attendanceStore.add(attendance);
+                }
+                attendances = new AppendOnlyList<>();
+                attendanceIndex = new AttendanceIndex();
+                try {
+                    writeSnapshot();
+                } catch (IOException i) {
+                    i.printStackTrace();
+                }
+            }
+            return;
+        }
+        
+        if (!rowsFile.exists()) {
+            return;
+        }
+        
+        // The store was turned off, fold its records into the snapshot
+        // If the snapshot already has attendance the store is left over from a crash while moving it
+        if (attendances.isEmpty()) {
+            MappedAttendanceStore store;
+            try {
+                store = new MappedAttendanceStore(rowsFile, remarksFile, this);
+            } catch (IOException | RuntimeException e) {
+                System.out.println("Could not read the attendance store: " + e.getMessage());
+                return;
             }
             
-            if (system.feeReceipts == null) {
-                system.feeReceipts = new ArrayList<>();
+            for (Attendance attendance : store.asList()) {
+                if (attendance.getStudent() != null && attendance.getSubject() != null) {
+                    markAttendance(attendance);
+                }
+            }
+            store.close();
+            try {
+                writeSnapshot();
+            } catch (IOException i) {
+                i.printStackTrace();
+                return;
+            }
+        }
+        
+        rowsFile.delete();
+        remarksFile.delete();
+    }
+    
+    // Read the newest snapshot generation that is intact, null when there is no snapshot at all
+    // Damaged snapshots are renamed to *.damaged, so they are kept for inspection but never loaded or rotated again
+    private static StudentInformationSystem readNewestSnapshot() throws ClassNotFoundException {
+        for (int generation = 0; generation <= getSnapshotGenerations(); generation++) {
+            File file = getSnapshotFile(generation);
+            if (!file.exists()) {
+                continue;
             }
             
+            try {
+                StudentInformationSystem system;
+                if (SnapshotCodec.isBinarySnapshot(file)) {
+                    try (FileInputStream fileIn = new FileInputStream(file)) {
+                        system = SnapshotCodec.read(fileIn);
+                    }
+                } else {
+                    system = loadLegacyData(file);
+                    convertLegacyData(system, file);
+                }
+                
+                if (generation > 0) {
+                    System.out.println("Loaded the previous snapshot " + file.getName() + " because the newer ones are damaged.");
+                }
+                return system;
+            } catch (IOException i) {
+                System.out.println("Snapshot " + file.getName() + " could not be read: " + i.getMessage());
+                setAsideDamagedSnapshot(file);
+            }
+        }
+        return null;
+    }
+    
+    private static void setAsideDamagedSnapshot(File file) {
+        File damagedFile = new File(file.getPath() + DAMAGED_SUFFIX);
+        try {
+            Files.move(file.toPath(), damagedFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("The damaged file was kept as " + damagedFile.getName() + ".");
         } catch (IOException i) {
-            System.out.println("No existing data found. Creating a new system.");
-            system = new StudentInformationSystem();
-        } catch (ClassNotFoundException c) {
-            System.out.println("Class not found.");
-            c.printStackTrace();
-            system = new StudentInformationSystem();
+            System.out.println("Could not rename " + file.getName() + ": " + i.getMessage());
+        }
+    }
+    
+    // Read a data file written with Java serialization by older versions
+    private static StudentInformationSystem loadLegacyData(File dataFile) throws IOException, ClassNotFoundException {
+        StudentInformationSystem system;
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(dataFile))) {
+            system = (StudentInformationSystem) in.readObject();
+        }
+        
+        // Ensure backwards compatibility with older versions that didn't have grades or academic records
+        if (system.grades == null) {
+            system.grades = new ArrayList<>();
+        }
+        
+        // Older versions kept the academic records in a HashMap
+        system.recordsByStudent = new IntHashMap<>();
+        if (system.academicRecords != null) {
+            for (Map.Entry<Integer, AcademicRecord> entry : system.academicRecords.entrySet()) {
+                system.recordsByStudent.put(entry.getKey(), entry.getValue());
+            }
+            system.academicRecords = null;
         }
+        
+        if (system.feeReceipts == null) {
+            system.feeReceipts = new ArrayList<>();
+        }
+        
+        // Older versions kept the records in ArrayLists
+        system.attendances = new AppendOnlyList<>(system.attendances);
+        system.feePayments = new AppendOnlyList<>(system.feePayments);
+        system.grades = new AppendOnlyList<>(system.grades);
+        system.feeReceipts = new AppendOnlyList<>(system.feeReceipts);
+        
         return system;
     }
+    
+    // Convert a legacy data file to the binary snapshot format, keeping the original as a backup.
+    // The passwords are hashed first and the legacy file is replaced instead of rotated,
+    // so no snapshot generation keeps them in plaintext
+    private static void convertLegacyData(StudentInformationSystem system, File dataFile) {
+        try {
+            Files.copy(dataFile.toPath(), getDataFile(LEGACY_BACKUP_FILE).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            system.hashPlaintextPasswords();
+            system.writeSnapshot(false);
+            if (!dataFile.equals(getDataFile(DATA_FILE))) {
+                // An older generation was converted, the backup holds the original now
+                Files.delete(dataFile.toPath());
+            }
+            System.out.println("Converted " + DATA_FILE + " to the binary snapshot format (backup saved as " + LEGACY_BACKUP_FILE + ").");
+        } catch (IOException i) {
+            i.printStackTrace();
+        }
+    }
 }
@@ -0,0 +1,155 @@
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Substring index over student names for searchStudentsByName.
+ * Names are lowercased once when a student is indexed and split into trigrams.
+ * A query of three or more characters only checks the students sharing its
+ * rarest trigram; shorter queries check the cached lowercased names.
+ */
+public class StudentNameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, Set<Entry>> trigrams = new HashMap<>();
+    private final Map<Student, Entry> entries = new IdentityHashMap<>();
+    private final TreeMap<Long, Entry> entriesInOrder = new TreeMap<>();
+    private long nextOrder;
+
+    // Add a newly registered student
+    public void add(Student student) {
+        Entry entry = new Entry(student, normalize(student.getName()), nextOrder++);
+        entries.put(student, entry);
+        entriesInOrder.put(entry.order, entry);
+        indexTrigrams(entry);
+    }
+
+    // Re-index a student after its name changed or it was replaced by a new object,
+    // keeping its place in the search results
+    public void update(Student existing, Student student) {
+        Entry entry = entries.remove(existing);
+        if (entry == null) {
+            add(student);
+            return;
+        }
+
+        unindexTrigrams(entry);
+        entry.student = student;
+        entry.name = normalize(student.getName());
+        entries.put(student, entry);
+        indexTrigrams(entry);
+    }
+
+    public void remove(Student student) {
+        Entry entry = entries.remove(student);
+        if (entry != null) {
+            entriesInOrder.remove(entry.order);
+            unindexTrigrams(entry);
+        }
+    }
+
+    // Students whose name contains the query, ignoring case, in registration order
+    public List<Student> search(String query) {
+        String normalizedQuery = normalize(query);
+        if (normalizedQuery == null) {
+            return new ArrayList<>();
+        }
+
+        // Short queries scan the names in order, longer ones check the candidates and sort the matches
+        boolean inOrder = normalizedQuery.length() < GRAM_LENGTH;
+        Collection<Entry> candidates = inOrder ? entriesInOrder.values() : candidates(normalizedQuery);
+
+        List<Entry> matches = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (entry.name != null && entry.name.contains(normalizedQuery)) {
+                matches.add(entry);
+            }
+        }
+        if (!inOrder) {
+            matches.sort(Comparator.comparingLong(entry -> entry.order));
+        }
+
+        List<Student> result = new ArrayList<>(matches.size());
+        for (Entry entry : matches) {
+            result.add(entry.student);
+        }
+        return result;
+    }
+
+    // Every match contains all trigrams of the query, so the smallest set is enough to check
+    private Set<Entry> candidates(String query) {
+        Set<Entry> smallest = null;
+        for (int i = 0; i + GRAM_LENGTH <= query.length(); i++) {
+            Set<Entry> candidates = trigrams.get(query.substring(i, i + GRAM_LENGTH));
+            if (candidates == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || candidates.size() < smallest.size()) {
+                smallest = candidates;
+            }
+        }
+        return smallest;
+    }
+
+    private void indexTrigrams(Entry entry) {
+        if (entry.name == null) {
+            return;
+        }
+
+        for (int i = 0; i + GRAM_LENGTH <= entry.name.length(); i++) {
+            String trigram = entry.name.substring(i, i + GRAM_LENGTH);
+            Set<Entry> candidates = trigrams.get(trigram);
+            if (candidates == null) {
+                candidates = new HashSet<>();
+                trigrams.put(trigram, candidates);
+            }
+            candidates.add(entry);
+        }
+    }
+
+    private void unindexTrigrams(Entry entry) {
+        if (entry.name == null) {
+            return;
+        }
+
+        for (int i = 0; i + GRAM_LENGTH <= entry.name.length(); i++) {
+            String trigram = entry.name.substring(i, i + GRAM_LENGTH);
+            Set<Entry> candidates = trigrams.get(trigram);
+            if (candidates != null) {
+                candidates.remove(entry);
+                if (candidates.isEmpty()) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+    }
+
+    // Names are matched the same way the old scan did, with String.toLowerCase
+    private static String normalize(String name) {
+        return name == null ? null : name.toLowerCase();
+    }
+
+    /**
+     * An indexed student with its lowercased name and its position in the results.
+     * Entries are compared by identity.
+     */
+    private static final class Entry {
+        private Student student;
+        private String name;
+        private final long order;
+
+        Entry(Student student, String name, long order) {
+            this.student = student;
+            this.name = name;
+            this.order = order;
+        }
+    }
+}
@@ -30,6 +30,20 @@ public class Subject implements Serializable {
         this.description = "";
     }
     
+    // Copy of the fields, see snapshot()
+    private Subject(Subject source) {
+        this.subjectId = source.subjectId;
+        this.name = source.name;
+        this.teacher = source.teacher;
+        this.creditHours = source.creditHours;
+        this.description = source.description;
+    }
+    
+    // The subject as it is now, for writing a snapshot
+    Subject snapshot() {
+        return new Subject(this);
+    }
+    
     // Getters and setters
     public int getSubjectId() {
         return subjectId;
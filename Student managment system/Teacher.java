@@ -24,7 +24,7 @@ public class Teacher extends Person {
         this.specialization = specialization;
         this.joinDate = joinDate;
         this.subjects = new ArrayList<>();
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.intern(department);
     }
     
     // Default constructor
@@ -37,6 +37,21 @@ public class Teacher extends Person {
         this.department = "";
     }
     
+    // Copy of the fields and the subject list, see snapshot()
+    private Teacher(Teacher source) {
+        super(source);
+        this.teacherId = source.teacherId;
+        this.subjects = new ArrayList<>(source.subjects);
+        this.specialization = source.specialization;
+        this.joinDate = source.joinDate;
+        this.department = source.department;
+    }
+    
+    // The teacher as it is now, for writing a snapshot
+    Teacher snapshot() {
+        return new Teacher(this);
+    }
+    
     // Getters and setters
     public int getTeacherId() {
         return teacherId;
@@ -81,14 +96,12 @@ public class Teacher extends Person {
     }
     
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.intern(department);
     }
     
     // Get formatted join date
     public String getFormattedJoinDate() {
-        if (joinDate == null) return "Not set";
-        java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat("dd/MM/yyyy");
-        return sdf.format(joinDate);
+        return Dates.formatDay(joinDate);
     }
     
     @Override
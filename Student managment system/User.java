@@ -1,3 +1,6 @@
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 
 /**
@@ -9,17 +12,27 @@ public class User implements Serializable {
     private String username;
     private String password;
     private String fullName;
-    private String role;  // Administrator, Teacher, Financial Officer, Registrar, Student, User
-    private String department; // For teachers to manage their department
+    private Role role;  // Null for a role the system doesn't know
+    private int department; // Id in Vocabulary.DEPARTMENTS, for teachers to manage their department
     private Integer associatedId; // Student or Teacher ID associated with this user
     
+    // Fields in files saved by older versions, which kept the role and department as Strings
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("username", String.class),
+        new ObjectStreamField("password", String.class),
+        new ObjectStreamField("fullName", String.class),
+        new ObjectStreamField("role", String.class),
+        new ObjectStreamField("department", String.class),
+        new ObjectStreamField("associatedId", Integer.class)
+    };
+    
     // Constructor
     public User(String username, String password, String fullName) {
         this.username = username;
         this.password = password;
         this.fullName = fullName;
-        this.role = "User"; // Default role
-        this.department = null;
+        this.role = Role.USER; // Default role
+        this.department = Vocabulary.NONE;
         this.associatedId = null;
     }
     
@@ -28,8 +41,8 @@ public class User implements Serializable {
         this.username = username;
         this.password = password;
         this.fullName = fullName;
-        this.role = role;
-        this.department = department;
+        this.role = Role.of(role);
+        this.department = Vocabulary.DEPARTMENTS.id(department);
         this.associatedId = associatedId;
     }
     
@@ -38,11 +51,26 @@ public class User implements Serializable {
         this.username = "";
         this.password = "";
         this.fullName = "";
-        this.role = "";
-        this.department = null;
+        this.role = null;
+        this.department = Vocabulary.NONE;
         this.associatedId = null;
     }
     
+    // Copy of the fields, see snapshot()
+    private User(User source) {
+        this.username = source.username;
+        this.password = source.password;
+        this.fullName = source.fullName;
+        this.role = source.role;
+        this.department = source.department;
+        this.associatedId = source.associatedId;
+    }
+    
+    // The user as it is now, for writing a snapshot while passwords can still be changed
+    User snapshot() {
+        return new User(this);
+    }
+    
     // Getters and setters
     public String getUsername() {
         return username;
@@ -61,11 +89,16 @@ public class User implements Serializable {
     }
     
     public String getRole() {
-        return role;
+        return role != null ? role.getDisplayName() : null;
     }
     
     public void setRole(String role) {
-        this.role = role;
+        this.role = Role.of(role);
+    }
+    
+    // The role as a Role, null for a role the system doesn't know
+    public Role getRoleType() {
+        return role;
     }
     
     public String getFullName() {
@@ -78,23 +111,23 @@ public class User implements Serializable {
     
     // Role check methods
     public boolean isAdmin() {
-        return role.equalsIgnoreCase("Administrator");
+        return getRoleType() == Role.ADMINISTRATOR;
     }
     
     public boolean isTeacher() {
-        return role.equalsIgnoreCase("Teacher");
+        return getRoleType() == Role.TEACHER;
     }
     
     public boolean isFinancialOfficer() {
-        return role.equalsIgnoreCase("Financial Officer");
+        return getRoleType() == Role.FINANCIAL_OFFICER;
     }
     
     public boolean isRegistrar() {
-        return role.equalsIgnoreCase("Registrar");
+        return getRoleType() == Role.REGISTRAR;
     }
     
     public boolean isStudent() {
-        return role.equalsIgnoreCase("Student");
+        return getRoleType() == Role.STUDENT;
     }
     
     public boolean isUser() {
@@ -102,11 +135,16 @@ public class User implements Serializable {
     }
     
     public String getDepartment() {
-        return department;
+        return Vocabulary.DEPARTMENTS.value(department);
     }
 
     public void setDepartment(String department) {
-        this.department = department;
+        this.department = Vocabulary.DEPARTMENTS.id(department);
+    }
+
+    // Same for departments that are equal ignoring case, see Vocabulary.code()
+    public int getDepartmentCode() {
+        return Vocabulary.DEPARTMENTS.codeOf(department);
     }
 
     public Integer getAssociatedId() {
@@ -192,7 +230,7 @@ public class User implements Serializable {
 
     // Check if a teacher has access to a specific department
     public boolean hasDepartmentAccess() {
-        if (!isTeacher() || department == null) {
+        if (!isTeacher() || department == Vocabulary.NONE) {
             return false;
         }
         return true; // Will be checked against student's department in business logic
@@ -215,11 +253,11 @@ public class User implements Serializable {
         }
         
         if (isRegistrar()) {
-            return student.getDepartment().equals(this.department); // Registrar can only access students in their department
+            return inDepartmentOf(student); // Registrar can only access students in their department
         }
         
         if (isTeacher()) {
-            return student.getDepartment().equals(this.department); // Teacher can only access students in their department
+            return inDepartmentOf(student); // Teacher can only access students in their department
         }
         
         if (isFinancialOfficer()) {
@@ -243,12 +281,12 @@ public class User implements Serializable {
         }
 
         if (isRegistrar()) {
-            return teacher.getDepartment().equals(this.department); // Registrar can only access teachers in their department
+            return teacher.getDepartment().equals(getDepartment()); // Registrar can only access teachers in their department
         }
 
         if (isTeacher()) {
             // Teachers can view other teachers in their department
-            return teacher.getDepartment().equals(this.department);
+            return teacher.getDepartment().equals(getDepartment());
         }
 
         if (isStudent()) {
@@ -274,12 +312,12 @@ public class User implements Serializable {
         }
 
         if (isRegistrar()) {
-            return course.getDepartment().equals(this.department); // Registrar can only access courses in their department
+            return course.getDepartment().equals(getDepartment()); // Registrar can only access courses in their department
         }
 
         if (isTeacher()) {
             // Teachers can access courses in their department
-            return course.getDepartment().equals(this.department);
+            return course.getDepartment().equals(getDepartment());
         }
 
         if (isStudent()) {
@@ -303,7 +341,7 @@ public class User implements Serializable {
 
         if (isRegistrar()) {
             // Registrars can view but not modify fee information for their department
-            return student.getDepartment().equals(this.department);
+            return inDepartmentOf(student);
         }
 
         if (isStudent()) {
@@ -314,6 +352,11 @@ public class User implements Serializable {
         return false;
     }
 
+    // Check if a student is in this user's department, comparing department codes
+    private boolean inDepartmentOf(Student student) {
+        return department != Vocabulary.NONE && student.getDepartmentCode() == getDepartmentCode();
+    }
+
     // Helper method to find student by ID
     private Student findStudentById(int id) {
         // This should be implemented to actually find the student
@@ -321,9 +364,20 @@ public class User implements Serializable {
         return null;
     }
     
+    // Older versions saved the role and department as Strings
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        username = (String) fields.get("username", null);
+        password = (String) fields.get("password", null);
+        fullName = (String) fields.get("fullName", null);
+        role = Role.of((String) fields.get("role", null));
+        department = Vocabulary.DEPARTMENTS.id((String) fields.get("department", null));
+        associatedId = (Integer) fields.get("associatedId", null);
+    }
+    
     @Override
     public String toString() {
         return "Username: " + username + 
-               "\nRole: " + role;
+               "\nRole: " + getRole();
     }
 }
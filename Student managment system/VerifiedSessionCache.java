@@ -0,0 +1,90 @@
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Remembers recently verified logins so repeated authentications of the same
+ * user skip the deliberately slow password hash.
+ * Only a keyed digest of the password is kept, using a key that never leaves
+ * this process. The digest also covers the stored hash, so an entry stops
+ * matching as soon as the password is changed.
+ */
+public class VerifiedSessionCache {
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Map<String, Session> sessions;
+    private final long timeToLiveMillis;
+    private final byte[] key = new byte[32];
+
+    // Constructor
+    public VerifiedSessionCache(final int maxEntries, long timeToLiveMillis) {
+        this.timeToLiveMillis = timeToLiveMillis;
+        // Least recently used sessions are dropped first
+        this.sessions = new LinkedHashMap<String, Session>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        new SecureRandom().nextBytes(key);
+    }
+
+    // Check whether the user logged in with this password recently
+    public synchronized boolean isVerified(String username, String storedPassword, String password) {
+        Session session = sessions.get(username);
+        if (session == null) {
+            return false;
+        }
+
+        if (System.currentTimeMillis() > session.expiresAt) {
+            sessions.remove(username);
+            return false;
+        }
+
+        return MessageDigest.isEqual(session.digest, digest(storedPassword, password));
+    }
+
+    // Remember a successful login
+    public synchronized void remember(String username, String storedPassword, String password) {
+        if (timeToLiveMillis <= 0) {
+            return;
+        }
+        sessions.put(username, new Session(digest(storedPassword, password), System.currentTimeMillis() + timeToLiveMillis));
+    }
+
+    public synchronized void forget(String username) {
+        sessions.remove(username);
+    }
+
+    private byte[] digest(String storedPassword, String password) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            mac.update(storedPassword.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(ALGORITHM + " is not available", e);
+        }
+    }
+
+    /**
+     * A verified login and the time it stops being trusted.
+     */
+    private static final class Session {
+        private final byte[] digest;
+        private final long expiresAt;
+
+        Session(byte[] digest, long expiresAt) {
+            this.digest = digest;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Dictionary of the values of a categorical field such as a department or a semester.
+ * Rows store the id of their value instead of the String, and read the value and
+ * its code back through value() and codeOf(). Each value also gets a small code that
+ * is the same for values differing only in case. Filters that used equalsIgnoreCase
+ * on every row compare these codes instead.
+ * Only values stored in rows get a code. Queries use lookup(), so search input
+ * that matches nothing doesn't grow the dictionary.
+ */
+public class Vocabulary {
+    public static final Vocabulary DEPARTMENTS = new Vocabulary();
+    public static final Vocabulary GENDERS = new Vocabulary();
+    public static final Vocabulary SEMESTERS = new Vocabulary();
+    public static final Vocabulary GRADE_TYPES = new Vocabulary();
+    public static final Vocabulary PAYMENT_TYPES = new Vocabulary();
+
+    public static final int NONE = -1; // Id and code of null
+    public static final int UNKNOWN = -2; // Returned by lookup() for a value that has no code, no row has it
+
+    private final Map<String, Integer> ids = new HashMap<>(); // By value
+    private final Map<String, Integer> codes = new HashMap<>(); // By folded value
+
+    // Value and code of each id, read without the lock
+    // Written before the id is handed out, and published again through the volatile field
+    private volatile String[] valuesById = new String[16];
+    private volatile int[] codesById = new int[16];
+
+    // Id of a value, the index of its slot in this dictionary
+    public synchronized int id(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = ids.size();
+            String[] values = valuesById;
+            int[] valueCodes = codesById;
+            if (id == values.length) {
+                values = Arrays.copyOf(values, id * 2);
+                valueCodes = Arrays.copyOf(valueCodes, id * 2);
+            }
+            values[id] = value;
+            valueCodes[id] = code(value);
+            codesById = valueCodes;
+            valuesById = values;
+            ids.put(value, id);
+        }
+        return id;
+    }
+
+    // Value with the id, null for NONE
+    public String value(int id) {
+        return id == NONE ? null : valuesById[id];
+    }
+
+    // Code of the value with the id, see code()
+    public int codeOf(int id) {
+        return id == NONE ? NONE : codesById[id];
+    }
+
+    // The shared instance of a value
+    public String intern(String value) {
+        return value(id(value));
+    }
+
+    // Code of a value, equal for two values exactly when they are equal ignoring case
+    // Codes start at 1, so a code field that is still 0 has not been looked up yet
+    public synchronized int code(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        String folded = fold(value);
+        Integer code = codes.get(folded);
+        if (code == null) {
+            code = codes.size() + 1;
+            codes.put(folded, code);
+        }
+        return code;
+    }
+
+    // Code of a value if it has one, without giving new values a code
+    public synchronized int lookup(String value) {
+        if (value == null) {
+            return NONE;
+        }
+
+        Integer code = codes.get(fold(value));
+        return code != null ? code : UNKNOWN;
+    }
+
+    // Fold every character the way String.equalsIgnoreCase compares them
+    private static String fold(String value) {
+        char[] chars = value.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+        }
+        return new String(chars);
+    }
+}
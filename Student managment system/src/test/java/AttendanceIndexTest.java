@@ -0,0 +1,121 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The attendance lookups have to return what a scan over every record returns,
+ * in the same order, after corrections and after loading again. This holds for
+ * the records in the snapshot and for the rows of the mapped store.
+ */
+class AttendanceIndexTest {
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void lookupsMatchAScan() {
+        TestData.useDataDir(dir, false);
+        checkLookupsAfterChangesAndLoading();
+    }
+
+    @Test
+    void lookupsInTheMappedStoreMatchAScan() {
+        TestData.useDataDir(dir, false);
+        System.setProperty("sis.attendance.mapped", "true");
+        checkLookupsAfterChangesAndLoading();
+    }
+
+    private void checkLookupsAfterChangesAndLoading() {
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 21, 25, 6);
+
+        // A second mark later on the same day, the lookups go by day and find the latest one
+        Student student = system.getAllStudents().get(3);
+        Subject subject = student.getCourses().get(0).getSubjects().get(0);
+        system.markAttendance(new Attendance(student, subject, new Date(TestData.day(2).getTime() + 3 * 3600 * 1000),
+                                             false, "Left early"));
+        checkLookups(system);
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkLookups(loaded);
+        loaded.shutdown();
+    }
+
+    private static void checkLookups(StudentInformationSystem system) {
+        List<Attendance> all = new ArrayList<>(system.getAttendances());
+        for (Student student : system.getAllStudents()) {
+            List<Attendance> expected = new ArrayList<>();
+            for (Attendance attendance : all) {
+                if (attendance.getStudent().getId() == student.getId()) expected.add(attendance);
+            }
+            assertEquals(describe(expected), describe(system.getAttendanceByStudent(student)));
+        }
+        for (Subject subject : system.getSubjects()) {
+            List<Attendance> expected = new ArrayList<>();
+            for (Attendance attendance : all) {
+                if (attendance.getSubject().getSubjectId() == subject.getSubjectId()) expected.add(attendance);
+            }
+            assertEquals(describe(expected), describe(system.getAttendanceBySubject(subject)));
+        }
+        for (int day = -1; day < 8; day++) {
+            // Any time of the day finds the records of that day
+            Date date = new Date(TestData.day(day).getTime() + 5 * 3600 * 1000);
+            List<Attendance> expected = new ArrayList<>();
+            for (Attendance attendance : all) {
+                if (sameDay(attendance.getDate(), date)) expected.add(attendance);
+            }
+            assertEquals(describe(expected), describe(system.getAttendanceByDate(date)));
+
+            for (Student student : system.getAllStudents()) {
+                for (Subject subject : system.getSubjects()) {
+                    Attendance latest = null;
+                    for (Attendance attendance : all) {
+                        if (attendance.getStudent().getId() == student.getId()
+                            && attendance.getSubject().getSubjectId() == subject.getSubjectId()
+                            && sameDay(attendance.getDate(), date)) {
+                            latest = attendance;
+                        }
+                    }
+                    Attendance found = system.findAttendance(student, subject, date);
+                    if (latest == null) {
+                        assertNull(found);
+                    } else {
+                        assertEquals(describe(latest), describe(found));
+                    }
+                }
+            }
+        }
+    }
+
+    private static boolean sameDay(Date a, Date b) {
+        return Dates.toEpochDay(a) == Dates.toEpochDay(b);
+    }
+
+    // Records of the mapped store are read afresh for each lookup, so they are compared by value
+    private static List<String> describe(List<Attendance> records) {
+        List<String> values = new ArrayList<>();
+        for (Attendance attendance : records) {
+            values.add(describe(attendance));
+        }
+        return values;
+    }
+
+    private static String describe(Attendance attendance) {
+        return attendance.getStudent().getId() + " " + attendance.getSubject().getSubjectId() + " "
+               + attendance.getDate().getTime() + " " + attendance.isPresent() + " " + attendance.getRemarks();
+    }
+}
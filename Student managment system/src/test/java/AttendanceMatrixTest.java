@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Attendance counts, percentages and absentees from the presence bitsets have to
+ * match counting the records, where a student marked twice on a day counts once
+ * with the status of the latest record.
+ */
+class AttendanceMatrixTest {
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void countsMatchTheRecords() {
+        TestData.useDataDir(dir, false);
+        checkCountsAfterChangesAndLoading();
+    }
+
+    @Test
+    void countsFromTheMappedStoreMatchTheRecords() {
+        TestData.useDataDir(dir, false);
+        System.setProperty("sis.attendance.mapped", "true");
+        checkCountsAfterChangesAndLoading();
+    }
+
+    @Test
+    void matrixCountsEachDayOnce() {
+        AttendanceMatrix matrix = new AttendanceMatrix();
+        int day = Dates.toEpochDay(TestData.day(0));
+        matrix.mark(1, 100, day, true);
+        matrix.mark(1, 100, day, false);
+        matrix.mark(2, 100, day, false);
+        matrix.mark(2, 100, day, true);
+        matrix.mark(1, 100, day + 1, true);
+        matrix.mark(3, 101, day, false);
+
+        assertEquals(2, matrix.countMarked(100, TestData.day(0)));
+        assertEquals(1, matrix.countPresent(100, TestData.day(0)));
+        assertEquals(2, matrix.countMarked(1, 100));
+        assertEquals(1, matrix.countPresent(1, 100));
+        assertEquals(0, matrix.countMarked(3, 100));
+        assertEquals(1, matrix.getAbsentStudentIds(100, TestData.day(0)).size());
+        assertEquals(1, matrix.getAbsentStudentIds(100, TestData.day(0)).get(0));
+        assertEquals(0, matrix.getAbsentStudentIds(100, TestData.day(1)).size());
+        assertEquals(2, matrix.getDays(100).size());
+        assertEquals(0, matrix.getDays(102).size());
+    }
+
+    private void checkCountsAfterChangesAndLoading() {
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 41, 30, 6);
+
+        // Marked again later the same day, only the second mark counts
+        for (int i = 0; i < 5; i++) {
+            Student student = system.getAllStudents().get(i);
+            Subject subject = student.getCourses().get(0).getSubjects().get(0);
+            Attendance first = system.findAttendance(student, subject, TestData.day(1));
+            system.markAttendance(new Attendance(student, subject, new Date(TestData.day(1).getTime() + 3600 * 1000),
+                                                 !first.isPresent(), "Marked again"));
+        }
+        checkCounts(system);
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkCounts(loaded);
+        loaded.shutdown();
+    }
+
+    private static void checkCounts(StudentInformationSystem system) {
+        // Status of each student, subject and day, the latest record wins
+        Map<String, Boolean> statuses = new LinkedHashMap<>();
+        for (Attendance attendance : system.getAttendances()) {
+            statuses.put(attendance.getStudent().getId() + " " + attendance.getSubject().getSubjectId() + " "
+                         + Dates.toEpochDay(attendance.getDate()), attendance.isPresent());
+        }
+
+        for (Subject subject : system.getSubjects()) {
+            TreeSet<Integer> days = new TreeSet<>();
+            for (String key : statuses.keySet()) {
+                String[] parts = key.split(" ");
+                if (Integer.parseInt(parts[1]) == subject.getSubjectId()) days.add(Integer.parseInt(parts[2]));
+            }
+            List<Date> expectedDays = new ArrayList<>();
+            for (int day : days) expectedDays.add(Dates.startOfDay(day));
+            assertEquals(expectedDays, system.getAttendanceDays(subject));
+
+            for (int day = -1; day < 8; day++) {
+                Date date = TestData.day(day);
+                int marked = 0;
+                int present = 0;
+                List<Integer> absent = new ArrayList<>();
+                for (Student student : system.getAllStudents()) {
+                    Boolean status = statuses.get(student.getId() + " " + subject.getSubjectId() + " " + Dates.toEpochDay(date));
+                    if (status != null) {
+                        marked++;
+                        if (status) present++; else absent.add(student.getId());
+                    }
+                }
+                assertEquals(marked, system.countMarkedAttendance(subject, date));
+                assertEquals(present, system.countPresentAttendance(subject, date));
+                assertEquals(new TreeSet<>(absent), ids(system.getAbsentStudents(subject, date)));
+            }
+
+            for (Student student : system.getAllStudents()) {
+                int marked = 0;
+                int present = 0;
+                for (Map.Entry<String, Boolean> status : statuses.entrySet()) {
+                    if (status.getKey().startsWith(student.getId() + " " + subject.getSubjectId() + " ")) {
+                        marked++;
+                        if (status.getValue()) present++;
+                    }
+                }
+                assertEquals(marked, system.countMarkedAttendance(student, subject));
+                assertEquals(present, system.countPresentAttendance(student, subject));
+                assertEquals(marked > 0 ? (double) present / marked * 100 : 0,
+                             system.getAttendancePercentage(student, subject));
+            }
+        }
+    }
+
+    private static TreeSet<Integer> ids(List<Student> students) {
+        TreeSet<Integer> ids = new TreeSet<>();
+        for (Student student : students) ids.add(student.getId());
+        return ids;
+    }
+}
@@ -0,0 +1,100 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The students of a course or subject have to be the ones a scan over every
+ * student's courses finds, in registration order, after enrollments, withdrawals,
+ * changes to the subjects of a course, deletions and loading again.
+ */
+class EnrollmentIndexTest {
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void studentsByCourseAndSubjectMatchAScan() {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 71, 40, 1);
+        checkEnrollments(system);
+
+        Random random = new Random(71);
+        List<Course> courses = system.getCourses();
+        List<Subject> subjects = system.getSubjects();
+        for (int i = 0; i < 30; i++) {
+            List<Student> students = system.getAllStudents();
+            Student student = students.get(random.nextInt(students.size()));
+            Course course = courses.get(random.nextInt(courses.size()));
+            switch (i % 5) {
+                case 0:
+                    system.enrollStudent(student, course);
+                    break;
+                case 1:
+                    system.withdrawStudent(student, course);
+                    break;
+                case 2:
+                    // Move a subject into another course
+                    Subject subject = subjects.get(random.nextInt(subjects.size()));
+                    system.edit(() -> {
+                        if (course.getSubjects().contains(subject)) {
+                            course.removeSubject(subject);
+                        } else {
+                            course.addSubject(subject);
+                        }
+                    });
+                    system.updateCourse(course);
+                    break;
+                case 3:
+                    system.deleteStudent(student);
+                    break;
+                default:
+                    Student late = new Student(4000 + i, "Late Student " + i, "Road", "555", TestData.day(-7000),
+                                               "L" + i, "Male", "Arts");
+                    system.registerStudent(late);
+                    system.enrollStudent(late, course);
+            }
+            checkEnrollments(system);
+        }
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkEnrollments(loaded);
+        loaded.shutdown();
+    }
+
+    private static void checkEnrollments(StudentInformationSystem system) {
+        List<Student> students = system.getAllStudents();
+        for (Course course : system.getCourses()) {
+            List<Student> expected = new ArrayList<>();
+            for (Student student : students) {
+                if (student.getCourses().contains(course)) expected.add(student);
+            }
+            assertEquals(expected, system.getStudentsByCourse(course));
+        }
+        for (Subject subject : system.getSubjects()) {
+            List<Student> expected = new ArrayList<>();
+            for (Student student : students) {
+                for (Course course : student.getCourses()) {
+                    if (course.getSubjects().contains(subject)) {
+                        expected.add(student);
+                        break;
+                    }
+                }
+            }
+            assertEquals(expected, system.getStudentsBySubject(subject));
+        }
+    }
+}
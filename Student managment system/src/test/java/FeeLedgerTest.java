@@ -0,0 +1,114 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The running totals of each student's fee ledger have to be what adding up the
+ * student's payments gives, overall and by payment type, after payments were
+ * recorded, marked paid or unpaid again and loaded again.
+ */
+class FeeLedgerTest {
+    private static final String[] TYPE_QUERIES = {"Tuition", "TUITION", "library", "Hostel", "Transport"};
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void totalsMatchAddingUpThePayments() {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 81, 30, 1);
+        checkTotals(system);
+
+        Random random = new Random(81);
+        for (int i = 0; i < 200; i++) {
+            List<FeePayment> payments = system.getFeePayments();
+            if (i % 4 == 0) {
+                List<Student> students = system.getAllStudents();
+                Student student = students.get(random.nextInt(students.size()));
+                system.recordFeePayment(new FeePayment(student, 0.25 * random.nextInt(4000), TestData.day(i),
+                                                       random.nextBoolean(),
+                                                       TestData.PAYMENT_TYPES[random.nextInt(TestData.PAYMENT_TYPES.length)],
+                                                       system.nextReceiptNumber()));
+            } else {
+                FeePayment payment = payments.get(random.nextInt(payments.size()));
+                // Setting the status it already has must not count the payment twice
+                system.updateFeePaymentStatus(payment, i % 7 == 0 ? payment.isPaid() : !payment.isPaid());
+            }
+        }
+        checkTotals(system);
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkTotals(loaded);
+        loaded.shutdown();
+    }
+
+    @Test
+    void totalWithoutPaymentsIsZero() {
+        Student student = new Student(1, "Student", "Road", "555", TestData.day(-7000), "R1", "Male", "Arts");
+        FeeLedger ledger = new FeeLedger();
+        List<FeePayment> payments = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            FeePayment payment = new FeePayment(student, 0.1 * i, TestData.day(i), false, "Tuition", "R" + i);
+            ledger.add(payment);
+            payments.add(payment);
+        }
+        for (FeePayment payment : payments) {
+            payment.setPaid(true);
+            ledger.statusChanged(payment, false);
+        }
+
+        assertEquals(0.0, ledger.getTotalOutstanding());
+        assertEquals(0.0, ledger.getOutstanding("tuition"));
+        assertEquals(5.5, ledger.getTotalPaid(), 1e-9);
+        assertEquals(5.5, ledger.getPaid("Tuition"), 1e-9);
+    }
+
+    // Amounts are whole quarters, so the sums are exact whatever order they are added in
+    private static void checkTotals(StudentInformationSystem system) {
+        for (Student student : system.getAllStudents()) {
+            List<FeePayment> payments = new ArrayList<>();
+            double paid = 0;
+            double outstanding = 0;
+            for (FeePayment payment : system.getFeePayments()) {
+                if (payment.getStudent().getId() == student.getId()) {
+                    payments.add(payment);
+                    if (payment.isPaid()) paid += payment.getAmount(); else outstanding += payment.getAmount();
+                }
+            }
+
+            FeeLedger ledger = system.getFeeLedger(student);
+            assertEquals(payments, system.getFeePaymentsByStudent(student));
+            assertEquals(paid, ledger.getTotalPaid());
+            assertEquals(outstanding, ledger.getTotalOutstanding());
+            assertEquals(paid, student.getTotalFeesPaid());
+            assertEquals(outstanding, student.getOutstandingFees());
+
+            for (String type : TYPE_QUERIES) {
+                double paidOfType = 0;
+                double outstandingOfType = 0;
+                for (FeePayment payment : payments) {
+                    if (payment.getPaymentType().equalsIgnoreCase(type)) {
+                        if (payment.isPaid()) paidOfType += payment.getAmount(); else outstandingOfType += payment.getAmount();
+                    }
+                }
+                assertEquals(paidOfType, ledger.getPaid(type));
+                assertEquals(outstandingOfType, ledger.getOutstanding(type));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Receipts found by issue date range and by status have to be the ones a scan
+ * over every receipt finds, by issue day for a range and in issue order for a
+ * status, after payment status changes moved receipts between statuses and
+ * after loading again.
+ */
+class FeeReceiptIndexTest {
+    private static final String[] STATUS_QUERIES = {"Paid", "PENDING", "partial", "Void", ""};
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void rangesAndStatusesMatchAScan() {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 91, 40, 1);
+
+        // Receipts issued later in the day, out of date order and with other statuses
+        Random random = new Random(91);
+        String[] statuses = {"Partial", "pending", "Void"};
+        for (int i = 0; i < 30; i++) {
+            Student student = system.getAllStudents().get(random.nextInt(system.getAllStudents().size()));
+            Date issued = new Date(TestData.day(random.nextInt(90)).getTime() + random.nextInt(12) * 3600 * 1000L);
+            system.addFeeReceipt(new FeeReceipt(system.nextReceiptNumber(), student, issued, "Card", "System",
+                                                statuses[i % statuses.length]));
+        }
+        checkQueries(system, random);
+
+        List<FeePayment> payments = system.getFeePayments();
+        for (int i = 0; i < 40; i++) {
+            FeePayment payment = payments.get(random.nextInt(payments.size()));
+            system.updateFeePaymentStatus(payment, !payment.isPaid());
+        }
+        checkQueries(system, random);
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkQueries(loaded, random);
+        loaded.shutdown();
+    }
+
+    private static void checkQueries(StudentInformationSystem system, Random random) {
+        List<FeeReceipt> receipts = system.getFeeReceipts();
+        for (int i = 0; i < 50; i++) {
+            Date start = new Date(TestData.day(random.nextInt(100) - 5).getTime() + random.nextInt(24) * 3600 * 1000L);
+            Date end = new Date(TestData.day(random.nextInt(100) - 5).getTime() + random.nextInt(24) * 3600 * 1000L);
+            int startDay = Dates.toEpochDay(start);
+            int endDay = Dates.toEpochDay(end);
+            List<FeeReceipt> expected = new ArrayList<>();
+            for (FeeReceipt receipt : receipts) {
+                if (receipt.getIssueDay() >= startDay && receipt.getIssueDay() <= endDay) expected.add(receipt);
+            }
+            expected.sort(Comparator.comparingInt(FeeReceipt::getIssueDay));
+            assertEquals(numbers(expected), numbers(system.getFeeReceiptsByDateRange(start, end)));
+        }
+
+        for (String status : STATUS_QUERIES) {
+            ReceiptStatus type = ReceiptStatus.of(status);
+            List<FeeReceipt> expected = new ArrayList<>();
+            for (FeeReceipt receipt : receipts) {
+                if (type != null && receipt.getStatusType() == type) expected.add(receipt);
+            }
+            assertEquals(numbers(expected), numbers(system.getFeeReceiptsByStatus(status)));
+        }
+
+        // Receipts with a status the system doesn't know are kept under null
+        List<FeeReceipt> unknown = new ArrayList<>();
+        for (FeeReceipt receipt : receipts) {
+            if (receipt.getStatusType() == null) unknown.add(receipt);
+        }
+        assertTrue(unknown.size() > 0);
+        assertEquals(numbers(unknown), numbers(system.getFeeReceiptsByStatus((ReceiptStatus) null)));
+    }
+
+    private static List<String> numbers(List<FeeReceipt> receipts) {
+        List<String> numbers = new ArrayList<>();
+        for (FeeReceipt receipt : receipts) numbers.add(receipt.getReceiptNumber());
+        return numbers;
+    }
+}
@@ -0,0 +1,141 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The int-keyed maps and IntList have to behave like the java.util collections
+ * they replace, through growing, removals that close gaps and clearing.
+ */
+class IntHashMapTest {
+    @Test
+    void mapMatchesHashMap() {
+        // A small key range makes many collisions and removals, a large one makes the map grow
+        for (int range : new int[] {8, 100, 100000}) {
+            Random random = new Random(range);
+            IntHashMap<String> map = new IntHashMap<>();
+            Map<Integer, String> expected = new HashMap<>();
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(range) - range / 4;
+                String value = "v" + i;
+                switch (random.nextInt(5)) {
+                    case 0:
+                    case 1:
+                        assertEquals(expected.put(key, value), map.put(key, value));
+                        break;
+                    case 2:
+                        assertEquals(expected.putIfAbsent(key, value), map.putIfAbsent(key, value));
+                        break;
+                    case 3:
+                        assertEquals(expected.remove(key), map.remove(key));
+                        break;
+                    default:
+                        assertEquals(expected.get(key), map.get(key));
+                        assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                assertEquals(expected.size(), map.size());
+                if (i % 1000 == 0) {
+                    checkContents(expected, map);
+                }
+            }
+            checkContents(expected, map);
+
+            map.clear();
+            assertEquals(0, map.size());
+            assertEquals(null, map.get(expected.keySet().iterator().next()));
+        }
+    }
+
+    @Test
+    void consecutiveIdsAreAllFound() {
+        IntHashMap<Integer> map = new IntHashMap<>(10);
+        for (int id = 1000; id < 101000; id++) {
+            map.put(id, id * 2);
+        }
+        for (int id = 1000; id < 101000; id += 2) {
+            assertEquals(Integer.valueOf(id * 2), map.remove(id));
+        }
+        for (int id = 999; id <= 101000; id++) {
+            assertEquals(id % 2 == 1 && id > 999 && id < 101000 ? Integer.valueOf(id * 2) : null, map.get(id));
+        }
+        assertEquals(50000, map.size());
+    }
+
+    @Test
+    void nullValuesAreRejected() {
+        assertThrows(NullPointerException.class, () -> new IntHashMap<String>().put(1, null));
+    }
+
+    @Test
+    void intIntMapMatchesHashMap() {
+        for (int range : new int[] {8, 100000}) {
+            Random random = new Random(range);
+            IntIntHashMap map = new IntIntHashMap();
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < 20000; i++) {
+                int key = random.nextInt(range) - range / 4;
+                switch (random.nextInt(3)) {
+                    case 0:
+                        map.put(key, i);
+                        expected.put(key, i);
+                        break;
+                    case 1:
+                        assertEquals(expected.putIfAbsent(key, i) == null, map.putIfAbsent(key, i));
+                        break;
+                    default:
+                        assertEquals(expected.getOrDefault(key, -1).intValue(), map.get(key, -1));
+                        assertEquals(expected.containsKey(key), map.containsKey(key));
+                }
+                assertEquals(expected.size(), map.size());
+            }
+            for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+                assertEquals(entry.getValue().intValue(), map.get(entry.getKey(), -1));
+            }
+
+            map.clear();
+            assertEquals(0, map.size());
+            assertEquals(-1, map.get(expected.keySet().iterator().next(), -1));
+        }
+    }
+
+    @Test
+    void intListMatchesArrayList() {
+        Random random = new Random(7);
+        IntList list = new IntList(0);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            int element = random.nextInt();
+            list.add(element);
+            expected.add(element);
+        }
+        assertEquals(expected.size(), list.size());
+        int[] array = list.toArray();
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).intValue(), list.get(i));
+            assertEquals(expected.get(i).intValue(), array[i]);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(expected.size()));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(-1));
+        assertEquals(true, new IntList().isEmpty());
+    }
+
+    // keys() and values() list every entry once, in the same order
+    private static void checkContents(Map<Integer, String> expected, IntHashMap<String> map) {
+        int[] keys = map.keys();
+        List<String> values = map.values();
+        assertEquals(expected.size(), keys.length);
+        assertEquals(expected.size(), values.size());
+        Map<Integer, String> actual = new TreeMap<>();
+        for (int i = 0; i < keys.length; i++) {
+            actual.put(keys[i], values.get(i));
+        }
+        assertEquals(new TreeMap<>(expected), actual);
+    }
+}
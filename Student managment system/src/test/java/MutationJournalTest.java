@@ -0,0 +1,176 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Replaying the journal on top of the snapshot has to give the same system as
+ * the one that wrote it, also when the process died in the middle of a record.
+ */
+class MutationJournalTest {
+    private static final String JOURNAL_FILE = "student_system.journal";
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void replayGivesTheSystemThatWroteTheJournal() throws IOException {
+        TestData.useDataDir(dir, true);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 1, 30, 5);
+        makeOtherChanges(system);
+        String expected = TestData.dump(system);
+        assertTrue(system.getJournalSize() > 0);
+
+        File crashed = copyDataFiles(dir, "crashed");
+        system.shutdown();
+
+        assertEquals(expected, TestData.dump(load(crashed, true)));
+    }
+
+    @Test
+    void replayGivesTheSameSystemAsAFullSnapshot() throws IOException {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem saved = StudentInformationSystem.loadData();
+        TestData.populate(saved, 2, 20, 4);
+        makeOtherChanges(saved);
+        saved.saveData(true);
+        saved.shutdown();
+
+        File journalDir = new File(dir, "journal");
+        journalDir.mkdir();
+        TestData.useDataDir(journalDir, true);
+        StudentInformationSystem journaled = StudentInformationSystem.loadData();
+        TestData.populate(journaled, 2, 20, 4);
+        makeOtherChanges(journaled);
+        File crashed = copyDataFiles(journalDir, "crashed");
+        journaled.shutdown();
+
+        // The default users are created with their own salts, only the records can be compared
+        assertEquals(withoutUsers(TestData.dump(load(dir, false))), withoutUsers(TestData.dump(load(crashed, true))));
+    }
+
+    @Test
+    void recordCutShortAtTheEndIsDropped() throws IOException {
+        TestData.useDataDir(dir, true);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 3, 10, 3);
+        String beforeLastChange = TestData.dump(system);
+        system.registerStudent(new Student(5000, "Last Student", "Road", "555", TestData.day(-8000),
+                                           "R5000", "Female", "Arts"));
+        File crashed = copyDataFiles(dir, "crashed");
+        system.shutdown();
+
+        File journal = new File(crashed, JOURNAL_FILE);
+        try (RandomAccessFile file = new RandomAccessFile(journal, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        StudentInformationSystem recovered = open(crashed, true);
+        assertEquals(beforeLastChange, TestData.dump(recovered));
+
+        // The torn record is cut off, so changes made after the restart are replayed as well
+        recovered.registerStudent(new Student(5001, "Next Student", "Road", "555", TestData.day(-8000),
+                                              "R5001", "Male", "Science"));
+        String afterRestart = TestData.dump(recovered);
+        File crashedAgain = copyDataFiles(crashed, "crashed-again");
+        recovered.shutdown();
+
+        assertEquals(afterRestart, TestData.dump(load(crashedAgain, true)));
+    }
+
+    @Test
+    void garbageAfterTheLastRecordIsIgnored() throws IOException {
+        TestData.useDataDir(dir, true);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 4, 10, 3);
+        String expected = TestData.dump(system);
+        File crashed = copyDataFiles(dir, "crashed");
+        system.shutdown();
+
+        byte[] garbage = new byte[100];
+        new Random(4).nextBytes(garbage);
+        try (FileOutputStream out = new FileOutputStream(new File(crashed, JOURNAL_FILE), true)) {
+            out.write(garbage);
+        }
+
+        assertEquals(expected, TestData.dump(load(crashed, true)));
+    }
+
+    @Test
+    void recordsWithoutStudentOrSubjectDontStopReplay() throws IOException {
+        TestData.useDataDir(dir, true);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 5, 5, 2);
+        Student student = system.getAllStudents().get(0);
+        Subject subject = system.getSubjects().get(0);
+        system.markAttendance(new Attendance(student, null, TestData.day(40), true, ""));
+        system.markAttendance(new Attendance(null, subject, TestData.day(40), true, ""));
+        system.addGrade(new Grade(null, subject, "Orphan", "Quiz", 50, 100, TestData.day(40), "", "Fall 2024"));
+        system.addGrade(new Grade(student, null, "Orphan", "Quiz", 50, 100, TestData.day(40), "", "Fall 2024"));
+        system.registerStudent(new Student(5000, "Last Student", "Road", "555", TestData.day(-8000),
+                                           "R5000", "Female", "Arts"));
+        int attendance = system.getAttendances().size();
+        int grades = system.getGrades().size();
+        File crashed = copyDataFiles(dir, "crashed");
+        system.shutdown();
+
+        StudentInformationSystem replayed = load(crashed, true);
+        assertNotNull(replayed.findStudentById(5000));
+        assertEquals(attendance - 2, replayed.getAttendances().size());
+        assertEquals(grades - 2, replayed.getGrades().size());
+    }
+
+    // Changes populate() doesn't make
+    private static void makeOtherChanges(StudentInformationSystem system) {
+        Student student = system.getAllStudents().get(1);
+        system.withdrawStudent(student, student.getCourses().get(0));
+        system.deleteStudent(system.getAllStudents().get(2));
+        system.addUser(new User("teacher1", "secret", "Teacher One", "Teacher", "Science", 1));
+        system.changePassword(system.findUserByUsername("teacher1"), "changed");
+    }
+
+    // The data files as a crash at this point leaves them, every journal record is already on disk
+    private File copyDataFiles(File from, String name) throws IOException {
+        File to = new File(dir, name);
+        to.mkdir();
+        File[] files = from.listFiles();
+        for (File file : files) {
+            if (file.isFile()) {
+                Files.copy(file.toPath(), new File(to, file.getName()).toPath());
+            }
+        }
+        return to;
+    }
+
+    private static StudentInformationSystem open(File dataDir, boolean journal) {
+        TestData.useDataDir(dataDir, journal);
+        return StudentInformationSystem.loadData();
+    }
+
+    // Load the system and close it again, its lists can still be read
+    private static StudentInformationSystem load(File dataDir, boolean journal) {
+        StudentInformationSystem system = open(dataDir, journal);
+        system.shutdown();
+        return system;
+    }
+
+    private static String withoutUsers(String dump) {
+        return dump.replaceAll("(?m)^user .*\n", "");
+    }
+}
@@ -0,0 +1,244 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StreamCorruptedException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Snapshots of every version have to load into the system that was saved.
+ * snapshot-v1.ser and snapshot-v2.ser were written by the codec of those versions
+ * in UTC, from the same small school, see checkFixture() for what it holds.
+ */
+class SnapshotCodecTest {
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void writtenSnapshotReadsBackTheSameSystem() throws IOException {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 11, 30, 5);
+        system.deleteStudent(system.getAllStudents().get(0));
+        String expected = TestData.dump(system);
+        byte[] snapshot = write(system);
+        system.shutdown();
+
+        assertEquals(expected, TestData.dump(read(snapshot)));
+    }
+
+    @Test
+    void savedSnapshotLoadsTheSameSystem() throws IOException {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 12, 20, 4);
+        system.saveData(true);
+        String expected = TestData.dump(system);
+        system.shutdown();
+
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        loaded.shutdown();
+        assertEquals(expected, TestData.dump(loaded));
+    }
+
+    @Test
+    void version1KeepsTheDaysOfItsDates() throws IOException {
+        StudentInformationSystem system = read(fixture("snapshot-v1.ser"));
+        checkFixture(system, false);
+    }
+
+    @Test
+    void version2KeepsTheTimesOfItsDates() throws IOException {
+        StudentInformationSystem system = read(fixture("snapshot-v2.ser"));
+        checkFixture(system, true);
+    }
+
+    @Test
+    void olderVersionsLoadAndAreSavedAsTheCurrentOne() throws IOException {
+        for (String name : new String[] {"snapshot-v1.ser", "snapshot-v2.ser"}) {
+            File dataDir = new File(dir, name);
+            dataDir.mkdir();
+            Files.write(new File(dataDir, "student_system.ser").toPath(), fixture(name));
+            TestData.useDataDir(dataDir, false);
+
+            StudentInformationSystem system = StudentInformationSystem.loadData();
+            checkFixture(system, name.equals("snapshot-v2.ser"));
+            assertNotNull(system.findStudentById(1001));
+            assertEquals(2, system.getAttendanceByStudent(system.findStudentById(1000)).size());
+            String expected = TestData.dump(system);
+            system.saveData(true);
+            system.shutdown();
+
+            byte[] saved = Files.readAllBytes(new File(dataDir, "student_system.ser").toPath());
+            assertEquals(0x53495343, ByteBuffer.wrap(saved).getInt(0));
+            assertEquals(3, ByteBuffer.wrap(saved).getInt(4));
+            assertEquals(expected, TestData.dump(read(saved)));
+        }
+    }
+
+    @Test
+    void damagedChecksummedSnapshotIsRejected() throws IOException {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 13, 5, 2);
+        byte[] snapshot = write(system);
+        system.shutdown();
+
+        byte[] flipped = snapshot.clone();
+        flipped[flipped.length / 2] ^= 0x10;
+        assertThrows(IOException.class, () -> read(flipped));
+        assertThrows(IOException.class, () -> read(Arrays.copyOf(snapshot, snapshot.length - 10)));
+    }
+
+    @Test
+    void damagedLengthInAnUncheckedSnapshotIsReported() throws IOException {
+        byte[] snapshot = fixture("snapshot-v2.ser");
+
+        // The string table's count, then the length of its first string
+        for (int offset : new int[] {8, 12}) {
+            for (int length : new int[] {-1, Integer.MAX_VALUE, snapshot.length}) {
+                byte[] damaged = snapshot.clone();
+                ByteBuffer.wrap(damaged).putInt(offset, length);
+                assertThrows(StreamCorruptedException.class, () -> read(damaged));
+            }
+        }
+    }
+
+    @Test
+    void truncatedUncheckedSnapshotIsReported() throws IOException {
+        byte[] snapshot = fixture("snapshot-v2.ser");
+        for (int length = 8; length < snapshot.length; length += 7) {
+            byte[] truncated = Arrays.copyOf(snapshot, length);
+            assertThrows(StreamCorruptedException.class, () -> read(truncated));
+        }
+    }
+
+    // The school in the fixtures: a teacher, a subject, a course, two students with
+    // attendance, two payments with one receipt and two grades. Version 1 stored only
+    // the day of each date, which is read back as midnight of that day here
+    private static void checkFixture(StudentInformationSystem system, boolean keepsTime) {
+        assertEquals(1, system.getTeachers().size());
+        Teacher teacher = system.getTeachers().get(0);
+        assertEquals("Ada Teacher", teacher.getName());
+        assertEquals(201, teacher.getTeacherId());
+        assertEquals("Science", teacher.getDepartment());
+        checkDate(teacher.getDateOfBirth(), 1980, 3, 4, 9, 15, keepsTime);
+        checkDate(teacher.getJoinDate(), 2015, 8, 20, 8, 0, keepsTime);
+
+        Subject subject = system.getSubjects().get(0);
+        assertEquals(100, subject.getSubjectId());
+        assertEquals("Algebra", subject.getName());
+        assertTrue(subject.getTeacher() == teacher);
+
+        Course course = system.getCourses().get(0);
+        assertEquals(10, course.getCourseId());
+        assertTrue(course.getSubjects().get(0) == subject);
+
+        List<Student> students = system.getAllStudents();
+        assertEquals(2, students.size());
+        Student ann = students.get(0);
+        Student bob = students.get(1);
+        assertEquals("Ann Lee", ann.getName());
+        assertEquals("R1000", ann.getRollNumber());
+        assertEquals("Female", ann.getGender());
+        assertEquals("Science", ann.getDepartment());
+        assertEquals("Arts", bob.getDepartment());
+        checkDate(ann.getDateOfBirth(), 2004, 5, 6, 13, 30, keepsTime);
+        checkDate(bob.getDateOfBirth(), 2003, 11, 30, 23, 45, keepsTime);
+        assertTrue(ann.getCourses().get(0) == course);
+
+        List<Attendance> attendances = system.getAttendances();
+        assertEquals(3, attendances.size());
+        assertTrue(attendances.get(0).getStudent() == ann);
+        assertTrue(attendances.get(1).getStudent() == bob);
+        assertEquals(false, attendances.get(1).isPresent());
+        assertEquals("Sick note", attendances.get(1).getRemarks());
+        checkDate(attendances.get(2).getDate(), 2025, 1, 3, 9, 0, keepsTime);
+
+        List<FeePayment> payments = system.getFeePayments();
+        assertEquals(2, payments.size());
+        assertEquals(500.25, payments.get(0).getAmount());
+        assertTrue(payments.get(0).isPaid());
+        assertEquals("Tuition", payments.get(0).getPaymentType());
+        assertEquals("Library", payments.get(1).getPaymentType());
+        checkDate(payments.get(1).getDate(), 2025, 1, 11, 16, 5, keepsTime);
+
+        FeeReceipt receipt = system.getFeeReceipts().get(0);
+        assertEquals("REC-1", receipt.getReceiptNumber());
+        assertEquals("Paid", receipt.getStatus());
+        assertEquals(500.25, receipt.getTotalAmount());
+        assertTrue(receipt.getPayments().get(0) == payments.get(0));
+        checkDate(receipt.getIssueDate(), 2025, 1, 10, 14, 45, keepsTime);
+
+        List<Grade> grades = system.getGrades();
+        assertEquals(2, grades.size());
+        assertEquals("Quiz", grades.get(0).getGradeType());
+        assertEquals(18.0, grades.get(0).getScore());
+        assertEquals("Spring 2025", grades.get(1).getSemester());
+        assertEquals("Retake", grades.get(1).getRemarks());
+        checkDate(grades.get(1).getDate(), 2025, 1, 20, 11, 30, keepsTime);
+
+        assertNotNull(system.getAcademicRecords().get(1000));
+        assertNull(system.findUserByUsername("nobody"));
+    }
+
+    private static void checkDate(Date date, int year, int month, int day, int hour, int minute, boolean keepsTime) {
+        LocalDateTime utc = LocalDateTime.of(year, month, day, hour, minute);
+        if (keepsTime) {
+            assertEquals(utc.toInstant(ZoneOffset.UTC).toEpochMilli(), date.getTime());
+        } else {
+            LocalDate local = date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+            assertEquals(utc.toLocalDate(), local);
+            assertEquals(local.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli(), date.getTime());
+        }
+    }
+
+    private static byte[] write(StudentInformationSystem system) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SnapshotCodec.write(system, out);
+        return out.toByteArray();
+    }
+
+    // Decode a snapshot and build its indexes, as loading does
+    private static StudentInformationSystem read(byte[] snapshot) throws IOException {
+        StudentInformationSystem system = SnapshotCodec.read(new ByteArrayInputStream(snapshot));
+        system.rebuildIndexes();
+        return system;
+    }
+
+    private static byte[] fixture(String name) throws IOException {
+        try (InputStream in = SnapshotCodecTest.class.getResourceAsStream("/" + name)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            int count;
+            while ((count = in.read(chunk)) > 0) {
+                out.write(chunk, 0, count);
+            }
+            return out.toByteArray();
+        }
+    }
+}
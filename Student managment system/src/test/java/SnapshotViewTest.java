@@ -0,0 +1,131 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * A snapshot holds the system as it was when it was taken, however the system
+ * changes while the snapshot is written, and the background writer leaves the
+ * latest changes on disk.
+ */
+class SnapshotViewTest {
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void changesAfterTheViewAreNotInTheSnapshot() throws IOException {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 31, 20, 4);
+        String expected = TestData.dump(system);
+
+        SnapshotCodec.Writer snapshot = system.snapshotView();
+        change(system, new Random(31));
+        assertNotEquals(expected, TestData.dump(system));
+        byte[] bytes = write(snapshot);
+        system.snapshotClosed(snapshot);
+        system.shutdown();
+
+        assertEquals(expected, TestData.dump(read(bytes)));
+    }
+
+    @Test
+    void changesWhileTheSnapshotIsWrittenAreNotInIt() throws Exception {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 32, 40, 6);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            for (int round = 0; round < 5; round++) {
+                String expected = TestData.dump(system);
+                SnapshotCodec.Writer snapshot = system.snapshotView();
+                Future<byte[]> written = executor.submit(() -> write(snapshot));
+                change(system, new Random(round));
+                byte[] bytes = written.get();
+                system.snapshotClosed(snapshot);
+
+                assertEquals(expected, TestData.dump(read(bytes)));
+            }
+        } finally {
+            executor.shutdown();
+            system.shutdown();
+        }
+    }
+
+    @Test
+    void backgroundWriterLeavesTheLatestChangesOnDisk() {
+        TestData.useDataDir(dir, false);
+        System.setProperty("sis.save.coalesceMillis", "20");
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 33, 15, 3);
+        Random random = new Random(33);
+        for (int i = 0; i < 20; i++) {
+            change(system, random);
+            system.saveData();
+        }
+        String expected = TestData.dump(system);
+        system.shutdown();
+
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        loaded.shutdown();
+        assertEquals(expected, TestData.dump(loaded));
+    }
+
+    // Correct records in place, add new ones and edit a student
+    private static void change(StudentInformationSystem system, Random random) {
+        List<Attendance> attendances = system.getAttendances();
+        for (int i = 0; i < 10; i++) {
+            Attendance attendance = attendances.get(random.nextInt(attendances.size()));
+            system.updateAttendance(attendance, !attendance.isPresent(), "Corrected " + i);
+        }
+        List<FeePayment> payments = system.getFeePayments();
+        for (int i = 0; i < 5; i++) {
+            FeePayment payment = payments.get(random.nextInt(payments.size()));
+            system.updateFeePaymentStatus(payment, !payment.isPaid());
+        }
+
+        List<Student> students = system.getAllStudents();
+        Student student = students.get(random.nextInt(students.size()));
+        Subject subject = student.getCourses().get(0).getSubjects().get(0);
+        system.markAttendance(new Attendance(student, subject, TestData.day(100 + random.nextInt(50)), true, "New"));
+        system.addGrade(new Grade(student, subject, "Extra", "Project", random.nextInt(101), 100,
+                                  TestData.day(100), "", TestData.SEMESTERS[0]));
+        system.recordFeePayment(new FeePayment(student, 42.5, TestData.day(100), false, "Library",
+                                               system.nextReceiptNumber()));
+        String department = TestData.DEPARTMENTS[random.nextInt(TestData.DEPARTMENTS.length)];
+        system.edit(() -> {
+            student.setName(student.getName() + "'");
+            student.setDepartment(department);
+        });
+        system.updateStudent(student);
+    }
+
+    private static byte[] write(SnapshotCodec.Writer snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        snapshot.write(out);
+        return out.toByteArray();
+    }
+
+    private static StudentInformationSystem read(byte[] snapshot) throws IOException {
+        StudentInformationSystem system = SnapshotCodec.read(new ByteArrayInputStream(snapshot));
+        system.rebuildIndexes();
+        return system;
+    }
+}
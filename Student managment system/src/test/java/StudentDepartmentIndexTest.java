@@ -0,0 +1,101 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The department reports have to list the students the old scan found, comparing
+ * departments and genders ignoring case, in registration order, after students
+ * were edited in place, replaced, deleted and loaded again.
+ */
+class StudentDepartmentIndexTest {
+    private static final String[] QUERIES = {"Science", "SCIENCE", "arts", "Commerce", "History", ""};
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void reportsMatchAScan() {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 61, 50, 1);
+        checkReports(system);
+
+        Random random = new Random(61);
+        for (int i = 0; i < 10; i++) {
+            List<Student> students = system.getAllStudents();
+            Student student = students.get(random.nextInt(students.size()));
+            String department = TestData.DEPARTMENTS[random.nextInt(TestData.DEPARTMENTS.length)];
+            String gender = TestData.GENDERS[random.nextInt(TestData.GENDERS.length)];
+            switch (i % 3) {
+                case 0:
+                    system.edit(() -> {
+                        student.setDepartment(department);
+                        student.setGender(gender);
+                    });
+                    system.updateStudent(student);
+                    break;
+                case 1:
+                    // A new object for the same student, as the update menu used to pass
+                    system.updateStudent(new Student(student.getId(), student.getName(), "New Road", "555",
+                                                     student.getDateOfBirth(), student.getRollNumber(),
+                                                     gender, department));
+                    break;
+                default:
+                    system.deleteStudent(student);
+                    system.registerStudent(new Student(4000 + i, "Late Student " + i, "Road", "555",
+                                                       TestData.day(-7000), "L" + i, gender, department));
+            }
+            checkReports(system);
+        }
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkReports(loaded);
+        loaded.shutdown();
+    }
+
+    private static void checkReports(StudentInformationSystem system) {
+        List<Student> students = system.getAllStudents();
+        assertTrue(system.getStudentsByDepartment("science").size() > 0);
+        for (String department : QUERIES) {
+            assertEquals(ids(filter(students, s -> s.getDepartment().equalsIgnoreCase(department))),
+                         ids(system.getStudentsByDepartment(department)));
+            assertEquals(ids(filter(students, s -> s.getDepartment().equalsIgnoreCase(department)
+                                                   && s.getGender().equalsIgnoreCase("female"))),
+                         ids(system.getFemaleStudentsByDepartment(department)));
+            assertEquals(ids(filter(students, s -> s.getDepartment().equalsIgnoreCase(department)
+                                                   && s.getGender().equalsIgnoreCase("male"))),
+                         ids(system.getMaleStudentsByDepartment(department)));
+        }
+    }
+
+    private static List<Student> filter(List<Student> students, Predicate<Student> filter) {
+        List<Student> result = new ArrayList<>();
+        for (Student student : students) {
+            if (filter.test(student)) result.add(student);
+        }
+        return result;
+    }
+
+    // Replaced students are new objects, so the lists are compared by id
+    private static List<Integer> ids(List<Student> students) {
+        List<Integer> ids = new ArrayList<>();
+        for (Student student : students) ids.add(student.getId());
+        return ids;
+    }
+}
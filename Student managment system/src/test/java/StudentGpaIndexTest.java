@@ -0,0 +1,161 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * GPAs from the running totals have to be the ones the loop over every grade gave,
+ * and the GPA reports have to list the students a filter over every student finds,
+ * sorted by GPA with ties in registration order.
+ */
+class StudentGpaIndexTest {
+    private static final Map<String, Double> WEIGHTS = new HashMap<>();
+
+    static {
+        WEIGHTS.put("Quiz", 0.15);
+        WEIGHTS.put("Assignment", 0.15);
+        WEIGHTS.put("Midterm", 0.30);
+        WEIGHTS.put("Final", 0.40);
+    }
+
+    @TempDir
+    File dir;
+
+    @AfterEach
+    void clearProperties() {
+        TestData.clearProperties();
+    }
+
+    @Test
+    void gpasAndReportsMatchAScan() {
+        TestData.useDataDir(dir, false);
+        StudentInformationSystem system = StudentInformationSystem.loadData();
+        TestData.populate(system, 51, 60, 2);
+        addGrades(system, new Random(51), 3000);
+        checkGpas(system);
+        checkReports(system);
+
+        system.deleteStudent(system.getAllStudents().get(5));
+        Student student = system.getAllStudents().get(7);
+        system.edit(() -> student.setName("Renamed"));
+        system.updateStudent(student);
+        addGrades(system, new Random(52), 3100);
+        checkGpas(system);
+        checkReports(system);
+
+        system.saveData(true);
+        system.shutdown();
+        StudentInformationSystem loaded = StudentInformationSystem.loadData();
+        checkGpas(loaded);
+        checkReports(loaded);
+        loaded.shutdown();
+    }
+
+    // Populated grades are spread evenly, so add students with good grades to fill the Dean's List,
+    // and more grades for some of the others
+    private static void addGrades(StudentInformationSystem system, Random random, int firstNewId) {
+        Course course = system.getCourses().get(0);
+        for (int id = firstNewId; id < firstNewId + 10; id++) {
+            Student student = new Student(id, "Good Student " + id, "Road", "555", TestData.day(-7000),
+                                          "G" + id, "Female", "Science");
+            system.registerStudent(student);
+            system.enrollStudent(student, course);
+            for (Subject subject : course.getSubjects()) {
+                for (String semester : TestData.SEMESTERS) {
+                    system.addGrade(new Grade(student, subject, "Final", "Final", 75 + random.nextInt(26), 100,
+                                              TestData.day(30), "", semester));
+                }
+            }
+        }
+
+        List<Student> students = system.getAllStudents();
+        for (int i = 0; i < students.size() / 3; i++) {
+            Student student = students.get(random.nextInt(students.size()));
+            for (Subject subject : student.getCourses().get(0).getSubjects()) {
+                String type = TestData.GRADE_TYPES[random.nextInt(TestData.GRADE_TYPES.length)];
+                system.addGrade(new Grade(student, subject, "Extra", type, 60 + random.nextInt(41), 100,
+                                          TestData.day(30), "", TestData.SEMESTERS[random.nextInt(2)]));
+            }
+        }
+    }
+
+    private static void checkGpas(StudentInformationSystem system) {
+        for (Student student : system.getAllStudents()) {
+            List<Grade> grades = new ArrayList<>();
+            for (Grade grade : system.getGrades()) {
+                if (grade.getStudent().getId() == student.getId()) grades.add(grade);
+            }
+            AcademicRecord record = system.getAcademicRecords().get(student.getId());
+            assertEquals(gpa(grades, null), record.calculateCumulativeGPA());
+            assertEquals(gpa(grades, null), student.getGpa());
+            for (String semester : TestData.SEMESTERS) {
+                assertEquals(gpa(grades, semester), record.calculateSemesterGPA(semester));
+            }
+        }
+    }
+
+    private static void checkReports(StudentInformationSystem system) {
+        List<Student> students = system.getAllStudents();
+        assertTrue(system.getStudentsOnDeansList().size() > 0);
+        assertEquals(ascending(students, s -> s.getGpa() < 2.0), system.getStudentsWithWarning());
+        assertEquals(descending(students, s -> s.getGpa() >= 3.5), system.getStudentsOnDeansList());
+        assertEquals(ascending(students, s -> s.getGpa() >= 1.0 && s.getGpa() <= 2.5),
+                     system.getStudentsWithGPARange(1.0, 2.5));
+        assertEquals(ascending(students, s -> s.getGpa() >= 3.0 && s.getGpa() <= 3.0),
+                     system.getStudentsWithGPARange(3.0, 3.0));
+        assertEquals(0, system.getStudentsWithGPARange(3.0, 1.0).size());
+        assertEquals(descending(students, s -> true).subList(0, 10), system.getTopStudentsByGpa(10));
+    }
+
+    // The GPA as the loop over every grade calculated it: the weighted percentage of each
+    // subject in each semester gives grade points, averaged over those courses
+    private static double gpa(List<Grade> grades, String onlySemester) {
+        Map<String, double[]> courses = new LinkedHashMap<>();
+        for (Grade grade : grades) {
+            Double weight = WEIGHTS.get(grade.getGradeType());
+            if (weight == null || (onlySemester != null && !onlySemester.equals(grade.getSemester()))) {
+                continue;
+            }
+            String course = grade.getSemester() + "/" + grade.getSubject().getSubjectId();
+            double[] totals = courses.computeIfAbsent(course, key -> new double[2]);
+            totals[0] += grade.getScore() / grade.getMaxScore() * 100 * weight;
+            totals[1] += weight;
+        }
+
+        double points = 0;
+        for (double[] totals : courses.values()) {
+            double percentage = totals[0] / totals[1];
+            points += percentage >= 90 ? 4 : percentage >= 80 ? 3 : percentage >= 70 ? 2 : percentage >= 60 ? 1 : 0;
+        }
+        return courses.isEmpty() ? 0.0 : points / courses.size();
+    }
+
+    private static List<Student> ascending(List<Student> students, Predicate<Student> filter) {
+        List<Student> result = new ArrayList<>();
+        for (Student student : students) {
+            if (filter.test(student)) result.add(student);
+        }
+        result.sort(Comparator.comparingDouble(Student::getGpa));
+        return result;
+    }
+
+    // Highest first, ties in reverse registration order
+    private static List<Student> descending(List<Student> students, Predicate<Student> filter) {
+        List<Student> result = ascending(students, filter);
+        Collections.reverse(result);
+        return result;
+    }
+}
@@ -0,0 +1,251 @@
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Fills a system with a small school through the same calls the menus make, and
+ * dumps the state of a system as text so two systems can be compared line by line.
+ * Values of categorical fields differ in case on purpose, the queries match them
+ * ignoring case.
+ */
+final class TestData {
+    static final long DAY = 24L * 60 * 60 * 1000;
+    static final long START = 1735722000000L; // 01/01/2025 09:00 UTC
+
+    static final String[] DEPARTMENTS = {"Science", "Arts", "science", "Commerce"};
+    static final String[] GENDERS = {"Male", "Female", "male", "FEMALE", "Other"};
+    static final String[] GRADE_TYPES = {"Quiz", "Assignment", "Midterm", "Final", "Project"};
+    static final String[] SEMESTERS = {"Fall 2024", "Spring 2025"};
+    static final String[] PAYMENT_TYPES = {"Tuition", "Library", "Hostel", "tuition"};
+    static final String[] REMARKS = {"", null, "Late", "Sick note"};
+
+    private static final String[] PROPERTIES = {
+        "sis.dataDir", "sis.journal", "sis.attendance.mapped", "sis.save.coalesceMillis",
+        "sis.compaction.intervalSeconds", "sis.password.iterations"
+    };
+
+    private TestData() {
+    }
+
+    // Keep the data files in dir, save synchronously and hash passwords quickly
+    static void useDataDir(File dir, boolean journal) {
+        System.setProperty("sis.dataDir", dir.getPath());
+        System.setProperty("sis.journal", String.valueOf(journal));
+        System.setProperty("sis.save.coalesceMillis", "0");
+        System.setProperty("sis.compaction.intervalSeconds", "3600");
+        System.setProperty("sis.password.iterations", "1000");
+    }
+
+    static void clearProperties() {
+        for (String property : PROPERTIES) {
+            System.clearProperty(property);
+        }
+    }
+
+    static Date day(int day) {
+        return new Date(START + day * DAY);
+    }
+
+    // Teachers, subjects, courses and students with enrollments, attendance, fees, receipts and grades.
+    // Some attendance and payments are changed afterwards, and some students move department
+    static void populate(StudentInformationSystem system, long seed, int studentCount, int days) {
+        Random random = new Random(seed);
+
+        List<Teacher> teachers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Teacher teacher = new Teacher(i + 1, "Teacher " + i, "Street " + i, "555-01" + i, day(-12000 - i),
+                                          200 + i, "Specialization " + i, day(-900), DEPARTMENTS[i % 2]);
+            system.addTeacher(teacher);
+            teachers.add(teacher);
+        }
+
+        List<Subject> subjects = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Subject subject = new Subject(100 + i, "Subject " + i, teachers.get(i % teachers.size()), 3, "Description " + i);
+            system.addSubject(subject);
+            subjects.add(subject);
+        }
+
+        List<Course> courses = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Course course = new Course(10 + i, "Course " + i, DEPARTMENTS[i], 6);
+            system.addCourse(course);
+            Subject first = subjects.get(2 * i);
+            Subject second = subjects.get(2 * i + 1);
+            system.edit(() -> {
+                course.addSubject(first);
+                course.addSubject(second);
+            });
+            system.updateCourse(course);
+            courses.add(course);
+        }
+
+        List<Student> students = new ArrayList<>();
+        for (int i = 0; i < studentCount; i++) {
+            Student student = new Student(1000 + i, "Student " + i, "Road " + i, "555-02" + i, day(-7000 - i),
+                                          "R" + i, pick(random, GENDERS), pick(random, DEPARTMENTS));
+            system.registerStudent(student);
+            students.add(student);
+
+            system.enrollStudent(student, courses.get(random.nextInt(courses.size())));
+            if (random.nextBoolean()) {
+                system.enrollStudent(student, courses.get(random.nextInt(courses.size())));
+            }
+        }
+
+        for (Student student : students) {
+            for (Course course : student.getCourses()) {
+                for (Subject subject : course.getSubjects()) {
+                    for (int d = 0; d < days; d++) {
+                        system.markAttendance(new Attendance(student, subject, day(d), random.nextInt(4) > 0,
+                                                             pick(random, REMARKS)));
+                    }
+                }
+            }
+        }
+
+        // Correct some of the attendance afterwards
+        for (int i = 0; i < studentCount * days / 2; i++) {
+            Student student = students.get(random.nextInt(students.size()));
+            Course course = student.getCourses().get(random.nextInt(student.getCourses().size()));
+            Subject subject = course.getSubjects().get(random.nextInt(course.getSubjects().size()));
+            Attendance attendance = system.findAttendance(student, subject, day(random.nextInt(days)));
+            if (attendance != null) {
+                system.updateAttendance(attendance, random.nextBoolean(), pick(random, REMARKS));
+            }
+        }
+
+        List<FeePayment> payments = new ArrayList<>();
+        for (Student student : students) {
+            for (int i = 0; i < 2; i++) {
+                Date date = day(random.nextInt(90));
+                String receiptNumber = system.nextReceiptNumber();
+                FeePayment payment = new FeePayment(student, 100 + random.nextInt(900) + 0.25 * random.nextInt(4),
+                                                    date, random.nextBoolean(), pick(random, PAYMENT_TYPES), receiptNumber);
+                system.recordFeePayment(payment);
+                payments.add(payment);
+
+                FeeReceipt receipt = new FeeReceipt(receiptNumber, student, date, "Cash", "System", "Paid");
+                receipt.addPayment(payment);
+                system.addFeeReceipt(receipt);
+            }
+        }
+        for (int i = 0; i < payments.size() / 3; i++) {
+            FeePayment payment = payments.get(random.nextInt(payments.size()));
+            system.updateFeePaymentStatus(payment, !payment.isPaid());
+        }
+
+        for (Student student : students) {
+            for (Course course : student.getCourses()) {
+                for (Subject subject : course.getSubjects()) {
+                    for (String semester : SEMESTERS) {
+                        int count = 1 + random.nextInt(4);
+                        for (int i = 0; i < count; i++) {
+                            system.addGrade(new Grade(student, subject, "Work " + i, pick(random, GRADE_TYPES),
+                                                      random.nextInt(101), 100, day(random.nextInt(120)),
+                                                      "", semester));
+                        }
+                    }
+                }
+            }
+        }
+
+        // Move some students to another department, changing the registered objects in place
+        for (int i = 0; i < studentCount / 5; i++) {
+            Student student = students.get(random.nextInt(students.size()));
+            String department = pick(random, DEPARTMENTS);
+            String gender = pick(random, GENDERS);
+            system.edit(() -> {
+                student.setDepartment(department);
+                student.setGender(gender);
+            });
+            system.updateStudent(student);
+        }
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    // Everything a snapshot or the journal keeps, in list order
+    static String dump(StudentInformationSystem system) {
+        StringBuilder out = new StringBuilder();
+        for (Teacher teacher : system.getTeachers()) {
+            out.append("teacher ").append(teacher.getId()).append(' ').append(teacher.getTeacherId())
+               .append(' ').append(teacher.getName()).append(' ').append(teacher.getDepartment())
+               .append(' ').append(time(teacher.getDateOfBirth())).append(' ').append(time(teacher.getJoinDate()))
+               .append(" subjects ").append(subjectIds(teacher.getSubjects())).append('\n');
+        }
+        for (Subject subject : system.getSubjects()) {
+            out.append("subject ").append(subject.getSubjectId()).append(' ').append(subject.getName())
+               .append(" teacher ").append(subject.getTeacher() != null ? subject.getTeacher().getId() : -1)
+               .append(' ').append(subject.getCreditHours()).append(' ').append(subject.getDescription()).append('\n');
+        }
+        for (Course course : system.getCourses()) {
+            out.append("course ").append(course.getCourseId()).append(' ').append(course.getName())
+               .append(' ').append(course.getDepartment()).append(' ').append(course.getCreditHours())
+               .append(" subjects ").append(subjectIds(course.getSubjects())).append('\n');
+        }
+        for (Student student : system.getAllStudents()) {
+            out.append("student ").append(student.getId()).append(' ').append(student.getRollNumber())
+               .append(' ').append(student.getName()).append(' ').append(student.getGender())
+               .append(' ').append(student.getDepartment()).append(' ').append(student.getGpa())
+               .append(' ').append(time(student.getDateOfBirth())).append(" courses");
+            for (Course course : student.getCourses()) {
+                out.append(' ').append(course.getCourseId());
+            }
+            out.append(" paid ").append(student.getTotalFeesPaid())
+               .append(" outstanding ").append(student.getOutstandingFees()).append('\n');
+        }
+        for (Attendance attendance : system.getAttendances()) {
+            out.append("attendance ").append(attendance.getStudent().getId())
+               .append(' ').append(attendance.getSubject().getSubjectId())
+               .append(' ').append(time(attendance.getDate())).append(' ').append(attendance.isPresent())
+               .append(' ').append(attendance.getRemarks()).append('\n');
+        }
+        for (FeePayment payment : system.getFeePayments()) {
+            out.append("payment ").append(payment.getStudent().getId()).append(' ').append(payment.getAmount())
+               .append(' ').append(time(payment.getDate())).append(' ').append(payment.isPaid())
+               .append(' ').append(payment.getPaymentType()).append(' ').append(payment.getReceiptNumber()).append('\n');
+        }
+        for (FeeReceipt receipt : system.getFeeReceipts()) {
+            out.append("receipt ").append(receipt.getReceiptNumber()).append(' ').append(receipt.getStudent().getId())
+               .append(' ').append(time(receipt.getIssueDate())).append(' ').append(receipt.getTotalAmount())
+               .append(' ').append(receipt.getStatus()).append(' ').append(receipt.getPaymentMethod())
+               .append(' ').append(receipt.getPayments().size()).append('\n');
+        }
+        for (Grade grade : system.getGrades()) {
+            out.append("grade ").append(grade.getStudent().getId()).append(' ').append(grade.getSubject().getSubjectId())
+               .append(' ').append(grade.getAssignmentName()).append(' ').append(grade.getGradeType())
+               .append(' ').append(grade.getScore()).append('/').append(grade.getMaxScore())
+               .append(' ').append(time(grade.getDate())).append(' ').append(grade.getSemester()).append('\n');
+        }
+        for (Student student : system.getAllStudents()) {
+            AcademicRecord record = system.getAcademicRecords().get(student.getId());
+            if (record != null) {
+                out.append("record ").append(student.getId()).append(' ').append(record.getGrades().size())
+                   .append(' ').append(record.calculateCumulativeGPA()).append('\n');
+            }
+        }
+        for (User user : system.getUsers()) {
+            out.append("user ").append(user.getUsername()).append(' ').append(user.getPassword())
+               .append(' ').append(user.getRole()).append(' ').append(user.getDepartment())
+               .append(' ').append(user.getAssociatedId()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String subjectIds(List<Subject> subjects) {
+        StringBuilder ids = new StringBuilder();
+        for (Subject subject : subjects) {
+            ids.append(subject.getSubjectId()).append(',');
+        }
+        return ids.toString();
+    }
+
+    private static String time(Date date) {
+        return date == null ? "null" : String.valueOf(date.getTime());
+    }
+}
@@ -0,0 +1,125 @@
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import sis.benchmarks.Workload;
+
+/**
+ * Benchmark workload built on a dataset from DatasetGenerator.
+ * Every student is enrolled in one course and has attendance, grades, fee
+ * payments and a receipt for one semester of that course.
+ */
+public class SystemWorkload implements Workload {
+    private static final String[] SEMESTERS = {"Fall 2024", "Spring 2025", "Fall 2025"};
+
+    private static final int ATTENDANCE_DAYS = 4;
+    private static final long START_DATE = 1725148800000L; // 2024-09-01
+
+    // Ids and queries are drawn from these in turn, so picking one costs almost nothing
+    private static final int SAMPLES = 4096;
+
+    private StudentInformationSystem system;
+    private int[] studentIds;
+    private String[] nameQueries;
+    private int cursor;
+    private PrintStream originalOut;
+
+    @Override
+    public void setUp(int studentCount, File dataDir) throws Exception {
+        System.setProperty("sis.dataDir", dataDir.getAbsolutePath());
+
+        // saveData and loadData report to System.out, keep that out of the benchmark output
+        originalOut = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+
+        // One semester with a few teaching days keeps set-up time reasonable at 100,000 students
+        DatasetGenerator generator = new DatasetGenerator(42);
+        generator.setStudents(studentCount);
+        generator.setSemesters(1);
+        generator.setTeachingDays(ATTENDANCE_DAYS);
+        system = generator.generate();
+
+        Random random = new Random(42);
+        studentIds = new int[SAMPLES];
+        nameQueries = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            // The generator numbers students from 1
+            Student student = system.findStudentById(1 + random.nextInt(studentCount));
+            studentIds[i] = student.getId();
+            // Type-ahead style query: the first few letters of a last name
+            String lastName = student.getName().substring(student.getName().indexOf(' ') + 1);
+            nameQueries[i] = lastName.substring(0, 3 + random.nextInt(lastName.length() - 2));
+        }
+
+        // Settle the data files once, loading hashes the default passwords and rewrites the snapshot
+        system.saveData();
+        StudentInformationSystem.loadData();
+    }
+
+    @Override
+    public void tearDown() {
+        System.setOut(originalOut);
+        System.clearProperty("sis.dataDir");
+    }
+
+    @Override
+    public Object findStudentById() {
+        return system.findStudentById(nextStudentId());
+    }
+
+    @Override
+    public Object searchStudentsByName() {
+        return system.searchStudentsByName(nameQueries[nextSample()]);
+    }
+
+    @Override
+    public Object getAttendanceByStudent() {
+        return system.getAttendanceByStudent(system.findStudentById(nextStudentId()));
+    }
+
+    @Override
+    public Object addGrade() {
+        Student student = system.findStudentById(nextStudentId());
+        List<Subject> subjects = student.getCourses().get(0).getSubjects();
+        Subject subject = subjects.get(cursor % subjects.size());
+        Grade grade = new Grade(student, subject, "Quiz " + cursor, "Quiz", cursor % 11, 10,
+                                new Date(START_DATE), "", SEMESTERS[cursor % SEMESTERS.length]);
+        system.addGrade(grade);
+        return grade;
+    }
+
+    @Override
+    public Object generateFeeReceiptReport() {
+        return system.generateFeeReceiptReport(system.getFeeReceipts());
+    }
+
+    @Override
+    public void saveData() {
+        system.saveData();
+    }
+
+    @Override
+    public Object loadData() {
+        return StudentInformationSystem.loadData();
+    }
+
+    private int nextSample() {
+        cursor++;
+        return cursor & (SAMPLES - 1);
+    }
+
+    private int nextStudentId() {
+        return studentIds[nextSample()];
+    }
+}
@@ -0,0 +1,133 @@
+package sis.benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Hot paths of the StudentInformationSystem at 1k, 10k and 100k students.
+ *
+ * Run all of them with:
+ *   mvn -B package && java -jar benchmarks/target/benchmarks.jar
+ * or a subset, for example:
+ *   java -jar benchmarks/target/benchmarks.jar findStudentById -p students=100000
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class StudentSystemBenchmark {
+
+    /**
+     * A read-mostly dataset shared by the lookup, report and persistence benchmarks.
+     */
+    @State(Scope.Benchmark)
+    public static class Dataset {
+        @Param({"1000", "10000", "100000"})
+        public int students;
+
+        Workload workload;
+        File dataDir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            dataDir = Files.createTempDirectory("sis-bench").toFile();
+            workload = Workload.create();
+            workload.setUp(students, dataDir);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            workload.tearDown();
+            deleteDirectory(dataDir);
+        }
+    }
+
+    /**
+     * addGrade keeps growing the system, so it gets a fresh dataset every iteration.
+     */
+    @State(Scope.Benchmark)
+    public static class GradingDataset {
+        @Param({"1000", "10000", "100000"})
+        public int students;
+
+        Workload workload;
+        File dataDir;
+
+        @Setup(Level.Iteration)
+        public void setUp() throws Exception {
+            dataDir = Files.createTempDirectory("sis-bench").toFile();
+            workload = Workload.create();
+            workload.setUp(students, dataDir);
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() {
+            workload.tearDown();
+            deleteDirectory(dataDir);
+        }
+    }
+
+    @Benchmark
+    public Object findStudentById(Dataset dataset) {
+        return dataset.workload.findStudentById();
+    }
+
+    @Benchmark
+    public Object searchStudentsByName(Dataset dataset) {
+        return dataset.workload.searchStudentsByName();
+    }
+
+    @Benchmark
+    public Object getAttendanceByStudent(Dataset dataset) {
+        return dataset.workload.getAttendanceByStudent();
+    }
+
+    @Benchmark
+    public Object addGrade(GradingDataset dataset) {
+        return dataset.workload.addGrade();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object generateFeeReceiptReport(Dataset dataset) {
+        return dataset.workload.generateFeeReceiptReport();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveData(Dataset dataset) {
+        dataset.workload.saveData();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Object loadData(Dataset dataset) {
+        return dataset.workload.loadData();
+    }
+
+    private static void deleteDirectory(File directory) {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+}
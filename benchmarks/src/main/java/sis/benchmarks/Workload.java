@@ -0,0 +1,38 @@
+package sis.benchmarks;
+
+import java.io.File;
+
+/**
+ * Operations measured by the benchmarks.
+ * The system classes live in the default package, which JMH benchmarks cannot
+ * import, so they are driven through this interface by SystemWorkload.
+ */
+public interface Workload {
+    // Build a dataset with the given number of students, keeping data files in dataDir
+    void setUp(int students, File dataDir) throws Exception;
+
+    void tearDown();
+
+    Object findStudentById();
+
+    Object searchStudentsByName();
+
+    Object getAttendanceByStudent();
+
+    Object addGrade();
+
+    Object generateFeeReceiptReport();
+
+    void saveData();
+
+    Object loadData();
+
+    // Create the workload implemented in the default package
+    static Workload create() {
+        try {
+            return (Workload) Class.forName("SystemWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("SystemWorkload is not on the class path", e);
+        }
+    }
+}